@@ -0,0 +1,49 @@
+package bloom;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parole da 64 bit aggiornabili concorrentemente senza lock, per ConcurrentBloomFilter.
+ * Questa versione utilizza AtomicLongArray e un ciclo di compareAndSet; su JDK 17+
+ *  è sostituita dalla versione in META-INF/versions/17 che utilizza un VarHandle
+ *  con getAndBitwiseOr e letture opaque.
+ *
+ * @author Marco Costa
+ */
+final class AtomicWords {
+    private final AtomicLongArray words;
+
+    AtomicWords(int length) {
+        words = new AtomicLongArray(length);
+    }
+
+    int length() {
+        return words.length();
+    }
+
+    long get(int i) {
+        return words.get(i);
+    }
+
+    void set(int i, long value) {
+        words.set(i, value);
+    }
+
+    /**
+     * Imposta a 1 i bit di mask nella parola i-esima. Se sono già tutti a 1 la
+     *  parola non viene scritta, evitando di contendere la linea di cache.
+     *
+     * @return tt sse almeno un bit è passato da 0 a 1
+     */
+    boolean or(int i, long mask) {
+        long w = words.get(i);
+
+        while((w & mask) != mask) {
+            if(words.compareAndSet(i, w, w | mask))
+                return true;
+            w = words.get(i);
+        }
+
+        return false;
+    }
+}
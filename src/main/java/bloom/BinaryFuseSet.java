@@ -0,0 +1,479 @@
+package bloom;
+
+import static bloom.PackedSlots.mix;
+
+import hash.BloomHash;
+import hash.Digest;
+import hash.HashFactory;
+import hash.HashFamily;
+import hash.HashedKey;
+import hash.KeyEncoder;
+import hash.KeyEncoders;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Binary Fuse Set (Graf e Lemire, 2022).
+ * Set immutabile di elementi di tipo E costruito una sola volta a partire da
+ *  tutte le chiavi: ogni chiave è associata a tre slot in segmenti consecutivi
+ *  della tabella e lo XOR dei tre slot è il fingerprint di fingerprintBits bit
+ *  della chiave. La ricerca legge esattamente tre slot e la probabilità di falso
+ *  positivo è 2^-fingerprintBits, con circa 1.13 * fingerprintBits bit per chiave
+ *  per insiemi grandi (9 bit per 0.4% e 18 bit per 0.0015%).
+ *
+ * La costruzione calcola una volta l'hash delle chiavi e, per ogni tentativo,
+ *  ordina gli hash derivati dal seme del tentativo: gli slot sono così visitati
+ *  in ordine crescente e i duplicati eliminati. parallelBuild() calcola gli hash
+ *  delle chiavi e li ordina in parallelo, la fase di peeling resta sequenziale.
+ *
+ * @param <E> il tipo dell'elemento
+ * @see BloomBlocker
+ * @author Marco Costa
+ */
+public class BinaryFuseSet<E> extends AbstractSet<E> implements Set<E>, Serializable {
+    private static final int ARITY = 3;
+    private static final int MAX_ITERATIONS = 100;
+    private static final int MAX_SEGMENT_LENGTH = 1 << 18;
+
+    private final long[] table;
+
+    private final int fingerprintBits;
+    private final long fingerprintMask;
+    private final int segmentLength;
+    private final int segmentLengthMask;
+    private final int segmentCountLength;
+    private final int arrayLength;
+
+    /* seme del tentativo di costruzione riuscito */
+    private final long fuseSeed;
+    private final long n;
+
+    private final HashFamily family;
+    private final long seed;
+
+    private transient BloomHash hash;
+    private final KeyEncoder<? super E> encoder;
+
+    /**
+     * Costruzione del set a partire dagli hash delle chiavi.
+     */
+    private BinaryFuseSet(long[] keys, int fingerprintBits, boolean parallel,
+                          KeyEncoder<? super E> encoder, BloomHash hash) {
+        int size = keys.length;
+
+        segmentLength = (size == 0) ? 4
+                : Math.min(MAX_SEGMENT_LENGTH, 1 << (int) Math.floor(Math.log(size) / Math.log(3.33) + 2.25));
+        segmentLengthMask = segmentLength - 1;
+
+        double sizeFactor = (size <= 1) ? 0 : Math.max(1.125, 0.875 + 0.25 * Math.log(1000000) / Math.log(size));
+        long capacity = Math.round(size * sizeFactor);
+        long segmentCount = (capacity + segmentLength - 1) / segmentLength - (ARITY - 1);
+        segmentCount = (segmentCount <= 0) ? 1 : segmentCount;
+        long length = (segmentCount + ARITY - 1) * segmentLength;
+        if(length > BloomFilter.MAX_ARRAY_LENGTH)
+            throw new IllegalArgumentException("troppe chiavi");
+
+        arrayLength = (int) length;
+        segmentCountLength = (int) (segmentCount * segmentLength);
+
+        this.fingerprintBits = fingerprintBits;
+        fingerprintMask = (fingerprintBits == 64) ? -1L : (1L << fingerprintBits) - 1;
+        this.encoder = encoder;
+        this.hash = hash;
+        family = hash.family();
+        seed = hash.seed();
+
+        table = new long[(int) PackedSlots.words(arrayLength, fingerprintBits)];
+
+        long[] hashes = new long[size];
+        long[] order = new long[size];
+        byte[] found = new byte[size];
+        byte[] count = new byte[arrayLength];
+        long[] xors = new long[arrayLength];
+        int[] alone = new int[arrayLength];
+        int[] positions = new int[ARITY];
+
+        long attempt = 0;
+        int distinct;
+        int stack;
+
+        while(true) {
+            if(++attempt > MAX_ITERATIONS)
+                throw new IllegalStateException("impossibile costruire il filtro");
+
+            long s = attempt * 0x9E3779B97F4A7C15L;
+            /* in ordine di slot: h0 è monotono nell'hash senza segno, per cui l'ordinamento
+             *  con segno avviene sugli hash con il bit più significativo invertito */
+            for(int i = 0; i < size; i++)
+                hashes[i] = mix(keys[i] + s) ^ Long.MIN_VALUE;
+
+            if(parallel)
+                Arrays.parallelSort(hashes);
+            else
+                Arrays.sort(hashes);
+            distinct = unique(hashes);
+
+            for(int i = 0; i < distinct; i++)
+                hashes[i] ^= Long.MIN_VALUE;
+
+            Arrays.fill(count, (byte) 0);
+            Arrays.fill(xors, 0);
+
+            boolean overflow = false;
+            for(int i = 0; (i < distinct) && !overflow; i++) {
+                long h = hashes[i];
+                positions(h, positions);
+
+                for(int j = 0; j < ARITY; j++) {
+                    int p = positions[j];
+                    if((count[p] & 0xff) >= 0xfc) { /* contatore saturo */
+                        overflow = true;
+                        break;
+                    }
+
+                    count[p] += 4;
+                    count[p] ^= j;
+                    xors[p] ^= h;
+                }
+            }
+            if(overflow)
+                continue;
+
+            /* peeling: rimozione ripetuta delle chiavi che occupano da sole uno slot */
+            int queue = 0;
+            for(int i = 0; i < arrayLength; i++)
+                if((count[i] >> 2) == 1)
+                    alone[queue++] = i;
+
+            stack = 0;
+            while(queue > 0) {
+                int index = alone[--queue];
+                if((count[index] >> 2) != 1)
+                    continue;
+
+                long h = xors[index];
+                int which = count[index] & 3;
+                order[stack] = h;
+                found[stack] = (byte) which;
+                stack++;
+
+                positions(h, positions);
+                for(int j = 1; j < ARITY; j++) {
+                    int other = (which + j) % ARITY;
+                    int p = positions[other];
+
+                    if((count[p] >> 2) == 2)
+                        alone[queue++] = p;
+                    count[p] -= 4;
+                    count[p] ^= other;
+                    xors[p] ^= h;
+                }
+            }
+
+            if(stack == distinct)
+                break;
+        }
+
+        fuseSeed = attempt * 0x9E3779B97F4A7C15L;
+        n = distinct;
+
+        /* assegnamento in ordine inverso di peeling */
+        for(int i = stack - 1; i >= 0; i--) {
+            long h = order[i];
+            int which = found[i];
+            positions(h, positions);
+
+            long value = fingerprint(h);
+            for(int j = 1; j < ARITY; j++)
+                value ^= getSlot(positions[(which + j) % ARITY]);
+
+            setSlot(positions[which], value);
+        }
+    }
+
+    /**
+     * Costruzione di un Binary Fuse Set con probabilità di falso positivo minore
+     *  o uguale a pf contenente le chiavi keys.
+     *
+     * @param keys le chiavi del set
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @param <E> il tipo dell'elemento
+     * @return il set
+     */
+    public static <E> BinaryFuseSet<E> build(Collection<? extends E> keys, double pf) {
+        return build(keys, pf, KeyEncoders.BY_TYPE, HashFactory.getHashFunction());
+    }
+
+    /**
+     * Costruzione di un Binary Fuse Set con probabilità di falso positivo minore
+     *  o uguale a pf contenente le chiavi keys, con encoder e funzione hash specificati.
+     *
+     * @param keys le chiavi del set
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash
+     * @param <E> il tipo dell'elemento
+     * @return il set
+     */
+    public static <E> BinaryFuseSet<E> build(Collection<? extends E> keys, double pf,
+                                             KeyEncoder<? super E> encoder, BloomHash hash) {
+        check(keys, encoder, hash);
+
+        long[] hashes = new long[keys.size()];
+        int i = 0;
+        for(E key : keys)
+            hashes[i++] = hash.digest(key, encoder).h1();
+
+        return new BinaryFuseSet<>(hashes, computeFingerprintBits(pf), false, encoder, hash);
+    }
+
+    /**
+     * Costruzione parallela di un Binary Fuse Set con probabilità di falso positivo
+     *  minore o uguale a pf contenente le chiavi keys: gli hash delle chiavi sono
+     *  calcolati e ordinati in parallelo. Il set è identico a quello di build().
+     *
+     * @param keys le chiavi del set
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash, che deve essere utilizzabile da più thread
+     * @param <E> il tipo dell'elemento
+     * @return il set
+     */
+    public static <E> BinaryFuseSet<E> parallelBuild(Collection<? extends E> keys, double pf,
+                                                     KeyEncoder<? super E> encoder, BloomHash hash) {
+        check(keys, encoder, hash);
+
+        List<? extends E> list = (keys instanceof List) ? (List<? extends E>) keys : new ArrayList<>(keys);
+        long[] hashes = new long[list.size()];
+        Arrays.parallelSetAll(hashes, i -> hash.digest(list.get(i), encoder).h1());
+
+        return new BinaryFuseSet<>(hashes, computeFingerprintBits(pf), true, encoder, hash);
+    }
+
+    private static void check(Collection<?> keys, KeyEncoder<?> encoder, BloomHash hash) {
+        if(keys == null)
+            throw new IllegalArgumentException("keys non può essere null");
+        if(encoder == null)
+            throw new IllegalArgumentException("encoder non può essere null");
+        if(hash == null)
+            throw new IllegalArgumentException("hash non può essere null");
+    }
+
+    /**
+     * Calcola il numero di bit del fingerprint per una probabilità di falso
+     *  positivo minore o uguale a pf, pari a 2^-f.
+     *
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @return il numero di bit del fingerprint
+     */
+    public static int computeFingerprintBits(double pf) {
+        if((pf <= 0) || (pf >= 1))
+            throw new IllegalArgumentException("pf deve essere compreso tra 0 e 1");
+
+        return Math.min(64, Math.max(1, (int) Math.ceil(-Math.log(pf) / Math.log(2))));
+    }
+
+    /* elimina i duplicati da un array ordinato, restituendo il numero di valori distinti */
+    private static int unique(long[] sorted) {
+        if(sorted.length == 0)
+            return 0;
+
+        int distinct = 1;
+        for(int i = 1; i < sorted.length; i++)
+            if(sorted[i] != sorted[distinct - 1])
+                sorted[distinct++] = sorted[i];
+
+        return distinct;
+    }
+
+    /* parte alta del prodotto senza segno tra h e bound < 2^31 */
+    private static long multiplyHigh(long h, int bound) {
+        return (((h >>> 32) * bound) + (((h & 0xffffffffL) * bound) >>> 32)) >>> 32;
+    }
+
+    private void positions(long h, int[] positions) {
+        int h0 = (int) multiplyHigh(h, segmentCountLength);
+        int h1 = h0 + segmentLength;
+        int h2 = h1 + segmentLength;
+
+        positions[0] = h0;
+        positions[1] = h1 ^ ((int) (h >>> 18) & segmentLengthMask);
+        positions[2] = h2 ^ ((int) h & segmentLengthMask);
+    }
+
+    private long fingerprint(long h) {
+        return (h ^ (h >>> 32)) & fingerprintMask;
+    }
+
+    private long getSlot(int slot) {
+        return PackedSlots.get(table, slot, fingerprintBits, fingerprintMask);
+    }
+
+    private void setSlot(int slot, long value) {
+        PackedSlots.set(table, slot, fingerprintBits, fingerprintMask, value);
+    }
+
+    private boolean mightContain(long h1) {
+        long h = mix(h1 + fuseSeed);
+        int h0 = (int) multiplyHigh(h, segmentCountLength);
+        int p1 = (h0 + segmentLength) ^ ((int) (h >>> 18) & segmentLengthMask);
+        int p2 = (h0 + 2 * segmentLength) ^ ((int) h & segmentLengthMask);
+
+        return fingerprint(h) == (getSlot(h0) ^ getSlot(p1) ^ getSlot(p2));
+    }
+
+    /**
+     * Restituisce true se l'elemento è possibilmente nel set, false
+     *  se l'elemento è definitivamente non nel set.
+     * La ricerca legge esattamente tre slot.
+     *
+     * @param o l'elemento da verificare
+     * @return true se l'elemento è possibilmente nel set,
+     *         false se l'elemento è definitivamente non nel set
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        if(o instanceof HashedKey)
+            return contains((HashedKey) o);
+
+        Digest d = hash.digest((E) o, encoder);
+        return mightContain(d.h1());
+    }
+
+    /**
+     * Restituisce true se l'elemento della chiave precalcolata è possibilmente
+     *  nel set, false se è definitivamente non nel set.
+     *
+     * @param key la chiave dell'elemento
+     * @return true se l'elemento è possibilmente nel set,
+     *         false se l'elemento è definitivamente non nel set
+     * @throws IllegalArgumentException se la chiave è stata calcolata con una
+     *         funzione hash o un encoder diversi da quelli del set
+     * @see #hashKey(Object)
+     */
+    public boolean contains(HashedKey key) {
+        if((key.family() != family) || (key.seed() != seed))
+            throw new IllegalArgumentException("chiave calcolata con " + key.family() + "(" + key.seed()
+                    + "), il set utilizza " + family + "(" + seed + ")");
+        if(!key.isEncodedWith(encoder))
+            throw new IllegalArgumentException("chiave calcolata con un encoder diverso da quello del set");
+
+        return mightContain(key.h1());
+    }
+
+    /**
+     * Calcola la chiave di un elemento, verificabile con contains(HashedKey).
+     *
+     * @param e l'elemento
+     * @return la chiave dell'elemento
+     */
+    public HashedKey hashKey(E e) {
+        return HashedKey.of(hash, e, encoder);
+    }
+
+    /**
+     * La struttura è immutabile.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @param e
+     * @return
+     */
+    @Override
+    public boolean add(E e) {
+        throw new UnsupportedOperationException("La struttura è immutabile");
+    }
+
+    /**
+     * La struttura è immutabile.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @param o
+     * @return
+     */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("La struttura è immutabile");
+    }
+
+    /**
+     * La struttura è immutabile.
+     * Lancia una UnsupportedOperationException.
+     */
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("La struttura è immutabile");
+    }
+
+    /**
+     * La struttura non supporta iterazione.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @return
+     */
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException("La struttura non supporta iterazione");
+    }
+
+    /**
+     * Restituisce il numero di chiavi distinte del set.
+     *
+     * @return
+     */
+    @Override
+    public int size() {
+        return (int) n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public int fingerprintBits() {
+        return fingerprintBits;
+    }
+
+    /**
+     * Restituisce la dimensione fisica in memoria della tabella, in bit.
+     *
+     * @return
+     */
+    public long dimension() {
+        return (long) table.length << 6;
+    }
+
+    /**
+     * Restituisce la famiglia della funzione hash.
+     *
+     * @return la famiglia
+     */
+    public HashFamily family() {
+        return family;
+    }
+
+    /**
+     * Restituisce il seme della funzione hash.
+     *
+     * @return il seme
+     */
+    public long seed() {
+        return seed;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = HashFactory.getHashFunction(family, seed);
+    }
+}
@@ -4,6 +4,7 @@ import java.util.BitSet;
 
 /**
  * Implementazione dell'interfaccia astratta BloomFilter mediante BitSet array.
+ * BitSet è indicizzato da int: la dimensione è limitata a Integer.MAX_VALUE bit.
  *
  * @see BloomFilter
  * @author Marco Costa
@@ -18,6 +19,32 @@ public class BitSetBloomFilter extends BloomFilter {
      * @param size la dimensione in bit
      */
     public BitSetBloomFilter(int size) {
+        this(size, IndexReduction.MODULO);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter implementato mediante BitSet di dimensione size bit,
+     *  le cui posizioni sono ridotte con il metodo reduction.
+     *
+     * @param size la dimensione in bit
+     * @param reduction il metodo di riduzione, MASK richiede size potenza di due
+     */
+    public BitSetBloomFilter(int size, IndexReduction reduction) {
+        this(size, ProbeScheme.DOUBLE_HASHING, reduction);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter implementato mediante BitSet di dimensione size bit,
+     *  le cui posizioni sono derivate con lo schema scheme e ridotte con il metodo reduction.
+     *
+     * @param size la dimensione in bit
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione, MASK richiede size potenza di due
+     */
+    public BitSetBloomFilter(int size, ProbeScheme scheme, IndexReduction reduction) {
+        super(scheme, reduction);
+        checkCapacity(size);
+
         this.size = size;
         array = new BitSet(size); /* bit settati a 0 */
     }
@@ -28,20 +55,30 @@ public class BitSetBloomFilter extends BloomFilter {
      * @param pos l'indice
      * @throws IndexOutOfBoundsException se pos non è un indice valido
      */
-    private void checkPosition(int pos) throws IndexOutOfBoundsException {
-        if ((pos < 0) || (pos > size))
+    private void checkPosition(long pos) throws IndexOutOfBoundsException {
+        if ((pos < 0) || (pos >= size))
             throw new IndexOutOfBoundsException("Indice " + pos + " non valido");
     }
 
+    @Override
+    void setUnchecked(long index) {
+        array.set((int) index);
+    }
+
+    @Override
+    boolean isSetUnchecked(long index) {
+        return array.get((int) index);
+    }
+
     /**
      * Imposta a true l'indice index del Bloom Filter.
      *
      * @param index l'indice
      * @throws IndexOutOfBoundsException se index non è un indice valido
      */
-    public void set(int index) throws IndexOutOfBoundsException {
+    public void set(long index) throws IndexOutOfBoundsException {
         checkPosition(index);
-        array.set(index);
+        array.set((int) index);
     }
 
     /**
@@ -66,9 +103,9 @@ public class BitSetBloomFilter extends BloomFilter {
      * @return tt sse array[index] = 1
      * @throws IndexOutOfBoundsException se index non è un indice valido
      */
-    public boolean isSet(int index) throws IndexOutOfBoundsException {
+    public boolean isSet(long index) throws IndexOutOfBoundsException {
         checkPosition(index);
-        return array.get(index);
+        return array.get((int) index);
     }
 
     /**
@@ -99,16 +136,26 @@ public class BitSetBloomFilter extends BloomFilter {
      *
      * @return la dimensione in bit in memoria
      */
-    public int size() {
+    public long size() {
         return array.size();
     }
 
+    /**
+     * Restituisce il numero di bit indirizzabili, ovvero la dimensione impostata
+     *  alla creazione.
+     *
+     * @return il numero di bit indirizzabili
+     */
+    public long capacity() {
+        return size;
+    }
+
     /**
      * Restituisce la dimensione logica della struttura. L'indice dell'ultimo bit più uno.
      *
      * @return la dimensione logica della struttura
      */
-    public int length() {
+    public long length() {
         return array.length();
     }
 
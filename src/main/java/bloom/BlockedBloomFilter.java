@@ -0,0 +1,287 @@
+package bloom;
+
+import java.util.Arrays;
+
+/**
+ * Implementazione dell'interfaccia astratta BloomFilter a blocchi (blocked Bloom filter).
+ * Il filtro è diviso in blocchi di blockBits bit, da 64 (una parola) a 512 (una linea
+ *  di cache): h1 seleziona il blocco e le k posizioni di una chiave sono derivate da h2
+ *  all'interno del blocco, per cui ogni operazione accede ad un solo blocco di memoria.
+ * A parità di bit la probabilità di falso positivo è maggiore di quella di un filtro
+ *  classico: la dimensione va calcolata con BloomFilter.computeM(n, pf, blockBits).
+ *
+ * @see BloomFilter#computeM(long, double, int)
+ * @author Marco Costa
+ */
+public class BlockedBloomFilter extends BloomFilter {
+    public static final int MIN_BLOCK_BITS = 64;
+    public static final int MAX_BLOCK_BITS = 512;
+
+    /* moltiplicatore dispari per la sequenza delle posizioni nel blocco */
+    private static final long PROBE = 0x9E3779B97F4A7C15L;
+
+    private final long[] words;
+    private final int blocks;
+    private final int blockBits;
+    private final int blockShift; /* log2 delle parole per blocco */
+    private final int bitShift; /* 64 - log2(blockBits) */
+
+    /**
+     * Creazione di un nuovo BloomFilter a blocchi di dimensione size bit.
+     *
+     * @param size la dimensione in bit, multipla di blockBits
+     * @param blockBits i bit per blocco, potenza di due in [64, 512]
+     */
+    public BlockedBloomFilter(long size, int blockBits) {
+        this(size, blockBits, IndexReduction.MODULO);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter a blocchi di dimensione size bit, il cui
+     *  blocco è selezionato con il metodo reduction.
+     *
+     * @param size la dimensione in bit, multipla di blockBits
+     * @param blockBits i bit per blocco, potenza di due in [64, 512]
+     * @param reduction il metodo di riduzione di h1 al blocco, MASK richiede un
+     *                  numero di blocchi potenza di due
+     */
+    public BlockedBloomFilter(long size, int blockBits, IndexReduction reduction) {
+        super(reduction);
+        checkBlockBits(blockBits);
+        if((size <= 0) || (size % blockBits != 0))
+            throw new IllegalArgumentException("size deve essere un multiplo positivo di " + blockBits);
+        if((size >>> 6) > MAX_ARRAY_LENGTH)
+            throw new IllegalArgumentException("size troppo grande per un array di long");
+
+        blocks = (int) (size / blockBits);
+        if(reduction.bound(blocks) != blocks)
+            throw new IllegalArgumentException("numero di blocchi non valido per la riduzione " + reduction);
+
+        this.blockBits = blockBits;
+        blockShift = Integer.numberOfTrailingZeros(blockBits >>> 6);
+        bitShift = 64 - Integer.numberOfTrailingZeros(blockBits);
+        words = new long[(int) (size >>> 6)];
+    }
+
+    /**
+     * Crea un filtro a blocchi per n elementi con probabilità di falso positivo pf,
+     *  dimensionato con la correzione per blocchi di computeM().
+     *
+     * @param n il numero di inserimenti previsti
+     * @param pf la probabilità di falso positivo in (0, 1)
+     * @param blockBits i bit per blocco, potenza di due in [64, 512]
+     * @param reduction il metodo di riduzione di h1 al blocco
+     * @return il filtro
+     */
+    public static BlockedBloomFilter create(long n, double pf, int blockBits, IndexReduction reduction) {
+        checkBlockBits(blockBits);
+        long m = computeM(n, pf, blockBits);
+        long blocks = reduction.bound((m + blockBits - 1) / blockBits);
+        if(blocks > MAX_ARRAY_LENGTH / (blockBits >>> 6))
+            throw new IllegalArgumentException("dimensione del filtro troppo grande");
+
+        return new BlockedBloomFilter(blocks * blockBits, blockBits, reduction);
+    }
+
+    /**
+     * Factory di filtri a blocchi per BloomSet.
+     *
+     * @param blockBits i bit per blocco, potenza di due in [64, 512]
+     * @param reduction il metodo di riduzione di h1 al blocco
+     * @return la factory
+     */
+    public static BloomFilterFactory factory(int blockBits, IndexReduction reduction) {
+        checkBlockBits(blockBits);
+        if(reduction == null)
+            throw new IllegalArgumentException("reduction non può essere null");
+
+        return (n, pf) -> create(n, pf, blockBits, reduction);
+    }
+
+    private static void checkBlockBits(int blockBits) {
+        if((blockBits < MIN_BLOCK_BITS) || (blockBits > MAX_BLOCK_BITS) || (Integer.bitCount(blockBits) != 1))
+            throw new IllegalArgumentException("blockBits deve essere una potenza di due in ["
+                    + MIN_BLOCK_BITS + ", " + MAX_BLOCK_BITS + "]");
+    }
+
+    /**
+     * Restituisce il numero di bit per blocco.
+     *
+     * @return i bit per blocco
+     */
+    public int blockBits() {
+        return blockBits;
+    }
+
+    /**
+     * Imposta a true le k posizioni del digest (h1, h2) nel blocco selezionato da h1.
+     * La posizione i-esima è data dai bit alti di h2 * PROBE^i.
+     *
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni
+     */
+    @Override
+    public void put(long h1, long h2, int k) {
+        int base = reduction().reduce(h1, blocks) << blockShift;
+        long x = h2;
+
+        if(blockShift == 0) { /* blocco di una parola: una sola scrittura */
+            long mask = 0;
+            for(int i = 0; i < k; i++) {
+                x *= PROBE;
+                mask |= 1L << (x >>> bitShift);
+            }
+            words[base] |= mask;
+            return;
+        }
+
+        for(int i = 0; i < k; i++) {
+            x *= PROBE;
+            int bit = (int) (x >>> bitShift);
+            words[base + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Restituisce true sse le k posizioni del digest (h1, h2) sono settate a true
+     *  nel blocco selezionato da h1.
+     *
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni
+     * @return tt sse forall i in k -> block[g_i] = 1
+     */
+    @Override
+    public boolean mightContain(long h1, long h2, int k) {
+        int base = reduction().reduce(h1, blocks) << blockShift;
+        long x = h2;
+
+        if(blockShift == 0) {
+            long mask = 0;
+            for(int i = 0; i < k; i++) {
+                x *= PROBE;
+                mask |= 1L << (x >>> bitShift);
+            }
+            return (words[base] & mask) == mask;
+        }
+
+        for(int i = 0; i < k; i++) {
+            x *= PROBE;
+            int bit = (int) (x >>> bitShift);
+            if((words[base + (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    private void checkPosition(long pos) throws IndexOutOfBoundsException {
+        if((pos < 0) || (pos >= capacity()))
+            throw new IndexOutOfBoundsException("Indice " + pos + " non valido");
+    }
+
+    /**
+     * Imposta a true l'indice index del Bloom Filter.
+     *
+     * @param index l'indice
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public void set(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        words[(int) (index >>> 6)] |= 1L << index;
+    }
+
+    /**
+     * Imposta a true tutti gli indici in index del Bloom Filter.
+     * Se uno degli indici contenuti in index non è valido l'operazione
+     *  non viene eseguita.
+     *
+     * @param index il vettore di indici
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public void set(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            checkPosition(i);
+        for(int i : index)
+            words[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Restituisce true sse l'indice index è settato a true.
+     *
+     * @param index l'indice della struttura
+     * @return tt sse array[index] = 1
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public boolean isSet(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        return (words[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici in index sono settati a true.
+     *
+     * @param index il vettore di indici
+     * @return tt sse forall i in index -> array[i] = 1
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public boolean isSet(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            if(!isSet(i))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Reimposta tutti i bit della struttura a false.
+     */
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * Restituisce la dimensione in bit in memoria della struttura.
+     *
+     * @return la dimensione in bit in memoria
+     */
+    public long size() {
+        return (long) words.length << 6;
+    }
+
+    /**
+     * Restituisce il numero di bit indirizzabili, multiplo di blockBits.
+     *
+     * @return il numero di bit indirizzabili
+     */
+    public long capacity() {
+        return (long) blocks * blockBits;
+    }
+
+    /**
+     * Restituisce la dimensione logica della struttura. L'indice dell'ultimo bit più uno.
+     *
+     * @return la dimensione logica della struttura
+     */
+    public long length() {
+        for(int i = words.length - 1; i >= 0; i--)
+            if(words[i] != 0)
+                return ((long) i << 6) + 64 - Long.numberOfLeadingZeros(words[i]);
+
+        return 0;
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici della struttura sono settati a false.
+     *
+     * @return tt sse forall i in size -> array[i] = 0
+     */
+    public boolean isEmpty() {
+        for(long w : words)
+            if(w != 0)
+                return false;
+
+        return true;
+    }
+}
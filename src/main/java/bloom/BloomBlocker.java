@@ -2,12 +2,17 @@ package bloom;
 
 import hash.BloomHash;
 import hash.HashFactory;
+import hash.HashedKey;
+import hash.KeyEncoders;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.LineNumberReader;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -17,11 +22,14 @@ import java.util.stream.Stream;
 
 /**
  * BloomBlocker.
+ * Il filtro può essere costruito su file mappato in memoria e riaperto con open()
+ *  senza ricaricare il file host, oppure come BinaryFuseSet immutabile con
+ *  binaryFuse() se la lista di host non cambia.
  *
  * @author Marco Costa
  */
-public class BloomBlocker {
-    private final BloomSet<String> set;
+public class BloomBlocker implements Closeable {
+    private final DomainFilter filter;
 
     /**
      * Restituisce la lista dei domini contenuti all'interno del file "filename".
@@ -56,8 +64,24 @@ public class BloomBlocker {
      * @param pf la probabilità di falso positivo
      */
     public BloomBlocker(ArrayList<String> hostnames, float pf) {
-        set = new BloomSet<>(hostnames.size(), pf);
+        BloomSet<String> set = new BloomSet<>(hostnames.size(), pf, KeyEncoders.CHAR_SEQUENCE);
         set.addAll(hostnames);
+        filter = DomainFilter.of(set);
+    }
+
+    /**
+     * Costruisce un nuovo BloomBlocker il cui filtro è costruito da factory.
+     * Con CountingBloomFilter i domini possono essere rimossi con removeDomain().
+     *
+     * @param hostnames la lista di host
+     * @param pf la probabilità di falso positivo
+     * @param factory la factory del filtro
+     */
+    public BloomBlocker(ArrayList<String> hostnames, float pf, BloomFilterFactory factory) {
+        BloomSet<String> set = new BloomSet<>(hostnames.size(), pf, KeyEncoders.CHAR_SEQUENCE,
+                HashFactory.getHashFunction(), factory);
+        set.addAll(hostnames);
+        filter = DomainFilter.of(set);
     }
 
     /**
@@ -72,6 +96,76 @@ public class BloomBlocker {
         this(loadHostfile(filename), pf);
     }
 
+    /**
+     * Costruisce un nuovo BloomBlocker il cui filtro è mappato sul file file, che
+     *  non deve esistere. Al termine della costruzione il filtro è forzato su disco.
+     *
+     * @param hostnames la lista di host
+     * @param pf la probabilità di falso positivo
+     * @param file il file del filtro
+     * @throws IOException se il file esiste già o non può essere creato
+     * @see #open(Path)
+     */
+    public BloomBlocker(ArrayList<String> hostnames, float pf, Path file) throws IOException {
+        BloomSet<String> set;
+        try {
+            set = new BloomSet<>(hostnames.size(), pf, KeyEncoders.CHAR_SEQUENCE, HashFactory.getHashFunction(),
+                    MappedBloomFilter.factory(file, ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO));
+        }
+        catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        set.addAll(hostnames);
+        set.checkpoint();
+        filter = DomainFilter.of(set);
+    }
+
+    private BloomBlocker(DomainFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Costruisce un BloomBlocker immutabile il cui filtro è un BinaryFuseSet
+     *  con probabilità di falso positivo minore o uguale a pf, costruito in parallelo.
+     * La verifica di un dominio legge tre soli slot ma i domini non possono
+     *  essere rimossi.
+     *
+     * @param hostnames la lista di host
+     * @param pf la probabilità di falso positivo
+     * @return il BloomBlocker
+     */
+    public static BloomBlocker binaryFuse(ArrayList<String> hostnames, float pf) {
+        return new BloomBlocker(DomainFilter.of(BinaryFuseSet.parallelBuild(hostnames, pf,
+                KeyEncoders.CHAR_SEQUENCE, HashFactory.getHashFunction())));
+    }
+
+    /**
+     * Riapre un BloomBlocker costruito su file, senza ricaricare il file host.
+     *
+     * @param file il file del filtro
+     * @return il BloomBlocker
+     * @throws IOException se il file non esiste o non contiene un filtro valido
+     */
+    public static BloomBlocker open(Path file) throws IOException {
+        return new BloomBlocker(DomainFilter.of(BloomSet.open(file, KeyEncoders.CHAR_SEQUENCE)));
+    }
+
+    /**
+     * Forza su disco il filtro, se costruito su file.
+     */
+    public void checkpoint() {
+        filter.checkpoint();
+    }
+
+    /**
+     * Rilascia le risorse del filtro.
+     */
+    @Override
+    public void close() {
+        filter.close();
+    }
+
     /**
      * Verifica la presenza di un dominio all'interno del file.
      *
@@ -80,11 +174,46 @@ public class BloomBlocker {
      *         ff se non è nel set co probabilità 1
      */
     public boolean checkDomain(String domain) {
-        return set.contains(domain);
+        return filter.contains(domain);
+    }
+
+    /**
+     * Verifica la presenza di un dominio a partire dalla sua chiave precalcolata,
+     *  senza ricalcolarne l'hash.
+     * La stessa chiave può essere verificata su più BloomBlocker.
+     *
+     * @param key la chiave del dominio
+     * @return tt se è nel set con probabilità (1 - pf)
+     *         ff se non è nel set co probabilità 1
+     * @see #hashDomain(String)
+     */
+    public boolean checkDomain(HashedKey key) {
+        return filter.contains(key);
+    }
+
+    /**
+     * Rimuove un dominio dal filtro senza ricostruirlo, se il filtro è a contatori.
+     *
+     * @param domain il dominio da rimuovere, presente nel filtro
+     * @return tt se il dominio è stato rimosso
+     * @throws UnsupportedOperationException se il filtro non supporta la rimozione
+     */
+    public boolean removeDomain(String domain) {
+        return filter.remove(domain);
+    }
+
+    /**
+     * Calcola la chiave di un dominio, verificabile su ogni BloomBlocker.
+     *
+     * @param domain il dominio
+     * @return la chiave del dominio
+     */
+    public HashedKey hashDomain(String domain) {
+        return filter.hashKey(domain);
     }
 
-    public int dimension() {
-        return set.dimension();
+    public long dimension() {
+        return filter.dimension();
     }
 
 
@@ -5,11 +5,41 @@ import java.io.Serializable;
 /**
  * Interfaccia astratta per l'implementazione di BloomFilter.
  * Espone metodi per il calcolo delle stime teoriche ottimali.
+ * Dimensioni e indici sono a 64 bit: il limite dipende dall'implementazione e
+ *  dallo schema di derivazione delle posizioni.
  *
  * @author Marco Costa
  */
 public abstract class BloomFilter implements Serializable {
     private static final double ln2 = Math.log(2);
+    /* lunghezza massima di un array allocabile dalle JVM comuni */
+    static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final ProbeScheme scheme;
+    private final IndexReduction reduction;
+
+    protected BloomFilter() {
+        this(ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO);
+    }
+
+    /**
+     * @param reduction il metodo di riduzione delle combinazioni di hash ad indici
+     */
+    protected BloomFilter(IndexReduction reduction) {
+        this(ProbeScheme.DOUBLE_HASHING, reduction);
+    }
+
+    /**
+     * @param scheme lo schema di derivazione delle posizioni dal digest
+     * @param reduction il metodo di riduzione delle combinazioni di hash ad indici
+     */
+    protected BloomFilter(ProbeScheme scheme, IndexReduction reduction) {
+        if((scheme == null) || (reduction == null))
+            throw new IllegalArgumentException("scheme e reduction non possono essere null");
+
+        this.scheme = scheme;
+        this.reduction = reduction;
+    }
 
     private static final double logbase2(double x) {
         return Math.log(x) / ln2;
@@ -34,22 +64,272 @@ public abstract class BloomFilter implements Serializable {
      * @param pf la probabilità di falso positivo in (0, 1)
      * @return il valore ottimo di M
      */
-    public static final int computeM(int n, double pf) {
+    public static final long computeM(long n, double pf) {
         /* M = (n * -log_2(pf))/(ln(2)) */
-        return new Double(Math.ceil((n * -logbase2(pf)) / ln2)).intValue();
+        return (long) Math.ceil((n * -logbase2(pf)) / ln2);
+    }
+
+    /**
+     * Calcola la probabilità di falso positivo attesa di un filtro di m bit con
+     *  k funzioni hash dopo n inserimenti.
+     *
+     * @param n il numero di inserimenti
+     * @param m il numero di bit
+     * @param k il numero di funzioni hash
+     * @return la probabilità di falso positivo attesa
+     */
+    public static final double computeP(long n, long m, int k) {
+        /* P = (1 - e^(-kn/m))^k */
+        return Math.pow(1 - Math.exp(-(double) k * n / m), k);
+    }
+
+    /**
+     * Calcola il valore di M per un filtro a blocchi di blockBits bit con K = computeK(pf).
+     * Il numero di chiavi per blocco segue una distribuzione di Poisson di media
+     *  n * blockBits / M e i blocchi più carichi alzano la probabilità di falso
+     *  positivo rispetto al filtro classico: M è aumentato a partire da computeM(n, pf)
+     *  finché la probabilità stimata non è minore o uguale a pf.
+     *
+     * @param n il numero di inserimenti previsti
+     * @param pf la probabilità di falso positivo in (0, 1)
+     * @param blockBits i bit per blocco
+     * @return il valore di M
+     * @throws IllegalArgumentException se M non è rappresentabile
+     */
+    public static final long computeM(long n, double pf, int blockBits) {
+        int k = computeK(pf);
+        long m = computeM(n, pf);
+
+        /* M cresce, quindi la media iniziale limita il carico dei blocchi da considerare */
+        double lambda = (double) n * blockBits / m;
+        double[] q = blockFalsePositive(blockBits, k, (int) Math.ceil(lambda + 20 * Math.sqrt(lambda) + 20));
+
+        while(blockedFalsePositive(n, m, blockBits, q) > pf) {
+            m += Math.max(blockBits, m >> 6); /* circa 1.5% per passo */
+            if(m > (Long.MAX_VALUE >> 8))
+                throw new IllegalArgumentException("pf non raggiungibile con blocchi di " + blockBits + " bit");
+        }
+
+        return m;
+    }
+
+    /**
+     * Probabilità di falso positivo di un filtro a blocchi di b bit, m bit totali e
+     *  n chiavi: media su Poisson(n * b / m) chiavi per blocco di q[i].
+     */
+    private static double blockedFalsePositive(long n, long m, int b, double[] q) {
+        double lambda = (double) n * b / m;
+        double p = Math.exp(-lambda); /* P(0) */
+        double fpr = 0;
+
+        for(int i = 0; i < q.length; i++) {
+            fpr += p * q[i];
+            p *= lambda / (i + 1);
+        }
+
+        return fpr;
+    }
+
+    /**
+     * q[i] = probabilità che k posizioni casuali di un blocco di b bit contenente i
+     *  chiavi siano tutte settate, E[(X/b)^k] con X i bit settati dopo ik posizioni.
+     *  La distribuzione di X è calcolata esattamente: usare (E[X]/b)^k sottostima
+     *  la probabilità per blocchi piccoli.
+     */
+    private static double[] blockFalsePositive(int b, int k, int keys) {
+        double[] q = new double[keys + 1];
+        double[] dist = new double[b + 1]; /* dist[x] = P(X = x) */
+        double[] pow = new double[b + 1];
+        dist[0] = 1;
+
+        for(int x = 0; x <= b; x++)
+            pow[x] = Math.pow((double) x / b, k);
+
+        for(int i = 0; i <= keys; i++) {
+            double sum = 0;
+            for(int x = 0; x <= b; x++)
+                sum += dist[x] * pow[x];
+            q[i] = sum;
+
+            for(int t = 0; t < k; t++) /* k nuove posizioni */
+                for(int x = b; x >= 0; x--) {
+                    double stay = dist[x] * x / b;
+                    double from = (x > 0) ? dist[x - 1] * (b - x + 1) / b : 0;
+                    dist[x] = stay + from;
+                }
+        }
+
+        return q;
+    }
+
+    /**
+     * Verifica che size sia una dimensione valida per la riduzione e lo schema del filtro.
+     *
+     * @param size la dimensione in bit
+     * @throws IllegalArgumentException se size non è positiva, non è un limite della
+     *         riduzione o supera la capacità massima dello schema
+     */
+    protected final void checkCapacity(long size) {
+        if(size <= 0)
+            throw new IllegalArgumentException("size deve essere maggiore di 0");
+        if(reduction.bound(size) != size)
+            throw new IllegalArgumentException("size non valida per la riduzione " + reduction);
+        if(size > scheme.maxCapacity())
+            throw new IllegalArgumentException("size maggiore della capacità dello schema " + scheme);
+    }
+
+    /**
+     * Restituisce il metodo di riduzione delle combinazioni di hash ad indici.
+     *
+     * @return il metodo di riduzione
+     */
+    public IndexReduction reduction() {
+        return reduction;
+    }
+
+    /**
+     * Restituisce lo schema di derivazione delle posizioni dal digest.
+     *
+     * @return lo schema di derivazione
+     */
+    public ProbeScheme scheme() {
+        return scheme;
+    }
+
+    /**
+     * Imposta a true le k posizioni associate al digest (h1, h2) di una chiave.
+     * Le posizioni sono derivate dallo schema del filtro una alla volta, senza
+     *  allocare il vettore degli indici, e ridotte a [0, capacity()) con il
+     *  metodo di riduzione del filtro.
+     *
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni
+     */
+    public void put(long h1, long h2, int k) {
+        scheme.put(this, h1, h2, k);
+    }
+
+    /**
+     * Restituisce true sse tutte le k posizioni associate al digest (h1, h2)
+     *  sono settate a true. Le posizioni successive al primo bit a false non
+     *  vengono calcolate.
+     *
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni
+     * @return tt sse forall i in k -> array[g_i] = 1
+     */
+    public boolean mightContain(long h1, long h2, int k) {
+        return scheme.mightContain(this, h1, h2, k);
+    }
+
+    /**
+     * Verifica di un lotto di len digest: result[j] vale mightContain(h1[j], h2[j], k).
+     * Le implementazioni possono riordinare gli accessi del lotto.
+     *
+     * @param h1 i 64 bit bassi dei digest
+     * @param h2 i 64 bit alti dei digest
+     * @param len il numero di digest
+     * @param k il numero di posizioni
+     * @param result la destinazione dei risultati, result[j] per il digest j
+     * @see PartitionedBloomFilter
+     */
+    public void mightContain(long[] h1, long[] h2, int len, int k, boolean[] result) {
+        for(int j = 0; j < len; j++)
+            result[j] = mightContain(h1[j], h2[j], k);
+    }
+
+    /**
+     * Rimuove la chiave del digest (h1, h2). Supportata solo dai filtri a contatori.
+     *
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni
+     * @return tt se la chiave è stata rimossa, ff se era definitivamente assente
+     * @throws UnsupportedOperationException se il filtro non supporta la rimozione
+     * @see CountingBloomFilter
+     */
+    public boolean remove(long h1, long h2, int k) {
+        throw new UnsupportedOperationException("La struttura non supporta la rimozione");
+    }
+
+    /**
+     * Imposta a true l'indice index, già ridotto a [0, capacity()) dallo schema
+     *  di derivazione. Le implementazioni del package possono omettere la verifica.
+     *
+     * @param index l'indice
+     */
+    void setUnchecked(long index) {
+        set(index);
+    }
+
+    /**
+     * Restituisce true sse l'indice index, già ridotto a [0, capacity()) dallo
+     *  schema di derivazione, è settato a true. Le implementazioni del package
+     *  possono omettere la verifica.
+     *
+     * @param index l'indice
+     * @return tt sse array[index] = 1
+     */
+    boolean isSetUnchecked(long index) {
+        return isSet(index);
+    }
+
+    /**
+     * Annulla un inserimento sull'indice index, già ridotto a [0, capacity()).
+     *  Implementato dai filtri a contatori.
+     *
+     * @param index l'indice
+     */
+    void clearUnchecked(long index) {
+        throw new UnsupportedOperationException("La struttura non supporta la rimozione");
+    }
+
+    /**
+     * Imposta a true tutti gli indici a 64 bit in index del Bloom Filter.
+     * Se uno degli indici contenuti in index non è valido l'operazione
+     *  non viene eseguita.
+     *
+     * @param index il vettore di indici
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public void set(long[] index) throws IndexOutOfBoundsException {
+        long bound = capacity();
+        for(long i : index)
+            if((i < 0) || (i >= bound))
+                throw new IndexOutOfBoundsException("Indice " + i + " non valido");
+        for(long i : index)
+            setUnchecked(i);
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici a 64 bit in index sono settati a true.
+     *
+     * @param index il vettore di indici
+     * @return tt sse forall i in index -> array[i] = 1
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public boolean isSet(long[] index) throws IndexOutOfBoundsException {
+        for(long i : index)
+            if(!isSet(i))
+                return false;
+
+        return true;
     }
 
     /* metodi per il settaggio di bit a 1 */
-    abstract public void set(int index);
+    abstract public void set(long index);
     abstract public void set(int[] index);
 
     /* metodi per la verifica di bit con valore 1 */
-    abstract public boolean isSet(int index);
+    abstract public boolean isSet(long index);
     abstract public boolean isSet(int[] index);
 
     /* metodi per la gestione dell'array */
     abstract public void clear();
-    abstract public int length();
-    abstract public int size();
+    abstract public long length();
+    abstract public long capacity();
+    abstract public long size();
     abstract public boolean isEmpty();
 }
@@ -0,0 +1,63 @@
+package bloom;
+
+import java.io.Serializable;
+
+/**
+ * Costruzione del BloomFilter di un BloomSet a partire dal numero di elementi
+ *  previsti e dalla probabilità di falso positivo richiesta.
+ * Ogni implementazione dimensiona il filtro secondo la propria struttura.
+ * Le factory sono serializzabili, per cui un set che le registra, come
+ *  ScalableBloomSet, resta serializzabile se lo sono i parametri catturati.
+ *
+ * @see BloomSet#BloomSet(long, double, BloomFilterFactory)
+ * @author Marco Costa
+ */
+@FunctionalInterface
+public interface BloomFilterFactory extends Serializable {
+
+    /**
+     * Crea un filtro vuoto per n elementi con probabilità di falso positivo pf.
+     *
+     * @param n il numero di inserimenti previsti
+     * @param pf la probabilità di falso positivo in (0, 1)
+     * @return il filtro
+     */
+    BloomFilter create(long n, double pf);
+
+    /**
+     * Filtro LongArrayBloomFilter di computeM(n, pf) bit, arrotondati secondo reduction.
+     *  È il filtro di default di BloomSet.
+     *
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione delle posizioni
+     * @return la factory
+     */
+    static BloomFilterFactory longArray(ProbeScheme scheme, IndexReduction reduction) {
+        if((scheme == null) || (reduction == null))
+            throw new IllegalArgumentException("scheme e reduction non possono essere null");
+
+        return (n, pf) -> new LongArrayBloomFilter(reduction.bound(BloomFilter.computeM(n, pf)), scheme, reduction);
+    }
+
+    /**
+     * Filtro BitSetBloomFilter di computeM(n, pf) bit, arrotondati secondo reduction.
+     *  La dimensione è limitata a Integer.MAX_VALUE bit.
+     *
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione delle posizioni
+     * @return la factory
+     * @throws IllegalArgumentException alla creazione, se il filtro supera Integer.MAX_VALUE bit
+     */
+    static BloomFilterFactory bitSet(ProbeScheme scheme, IndexReduction reduction) {
+        if((scheme == null) || (reduction == null))
+            throw new IllegalArgumentException("scheme e reduction non possono essere null");
+
+        return (n, pf) -> {
+            long m = reduction.bound(BloomFilter.computeM(n, pf));
+            if(m > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("BitSetBloomFilter è limitato a Integer.MAX_VALUE bit");
+
+            return new BitSetBloomFilter((int) m, scheme, reduction);
+        };
+    }
+}
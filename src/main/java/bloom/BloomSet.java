@@ -1,32 +1,77 @@
 package bloom;
 
+import hash.BatchHash;
 import hash.BloomHash;
+import hash.Digest;
 import hash.HashFactory;
+import hash.HashFamily;
+import hash.HashedKey;
+import hash.KeyEncoder;
+import hash.KeyEncoders;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Optimal Bloom Set.
  * Set di elementi di tipo E realizzato mediante Bloom Filter e
  *  calcolo di stime teoriche ottimali.
+ * Gli elementi sono descritti dall'encoder fornito alla costruzione oppure, in sua
+ *  assenza, da quello associato al loro tipo; la serializzazione è utilizzata solo
+ *  per i tipi privi di encoder.
+ * La famiglia e il seme della funzione hash sono registrati nel filtro e la
+ *  funzione è ricostruita a partire da essi dopo la deserializzazione.
+ * Un set costruito su MappedBloomFilter registra i propri parametri nel file del
+ *  filtro ed è riapribile con open().
+ * Un set costruito su ConcurrentBloomFilter è utilizzabile da più thread senza lock:
+ *  gli inserimenti sono contati con un LongAdder.
  *
- * @param <E> il tipo dell'elemento, deve essere Serializzabile
+ * @param <E> il tipo dell'elemento
+ * @see hash.KeyEncoders
  * @author Marco Costa
  */
-public class BloomSet<E extends Serializable> extends AbstractSet<E>
-        implements Set<E>, Cloneable, Serializable {
+public class BloomSet<E> extends AbstractSet<E>
+        implements Set<E>, Cloneable, Serializable, Closeable {
     private final BloomFilter array;
 
     private final int k;
-    private final int m;
+    private final long m;
 
-    private int n = 0;
+    private long n = 0;
+    /* contatore a strisce degli inserimenti per i filtri concorrenti, null altrimenti */
+    private final LongAdder adder;
 
-    private final BloomHash hash = HashFactory.getHashFunction();
+    private final HashFamily family;
+    private final long seed;
+
+    private transient BloomHash hash;
+    private final KeyEncoder<? super E> encoder;
+
+    /* chiavi primitive codificate dall'encoder come hashLong, hashInt e hash(msb, lsb) */
+    private final boolean longKeys;
+    private final boolean intKeys;
+    private final boolean uuidKeys;
+
+    /* chiavi per blocco nelle verifiche a lotti */
+    private static final int BATCH_SIZE = 4096;
+
+    /* parametri del set nei metadati di MappedBloomFilter */
+    private static final long MAPPED_TAG = 0x7465536d6f6f6c42L; /* "BloomSet" */
+    private static final int TAG_SLOT = 0;
+    private static final int K_SLOT = 1;
+    private static final int N_SLOT = 2;
+    private static final int FAMILY_SLOT = 3;
+    private static final int SEED_SLOT = 4;
 
     /**
      * Creazione di un nuovo Bloom Filter con numero di elementi n e probabilità
@@ -37,16 +82,248 @@ public class BloomSet<E extends Serializable> extends AbstractSet<E>
      * @param n ordine del numero di elementi dell'insieme
      * @param pf probabilità di falso positivo richiesta in (0, 1)
      */
-    public BloomSet(int n, double pf) {
+    public BloomSet(long n, double pf) {
+        this(n, pf, KeyEncoders.BY_TYPE);
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Filter con numero di elementi n e probabilità
+     *  di falso positivo pf, i cui elementi sono descritti da encoder.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param encoder l'encoder degli elementi
+     */
+    public BloomSet(long n, double pf, KeyEncoder<? super E> encoder) {
+        this(n, pf, encoder, IndexReduction.MODULO);
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Filter con numero di elementi n e probabilità
+     *  di falso positivo pf, le cui posizioni sono ridotte con il metodo reduction.
+     * Con IndexReduction.MASK la dimensione è arrotondata alla potenza di due successiva.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param reduction il metodo di riduzione delle posizioni
+     */
+    public BloomSet(long n, double pf, IndexReduction reduction) {
+        this(n, pf, KeyEncoders.BY_TYPE, reduction);
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Filter con numero di elementi n e probabilità
+     *  di falso positivo pf, i cui elementi sono descritti da encoder e le cui
+     *  posizioni sono ridotte con il metodo reduction.
+     * Le posizioni sono derivate con DOUBLE_HASHING, oppure con ENHANCED_DOUBLE_HASHING
+     *  se il filtro supera la capacità di DOUBLE_HASHING.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param encoder l'encoder degli elementi
+     * @param reduction il metodo di riduzione delle posizioni
+     */
+    public BloomSet(long n, double pf, KeyEncoder<? super E> encoder, IndexReduction reduction) {
+        this(n, pf, encoder, defaultScheme(n, pf, reduction), reduction);
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Filter con numero di elementi n e probabilità
+     *  di falso positivo pf, le cui posizioni sono derivate con lo schema scheme e
+     *  ridotte con il metodo reduction.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione delle posizioni
+     */
+    public BloomSet(long n, double pf, ProbeScheme scheme, IndexReduction reduction) {
+        this(n, pf, KeyEncoders.BY_TYPE, scheme, reduction);
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Filter con numero di elementi n e probabilità
+     *  di falso positivo pf, i cui elementi sono descritti da encoder e le cui
+     *  posizioni sono derivate con lo schema scheme e ridotte con il metodo reduction.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param encoder l'encoder degli elementi
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione delle posizioni
+     */
+    public BloomSet(long n, double pf, KeyEncoder<? super E> encoder,
+                    ProbeScheme scheme, IndexReduction reduction) {
+        this(n, pf, encoder, scheme, reduction, HashFactory.getHashFunction());
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Filter con numero di elementi n e probabilità
+     *  di falso positivo pf, le cui posizioni sono calcolate mediante la funzione hash.
+     * Lo schema di derivazione è scelto come in BloomSet(long, double, KeyEncoder, IndexReduction).
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param hash la funzione hash
+     * @see HashFactory#getHashFunction(HashFamily, long)
+     */
+    public BloomSet(long n, double pf, BloomHash hash) {
+        this(n, pf, KeyEncoders.BY_TYPE, defaultScheme(n, pf, IndexReduction.MODULO), IndexReduction.MODULO, hash);
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Filter con numero di elementi n e probabilità
+     *  di falso positivo pf, i cui elementi sono descritti da encoder e le cui
+     *  posizioni sono calcolate mediante la funzione hash, derivate con lo schema
+     *  scheme e ridotte con il metodo reduction.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param encoder l'encoder degli elementi
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione delle posizioni
+     * @param hash la funzione hash
+     */
+    public BloomSet(long n, double pf, KeyEncoder<? super E> encoder,
+                    ProbeScheme scheme, IndexReduction reduction, BloomHash hash) {
+        this(n, pf, encoder, hash, BloomFilterFactory.longArray(scheme, reduction));
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Set con numero di elementi n e probabilità
+     *  di falso positivo pf, il cui filtro è costruito da factory.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param factory la factory del filtro, ad esempio BlockedBloomFilter.factory()
+     */
+    public BloomSet(long n, double pf, BloomFilterFactory factory) {
+        this(n, pf, KeyEncoders.BY_TYPE, HashFactory.getHashFunction(), factory);
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Set con numero di elementi n e probabilità
+     *  di falso positivo pf, i cui elementi sono descritti da encoder, le cui
+     *  posizioni sono calcolate mediante la funzione hash e il cui filtro è
+     *  costruito da factory.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash
+     * @param factory la factory del filtro
+     */
+    public BloomSet(long n, double pf, KeyEncoder<? super E> encoder, BloomHash hash, BloomFilterFactory factory) {
         if((pf <= 0) || (pf >= 1))
             throw new IllegalArgumentException("pf deve essere compreso tra 0 e 1");
         if(n <= 0)
             throw new IllegalArgumentException("n deve essere maggiore di 0");
+        if(encoder == null)
+            throw new IllegalArgumentException("encoder non può essere null");
+        if(hash == null)
+            throw new IllegalArgumentException("hash non può essere null");
+        if(factory == null)
+            throw new IllegalArgumentException("factory non può essere null");
+
+        this.encoder = encoder;
+        longKeys = KeyEncoders.encodesAs(encoder, Long.class, KeyEncoders.LONG);
+        intKeys = KeyEncoders.encodesAs(encoder, Integer.class, KeyEncoders.INTEGER);
+        uuidKeys = KeyEncoders.encodesAs(encoder, UUID.class, KeyEncoders.UUID);
+        this.hash = hash;
+        family = hash.family();
+        seed = hash.seed();
 
         k = BloomFilter.computeK(pf);
-        m = BloomFilter.computeM(n, pf);
+        array = factory.create(n, pf);
+        m = array.capacity();
+        adder = (array instanceof ConcurrentBloomFilter) ? new LongAdder() : null;
 
-        array = new BitSetBloomFilter(m);
+        if(array instanceof MappedBloomFilter)
+            writeMetadata((MappedBloomFilter) array);
+    }
+
+    /**
+     * Schema di default: DOUBLE_HASHING, lo schema originale, finché la dimensione
+     *  effettiva reduction.bound(computeM(n, pf)) rientra nella sua capacità,
+     *  ENHANCED_DOUBLE_HASHING oltre.
+     */
+    private static ProbeScheme defaultScheme(long n, double pf, IndexReduction reduction) {
+        if(reduction.bound(BloomFilter.computeM(n, pf)) > ProbeScheme.DOUBLE_HASHING.maxCapacity())
+            return ProbeScheme.ENHANCED_DOUBLE_HASHING;
+
+        return ProbeScheme.DOUBLE_HASHING;
+    }
+
+    private BloomSet(MappedBloomFilter array, KeyEncoder<? super E> encoder) throws IOException {
+        HashFamily[] families = HashFamily.values();
+        int f = (int) array.metadata(FAMILY_SLOT);
+        long k = array.metadata(K_SLOT);
+        long n = array.metadata(N_SLOT);
+
+        if((array.metadata(TAG_SLOT) != MAPPED_TAG) || (f < 0) || (f >= families.length)
+                || (k <= 0) || (k > Integer.MAX_VALUE) || (n < 0))
+            throw new IOException("il file " + array.file() + " non contiene un BloomSet");
+
+        this.array = array;
+        this.encoder = encoder;
+        longKeys = KeyEncoders.encodesAs(encoder, Long.class, KeyEncoders.LONG);
+        intKeys = KeyEncoders.encodesAs(encoder, Integer.class, KeyEncoders.INTEGER);
+        uuidKeys = KeyEncoders.encodesAs(encoder, UUID.class, KeyEncoders.UUID);
+        this.k = (int) k;
+        this.n = n;
+        adder = null;
+        m = array.capacity();
+        family = families[f];
+        seed = array.metadata(SEED_SLOT);
+        hash = HashFactory.getHashFunction(family, seed);
+    }
+
+    /**
+     * Riapre un BloomSet costruito su MappedBloomFilter, senza rileggerne né
+     *  ricostruirne il filtro. Il contenuto è quello dell'ultimo checkpoint().
+     * La funzione hash è ricostruita dai parametri registrati nel file, l'encoder
+     *  deve essere lo stesso utilizzato per la costruzione.
+     *
+     * @param file il file del filtro
+     * @param encoder l'encoder degli elementi
+     * @param <E> il tipo dell'elemento
+     * @return il set
+     * @throws IOException se il file non esiste o non contiene un BloomSet
+     */
+    public static <E> BloomSet<E> open(Path file, KeyEncoder<? super E> encoder) throws IOException {
+        if(encoder == null)
+            throw new IllegalArgumentException("encoder non può essere null");
+
+        MappedBloomFilter filter = MappedBloomFilter.open(file);
+        try {
+            return new BloomSet<>(filter, encoder);
+        }
+        catch (IOException | RuntimeException ex) {
+            filter.close();
+            throw ex;
+        }
+    }
+
+    private void writeMetadata(MappedBloomFilter filter) {
+        filter.metadata(TAG_SLOT, MAPPED_TAG);
+        filter.metadata(K_SLOT, k);
+        filter.metadata(N_SLOT, count());
+        filter.metadata(FAMILY_SLOT, family.ordinal());
+        filter.metadata(SEED_SLOT, seed);
+    }
+
+    /**
+     * Forza su disco il contenuto del set, se costruito su MappedBloomFilter.
+     *  Per gli altri filtri non ha effetto.
+     *
+     * @see MappedBloomFilter#checkpoint()
+     */
+    public void checkpoint() {
+        if(array instanceof MappedBloomFilter) {
+            MappedBloomFilter filter = (MappedBloomFilter) array;
+            writeMetadata(filter);
+            filter.checkpoint();
+        }
     }
 
     /**
@@ -57,11 +334,90 @@ public class BloomSet<E extends Serializable> extends AbstractSet<E>
      */
     @Override
     public boolean add(E e) {
-        array.set(hash.hashObject(e, k, m));
-        n++;
+        Digest d = hash.digest(e, encoder);
+        array.put(d.h1(), d.h2(), k);
+        added();
+        return true;
+    }
+
+    /**
+     * Aggiunta di un elemento al Set a partire dalla sua chiave precalcolata.
+     *
+     * @param key la chiave dell'elemento
+     * @return tt
+     * @throws IllegalArgumentException se la chiave è stata calcolata con una
+     *         funzione hash o un encoder diversi da quelli del set
+     * @see #hashKey(Object)
+     */
+    public boolean add(HashedKey key) {
+        checkKey(key);
+        array.put(key.h1(), key.h2(), k);
+        added();
+        return true;
+    }
+
+    /**
+     * Aggiunta di una chiave long al Set, senza boxing.
+     * Equivale ad add(Long) con l'encoder di default o KeyEncoders.LONG.
+     *
+     * @param key la chiave
+     * @return tt
+     * @throws IllegalStateException se l'encoder del set non codifica i Long come KeyEncoders.LONG
+     */
+    public boolean addLong(long key) {
+        checkEncoder(longKeys, "Long");
+        Digest d = hash.hashLong(key);
+        array.put(d.h1(), d.h2(), k);
+        added();
+        return true;
+    }
+
+    /**
+     * Aggiunta di una chiave int al Set, senza boxing.
+     * Equivale ad add(Integer) con l'encoder di default o KeyEncoders.INTEGER.
+     *
+     * @param key la chiave
+     * @return tt
+     * @throws IllegalStateException se l'encoder del set non codifica gli Integer come KeyEncoders.INTEGER
+     */
+    public boolean addInt(int key) {
+        checkEncoder(intKeys, "Integer");
+        Digest d = hash.hashInt(key);
+        array.put(d.h1(), d.h2(), k);
+        added();
+        return true;
+    }
+
+    /**
+     * Aggiunta di una chiave di 128 bit al Set, ad esempio un UUID.
+     * Equivale ad add(UUID) con l'encoder di default o KeyEncoders.UUID.
+     *
+     * @param msb i 64 bit più significativi
+     * @param lsb i 64 bit meno significativi
+     * @return tt
+     * @throws IllegalStateException se l'encoder del set non codifica gli UUID come KeyEncoders.UUID
+     */
+    public boolean addUuid(long msb, long lsb) {
+        checkEncoder(uuidKeys, "UUID");
+        Digest d = hash.hash(msb, lsb);
+        array.put(d.h1(), d.h2(), k);
+        added();
         return true;
     }
 
+    private void checkEncoder(boolean compatible, String type) {
+        if(!compatible)
+            throw new IllegalStateException("l'encoder del set non codifica le chiavi " + type
+                    + " come KeyEncoders." + type.toUpperCase());
+    }
+
+    private void added() {
+        if(adder != null)
+            adder.increment();
+        else
+            n++;
+    }
+
     /**
      * Aggiunta di una collezione di elementi al Set.
      *
@@ -83,10 +439,123 @@ public class BloomSet<E extends Serializable> extends AbstractSet<E>
      * @param o l'elemento da verificare
      * @return true se l'elemento è possibilmente nel set,
      *         false se l'elemento è definitivamente non nel set
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean contains(Object o) {
-        return array.isSet(hash.hashObject(o, k, m));
+        if(o instanceof HashedKey)
+            return contains((HashedKey) o);
+
+        Digest d = hash.digest((E) o, encoder);
+        return array.mightContain(d.h1(), d.h2(), k);
+    }
+
+    /**
+     * Restituisce true se l'elemento della chiave precalcolata è possibilmente
+     *  nel set, false se è definitivamente non nel set.
+     *
+     * @param key la chiave dell'elemento
+     * @return true se l'elemento è possibilmente nel set,
+     *         false se l'elemento è definitivamente non nel set
+     * @throws IllegalArgumentException se la chiave è stata calcolata con una
+     *         funzione hash o un encoder diversi da quelli del set
+     */
+    public boolean contains(HashedKey key) {
+        checkKey(key);
+        return array.mightContain(key.h1(), key.h2(), k);
+    }
+
+    /**
+     * Restituisce true se la chiave long è possibilmente nel set, senza boxing.
+     *
+     * @param key la chiave
+     * @return true se la chiave è possibilmente nel set,
+     *         false se la chiave è definitivamente non nel set
+     * @throws IllegalStateException se l'encoder del set non codifica i Long come KeyEncoders.LONG
+     */
+    public boolean containsLong(long key) {
+        checkEncoder(longKeys, "Long");
+        Digest d = hash.hashLong(key);
+        return array.mightContain(d.h1(), d.h2(), k);
+    }
+
+    /**
+     * Verifica di un lotto di chiavi long: result[i] vale containsLong(keys[i]).
+     * Le chiavi sono verificate a blocchi di BATCH_SIZE, per cui i filtri che
+     *  riordinano gli accessi del lotto, come PartitionedBloomFilter, visitano
+     *  la memoria una partizione alla volta.
+     *
+     * @param keys le chiavi
+     * @param result la destinazione dei risultati, lunga almeno keys.length
+     * @throws IllegalStateException se l'encoder del set non codifica i Long come KeyEncoders.LONG
+     * @see BloomFilter#mightContain(long[], long[], int, int, boolean[])
+     */
+    public void containsLongs(long[] keys, boolean[] result) {
+        checkEncoder(longKeys, "Long");
+        if(result.length < keys.length)
+            throw new IllegalArgumentException("result deve contenere almeno " + keys.length + " elementi");
+
+        int batch = Math.min(BATCH_SIZE, keys.length);
+        long[] h1 = new long[batch];
+        long[] h2 = new long[batch];
+        boolean[] found = new boolean[batch];
+
+        for(int off = 0; off < keys.length; off += batch) {
+            int len = Math.min(batch, keys.length - off);
+            BatchHash.digestLongs(hash, keys, off, len, h1, h2);
+            array.mightContain(h1, h2, len, k, found);
+            System.arraycopy(found, 0, result, off, len);
+        }
+    }
+
+    /**
+     * Restituisce true se la chiave int è possibilmente nel set, senza boxing.
+     *
+     * @param key la chiave
+     * @return true se la chiave è possibilmente nel set,
+     *         false se la chiave è definitivamente non nel set
+     * @throws IllegalStateException se l'encoder del set non codifica gli Integer come KeyEncoders.INTEGER
+     */
+    public boolean containsInt(int key) {
+        checkEncoder(intKeys, "Integer");
+        Digest d = hash.hashInt(key);
+        return array.mightContain(d.h1(), d.h2(), k);
+    }
+
+    /**
+     * Restituisce true se la chiave di 128 bit è possibilmente nel set.
+     *
+     * @param msb i 64 bit più significativi
+     * @param lsb i 64 bit meno significativi
+     * @return true se la chiave è possibilmente nel set,
+     *         false se la chiave è definitivamente non nel set
+     * @throws IllegalStateException se l'encoder del set non codifica gli UUID come KeyEncoders.UUID
+     */
+    public boolean containsUuid(long msb, long lsb) {
+        checkEncoder(uuidKeys, "UUID");
+        Digest d = hash.hash(msb, lsb);
+        return array.mightContain(d.h1(), d.h2(), k);
+    }
+
+    /**
+     * Calcola la chiave di un elemento con la funzione hash e l'encoder del set.
+     * La chiave può essere utilizzata con ogni set costruito con la stessa
+     *  funzione e lo stesso encoder, indipendentemente da n e pf.
+     *
+     * @param e l'elemento
+     * @return la chiave dell'elemento
+     */
+    public HashedKey hashKey(E e) {
+        return HashedKey.of(hash, e, encoder);
+    }
+
+    private void checkKey(HashedKey key) {
+        if((key.family() != family) || (key.seed() != seed))
+            throw new IllegalArgumentException("chiave calcolata con " + key.family() + "(" + key.seed()
+                    + "), il set utilizza " + family + "(" + seed + ")");
+        if(!key.isEncodedWith(encoder))
+            throw new IllegalArgumentException("chiave calcolata con un encoder diverso da quello del set");
     }
 
     /**
@@ -118,25 +587,49 @@ public class BloomSet<E extends Serializable> extends AbstractSet<E>
     }
 
     /**
-     * Il BloomFilter non supporta rimozione.
-     * Lancia una UnsupportedOperationException.
+     * Rimozione di un elemento dal Set, supportata solo dai filtri a contatori.
+     * L'elemento deve essere stato aggiunto: la rimozione di un elemento mai
+     *  aggiunto che risulta presente per falso positivo introduce falsi negativi.
      *
-     * @param o
-     * @return
+     * @param o l'elemento da rimuovere
+     * @return tt se l'elemento era possibilmente nel set ed è stato rimosso
+     * @throws UnsupportedOperationException se il filtro non supporta la rimozione
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
+     * @see CountingBloomFilter
      */
     @Override
+    @SuppressWarnings("unchecked")
     public boolean remove(Object o) {
-        throw new UnsupportedOperationException("La struttura non supporta la rimozione");
+        Digest d = hash.digest((E) o, encoder);
+        if(!array.remove(d.h1(), d.h2(), k))
+            return false;
+
+        if(adder != null)
+            adder.decrement();
+        else
+            n--;
+        return true;
     }
 
     /**
-     * Restituisce il numero di elementi aggiunti al Set.
+     * Restituisce il numero di elementi aggiunti al Set, Integer.MAX_VALUE se
+     *  maggiore.
      *
      * @return
+     * @see #count()
      */
     @Override
     public int size() {
-        return n;
+        return (int) Math.min(count(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Restituisce il numero di elementi aggiunti al Set.
+     *
+     * @return il numero di elementi aggiunti
+     */
+    public long count() {
+        return (adder != null) ? adder.sum() : n;
     }
 
     /**
@@ -162,8 +655,61 @@ public class BloomSet<E extends Serializable> extends AbstractSet<E>
      *
      * @return
      */
-    public int dimension() {
+    public long dimension() {
         return array.size();
     }
 
+    /**
+     * Restituisce la probabilità di falso positivo attesa con gli elementi aggiunti
+     *  finora, che supera pf se il set contiene più degli n elementi previsti.
+     *
+     * @return la probabilità di falso positivo attesa
+     * @see ScalableBloomSet
+     */
+    public double expectedFalsePositiveRate() {
+        return BloomFilter.computeP(count(), m, k);
+    }
+
+    /**
+     * Restituisce la famiglia della funzione hash del filtro.
+     *
+     * @return la famiglia
+     */
+    public HashFamily family() {
+        return family;
+    }
+
+    /**
+     * Restituisce il seme della funzione hash del filtro.
+     *
+     * @return il seme
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Rilascia le risorse del filtro, se ne possiede (ad esempio memoria diretta o
+     *  file mappati). Per i filtri nello heap non ha effetto.
+     */
+    @Override
+    public void close() {
+        if((array instanceof MappedBloomFilter) && !((MappedBloomFilter) array).isClosed())
+            writeMetadata((MappedBloomFilter) array);
+
+        if(array instanceof Closeable) {
+            try {
+                ((Closeable) array).close();
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = HashFactory.getHashFunction(family, seed);
+    }
+
 }
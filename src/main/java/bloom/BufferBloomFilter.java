@@ -0,0 +1,278 @@
+package bloom;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Implementazione astratta dell'interfaccia BloomFilter con i bit fuori dallo heap,
+ *  in ByteBuffer diretti o mappati di al più 1 GB ciascuno.
+ * I bit sono raggruppati in parole da 64 bit little-endian. La memoria è rilasciata
+ *  esplicitamente con close(), dopo la quale ogni operazione lancia IllegalStateException.
+ *
+ * @see OffHeapBloomFilter
+ * @author Marco Costa
+ */
+public abstract class BufferBloomFilter extends BloomFilter implements Closeable {
+    /* byte per buffer: 2^30 */
+    static final int CHUNK_SHIFT = 30;
+    static final int CHUNK_BYTES = 1 << CHUNK_SHIFT;
+
+    private final long size;
+    private transient ByteBuffer[] chunks;
+    private transient boolean closed;
+
+    /**
+     * @param size la dimensione in bit
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione, MASK richiede size potenza di due
+     */
+    protected BufferBloomFilter(long size, ProbeScheme scheme, IndexReduction reduction) {
+        super(scheme, reduction);
+        checkCapacity(size);
+        if((((size + 63) >>> 6) << 3 >>> CHUNK_SHIFT) >= MAX_ARRAY_LENGTH)
+            throw new IllegalArgumentException("size troppo grande");
+
+        this.size = size;
+    }
+
+    /**
+     * Restituisce il numero di byte occupati dalle parole della struttura.
+     *
+     * @return i byte delle parole
+     */
+    protected final long byteSize() {
+        return ((size + 63L) >>> 6) << 3;
+    }
+
+    /**
+     * Associa alla struttura i buffer che ne contengono le parole: tutti di
+     *  CHUNK_BYTES byte tranne l'ultimo, per un totale di byteSize() byte.
+     *
+     * @param chunks i buffer, little-endian
+     */
+    protected final void attach(ByteBuffer[] chunks) {
+        this.chunks = chunks;
+        closed = false;
+    }
+
+    /**
+     * Rilascia i buffer della struttura.
+     *
+     * @param chunks i buffer associati con attach()
+     */
+    protected abstract void release(ByteBuffer[] chunks);
+
+    /**
+     * Rilascia la memoria della struttura. Le invocazioni successive non hanno effetto.
+     */
+    @Override
+    public void close() {
+        if(closed)
+            return;
+
+        closed = true;
+        ByteBuffer[] released = chunks;
+        chunks = new ByteBuffer[0];
+        if(released != null)
+            release(released);
+    }
+
+    /**
+     * Restituisce true se la memoria della struttura è stata rilasciata.
+     *
+     * @return tt sse close() è stato invocato
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    protected final void ensureOpen() {
+        if(closed)
+            throw new IllegalStateException("il filtro è stato chiuso");
+    }
+
+    /**
+     * Restituisce i buffer della struttura, per le sottoclassi.
+     *
+     * @return i buffer
+     */
+    protected final ByteBuffer[] chunks() {
+        ensureOpen();
+        return chunks;
+    }
+
+    long getWord(long i) {
+        long offset = i << 3;
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) offset & (CHUNK_BYTES - 1));
+    }
+
+    void putWord(long i, long word) {
+        long offset = i << 3;
+        chunks[(int) (offset >>> CHUNK_SHIFT)].putLong((int) offset & (CHUNK_BYTES - 1), word);
+    }
+
+    long wordCount() {
+        return byteSize() >>> 3;
+    }
+
+    @Override
+    public void put(long h1, long h2, int k) {
+        ensureOpen();
+        super.put(h1, h2, k);
+    }
+
+    @Override
+    public boolean mightContain(long h1, long h2, int k) {
+        ensureOpen();
+        return super.mightContain(h1, h2, k);
+    }
+
+    @Override
+    void setUnchecked(long index) {
+        long w = index >>> 6;
+        putWord(w, getWord(w) | (1L << index));
+    }
+
+    @Override
+    boolean isSetUnchecked(long index) {
+        return (getWord(index >>> 6) & (1L << index)) != 0;
+    }
+
+    private void checkPosition(long pos) throws IndexOutOfBoundsException {
+        ensureOpen();
+        if((pos < 0) || (pos >= size))
+            throw new IndexOutOfBoundsException("Indice " + pos + " non valido");
+    }
+
+    /**
+     * Imposta a true l'indice index del Bloom Filter.
+     *
+     * @param index l'indice
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public void set(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        setUnchecked(index);
+    }
+
+    /**
+     * Imposta a true tutti gli indici in index del Bloom Filter.
+     * Se uno degli indici contenuti in index non è valido l'operazione
+     *  non viene eseguita.
+     *
+     * @param index il vettore di indici
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public void set(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            checkPosition(i);
+        for(int i : index)
+            setUnchecked(i);
+    }
+
+    /**
+     * Restituisce true sse l'indice index è settato a true.
+     *
+     * @param index l'indice della struttura
+     * @return tt sse array[index] = 1
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public boolean isSet(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        return isSetUnchecked(index);
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici in index sono settati a true.
+     *
+     * @param index il vettore di indici
+     * @return tt sse forall i in index -> array[i] = 1
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public boolean isSet(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            if(!isSet(i))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Reimposta tutti i bit della struttura a false.
+     */
+    public void clear() {
+        ensureOpen();
+        byte[] zero = new byte[8192];
+
+        for(ByteBuffer chunk : chunks) {
+            ByteBuffer b = chunk.duplicate();
+            b.clear();
+            while(b.hasRemaining())
+                b.put(zero, 0, Math.min(zero.length, b.remaining()));
+        }
+    }
+
+    /**
+     * Restituisce la dimensione in bit in memoria della struttura, multipla di 64.
+     *
+     * @return la dimensione in bit in memoria
+     */
+    public long size() {
+        return byteSize() << 3;
+    }
+
+    /**
+     * Restituisce il numero di bit indirizzabili, ovvero la dimensione impostata
+     *  alla creazione.
+     *
+     * @return il numero di bit indirizzabili
+     */
+    public long capacity() {
+        return size;
+    }
+
+    /**
+     * Restituisce la dimensione logica della struttura. L'indice dell'ultimo bit più uno.
+     *
+     * @return la dimensione logica della struttura
+     */
+    public long length() {
+        ensureOpen();
+        for(long i = wordCount() - 1; i >= 0; i--) {
+            long w = getWord(i);
+            if(w != 0)
+                return (i << 6) + 64 - Long.numberOfLeadingZeros(w);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici della struttura sono settati a false.
+     *
+     * @return tt sse forall i in size -> array[i] = 0
+     */
+    public boolean isEmpty() {
+        ensureOpen();
+        for(long i = 0; i < wordCount(); i++)
+            if(getWord(i) != 0)
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Suddivide byteSize() byte in buffer di CHUNK_BYTES byte.
+     *
+     * @param bytes i byte totali
+     * @return le dimensioni dei buffer
+     */
+    static int[] chunkSizes(long bytes) {
+        int n = (int) ((bytes + CHUNK_BYTES - 1) >>> CHUNK_SHIFT);
+        int[] sizes = new int[n];
+        Arrays.fill(sizes, CHUNK_BYTES);
+        sizes[n - 1] = (int) (bytes - ((long) (n - 1) << CHUNK_SHIFT));
+        return sizes;
+    }
+}
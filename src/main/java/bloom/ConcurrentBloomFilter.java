@@ -0,0 +1,225 @@
+package bloom;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Implementazione dell'interfaccia astratta BloomFilter utilizzabile da più thread
+ *  senza lock.
+ * I bit sono impostati con operazioni atomiche sulle parole da 64 bit, eseguite solo
+ *  se la parola non contiene già i bit: con il filtro a regime la maggior parte degli
+ *  inserimenti non scrive in memoria. Le letture sono rilassate, senza barriere:
+ *  una chiave inserita da un altro thread è visibile a chi si sincronizza con esso
+ *  e comunque in tempo finito. Inserimenti e ricerche non sono mai falsi negativi
+ *  per le chiavi il cui inserimento è terminato.
+ * clear() non è atomica rispetto agli inserimenti concorrenti.
+ *
+ * BloomSet costruito su questo filtro conta gli elementi con un contatore a strisce
+ *  ed è utilizzabile da più thread.
+ *
+ * @see BloomSet#count()
+ * @author Marco Costa
+ */
+public class ConcurrentBloomFilter extends BloomFilter {
+    private final long size;
+    private transient AtomicWords words;
+
+    /**
+     * Creazione di un nuovo BloomFilter concorrente di dimensione size bit.
+     *
+     * @param size la dimensione in bit
+     */
+    public ConcurrentBloomFilter(long size) {
+        this(size, ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter concorrente di dimensione size bit, le cui
+     *  posizioni sono derivate con lo schema scheme e ridotte con il metodo reduction.
+     *
+     * @param size la dimensione in bit
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione, MASK richiede size potenza di due
+     */
+    public ConcurrentBloomFilter(long size, ProbeScheme scheme, IndexReduction reduction) {
+        super(scheme, reduction);
+        checkCapacity(size);
+        if(((size + 63) >>> 6) > MAX_ARRAY_LENGTH)
+            throw new IllegalArgumentException("size troppo grande per un array di long");
+
+        this.size = size;
+        words = new AtomicWords((int) ((size + 63) >>> 6));
+    }
+
+    /**
+     * Factory di filtri concorrenti di computeM(n, pf) bit per BloomSet.
+     *
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione delle posizioni
+     * @return la factory
+     */
+    public static BloomFilterFactory factory(ProbeScheme scheme, IndexReduction reduction) {
+        if((scheme == null) || (reduction == null))
+            throw new IllegalArgumentException("scheme e reduction non possono essere null");
+
+        return (n, pf) -> new ConcurrentBloomFilter(reduction.bound(computeM(n, pf)), scheme, reduction);
+    }
+
+    @Override
+    void setUnchecked(long index) {
+        words.or((int) (index >>> 6), 1L << index);
+    }
+
+    @Override
+    boolean isSetUnchecked(long index) {
+        return (words.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    private void checkPosition(long pos) throws IndexOutOfBoundsException {
+        if((pos < 0) || (pos >= size))
+            throw new IndexOutOfBoundsException("Indice " + pos + " non valido");
+    }
+
+    /**
+     * Imposta a true l'indice index del Bloom Filter.
+     *
+     * @param index l'indice
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public void set(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        setUnchecked(index);
+    }
+
+    /**
+     * Imposta a true tutti gli indici in index del Bloom Filter.
+     * Se uno degli indici contenuti in index non è valido l'operazione
+     *  non viene eseguita.
+     *
+     * @param index il vettore di indici
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public void set(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            checkPosition(i);
+        for(int i : index)
+            setUnchecked(i);
+    }
+
+    /**
+     * Restituisce true sse l'indice index è settato a true.
+     *
+     * @param index l'indice della struttura
+     * @return tt sse array[index] = 1
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public boolean isSet(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        return isSetUnchecked(index);
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici in index sono settati a true.
+     *
+     * @param index il vettore di indici
+     * @return tt sse forall i in index -> array[i] = 1
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public boolean isSet(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            if(!isSet(i))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Restituisce il numero di bit settati a true.
+     *
+     * @return il numero di bit a 1
+     */
+    public long cardinality() {
+        long count = 0;
+        for(int i = 0; i < words.length(); i++)
+            count += Long.bitCount(words.get(i));
+
+        return count;
+    }
+
+    /**
+     * Reimposta tutti i bit della struttura a false.
+     * L'operazione non è atomica: gli inserimenti concorrenti possono essere persi.
+     */
+    public void clear() {
+        for(int i = 0; i < words.length(); i++)
+            words.set(i, 0);
+    }
+
+    /**
+     * Restituisce la dimensione in bit in memoria della struttura, multipla di 64.
+     *
+     * @return la dimensione in bit in memoria
+     */
+    public long size() {
+        return (long) words.length() << 6;
+    }
+
+    /**
+     * Restituisce il numero di bit indirizzabili, ovvero la dimensione impostata
+     *  alla creazione.
+     *
+     * @return il numero di bit indirizzabili
+     */
+    public long capacity() {
+        return size;
+    }
+
+    /**
+     * Restituisce la dimensione logica della struttura. L'indice dell'ultimo bit più uno.
+     *
+     * @return la dimensione logica della struttura
+     */
+    public long length() {
+        for(int i = words.length() - 1; i >= 0; i--) {
+            long w = words.get(i);
+            if(w != 0)
+                return ((long) i << 6) + 64 - Long.numberOfLeadingZeros(w);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici della struttura sono settati a false.
+     *
+     * @return tt sse forall i in size -> array[i] = 0
+     */
+    public boolean isEmpty() {
+        for(int i = 0; i < words.length(); i++)
+            if(words.get(i) != 0)
+                return false;
+
+        return true;
+    }
+
+    /* le parole sono scritte esplicitamente: AtomicWords dipende dalla versione del JDK */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(words.length());
+        for(int i = 0; i < words.length(); i++)
+            out.writeLong(words.get(i));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int length = in.readInt();
+        if(length != (int) ((size + 63) >>> 6))
+            throw new InvalidObjectException("numero di parole non valido");
+
+        words = new AtomicWords(length);
+        for(int i = 0; i < length; i++)
+            words.set(i, in.readLong());
+    }
+}
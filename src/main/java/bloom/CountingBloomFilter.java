@@ -0,0 +1,287 @@
+package bloom;
+
+import java.util.Arrays;
+
+/**
+ * Implementazione dell'interfaccia astratta BloomFilter a contatori (counting Bloom
+ *  filter), che supporta la rimozione delle chiavi.
+ * Ogni posizione è un contatore di 4 o 8 bit, impacchettato in un array di long:
+ *  put() incrementa e remove() decrementa i k contatori della chiave in O(k).
+ * Un contatore che raggiunge il valore massimo resta saturo e non viene più
+ *  decrementato, per non introdurre falsi negativi; con 4 bit la saturazione
+ *  richiede 15 chiavi sulla stessa posizione, evento trascurabile per filtri
+ *  dimensionati con computeM().
+ * La memoria occupata è counterBits volte quella del filtro a bit equivalente.
+ *
+ * @see BloomFilter#remove(long, long, int)
+ * @author Marco Costa
+ */
+public class CountingBloomFilter extends BloomFilter {
+    private final long[] words;
+    private final long size;
+    private final int counterBits;
+    private final int counterShift; /* log2 dei contatori per parola */
+    private final long max; /* valore di saturazione */
+
+    /**
+     * Creazione di un nuovo BloomFilter a contatori da 4 bit di size posizioni.
+     *
+     * @param size il numero di contatori
+     */
+    public CountingBloomFilter(long size) {
+        this(size, 4);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter a contatori da counterBits bit di size posizioni.
+     *
+     * @param size il numero di contatori
+     * @param counterBits i bit per contatore, 4 o 8
+     */
+    public CountingBloomFilter(long size, int counterBits) {
+        this(size, counterBits, ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter a contatori da counterBits bit di size posizioni,
+     *  le cui posizioni sono derivate con lo schema scheme e ridotte con il metodo reduction.
+     *
+     * @param size il numero di contatori
+     * @param counterBits i bit per contatore, 4 o 8
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione, MASK richiede size potenza di due
+     */
+    public CountingBloomFilter(long size, int counterBits, ProbeScheme scheme, IndexReduction reduction) {
+        super(scheme, reduction);
+        checkCounterBits(counterBits);
+        checkCapacity(size);
+
+        this.counterBits = counterBits;
+        counterShift = 6 - Integer.numberOfTrailingZeros(counterBits);
+        max = (1L << counterBits) - 1;
+
+        long length = (size + (1L << counterShift) - 1) >>> counterShift;
+        if(length > MAX_ARRAY_LENGTH)
+            throw new IllegalArgumentException("size troppo grande per un array di long");
+
+        this.size = size;
+        words = new long[(int) length];
+    }
+
+    /**
+     * Factory di filtri a contatori di computeM(n, pf) posizioni per BloomSet.
+     *
+     * @param counterBits i bit per contatore, 4 o 8
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione delle posizioni
+     * @return la factory
+     */
+    public static BloomFilterFactory factory(int counterBits, ProbeScheme scheme, IndexReduction reduction) {
+        checkCounterBits(counterBits);
+        if((scheme == null) || (reduction == null))
+            throw new IllegalArgumentException("scheme e reduction non possono essere null");
+
+        return (n, pf) -> new CountingBloomFilter(reduction.bound(computeM(n, pf)), counterBits, scheme, reduction);
+    }
+
+    private static void checkCounterBits(int counterBits) {
+        if((counterBits != 4) && (counterBits != 8))
+            throw new IllegalArgumentException("counterBits deve essere 4 o 8");
+    }
+
+    /**
+     * Restituisce il numero di bit per contatore.
+     *
+     * @return i bit per contatore
+     */
+    public int counterBits() {
+        return counterBits;
+    }
+
+    private int word(long index) {
+        return (int) (index >>> counterShift);
+    }
+
+    private int offset(long index) {
+        return (int) (index & ((1 << counterShift) - 1)) * counterBits;
+    }
+
+    @Override
+    void setUnchecked(long index) {
+        int i = word(index);
+        int off = offset(index);
+
+        if(((words[i] >>> off) & max) != max)
+            words[i] += 1L << off;
+    }
+
+    @Override
+    boolean isSetUnchecked(long index) {
+        return ((words[word(index)] >>> offset(index)) & max) != 0;
+    }
+
+    @Override
+    void clearUnchecked(long index) {
+        int i = word(index);
+        int off = offset(index);
+        long c = (words[i] >>> off) & max;
+
+        if((c != 0) && (c != max))
+            words[i] -= 1L << off;
+    }
+
+    /**
+     * Rimuove la chiave del digest (h1, h2), decrementandone i k contatori.
+     * La chiave deve essere stata inserita: la rimozione di una chiave mai inserita
+     *  che risulta presente per falso positivo introduce falsi negativi.
+     *
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni
+     * @return tt se la chiave era possibilmente presente ed è stata rimossa,
+     *         ff se era definitivamente assente
+     */
+    @Override
+    public boolean remove(long h1, long h2, int k) {
+        if(!mightContain(h1, h2, k))
+            return false;
+
+        scheme().remove(this, h1, h2, k);
+        return true;
+    }
+
+    private void checkPosition(long pos) throws IndexOutOfBoundsException {
+        if((pos < 0) || (pos >= size))
+            throw new IndexOutOfBoundsException("Indice " + pos + " non valido");
+    }
+
+    /**
+     * Restituisce il valore del contatore index.
+     *
+     * @param index l'indice del contatore
+     * @return il valore, (2^counterBits - 1) se saturo
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public int counter(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        return (int) ((words[word(index)] >>> offset(index)) & max);
+    }
+
+    /**
+     * Incrementa il contatore index del Bloom Filter, se non saturo.
+     *
+     * @param index l'indice
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public void set(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        setUnchecked(index);
+    }
+
+    /**
+     * Incrementa tutti i contatori in index del Bloom Filter.
+     * Se uno degli indici contenuti in index non è valido l'operazione
+     *  non viene eseguita.
+     *
+     * @param index il vettore di indici
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public void set(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            checkPosition(i);
+        for(int i : index)
+            setUnchecked(i);
+    }
+
+    /**
+     * Decrementa il contatore index del Bloom Filter, se non nullo e non saturo.
+     *
+     * @param index l'indice
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public void decrement(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        clearUnchecked(index);
+    }
+
+    /**
+     * Restituisce true sse il contatore index è maggiore di zero.
+     *
+     * @param index l'indice della struttura
+     * @return tt sse array[index] > 0
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public boolean isSet(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        return isSetUnchecked(index);
+    }
+
+    /**
+     * Restituisce true sse tutti i contatori in index sono maggiori di zero.
+     *
+     * @param index il vettore di indici
+     * @return tt sse forall i in index -> array[i] > 0
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public boolean isSet(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            if(!isSet(i))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Reimposta tutti i contatori della struttura a zero.
+     */
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * Restituisce la dimensione in bit in memoria della struttura: counterBits bit
+     *  per contatore, arrotondati alla parola.
+     *
+     * @return la dimensione in bit in memoria
+     */
+    public long size() {
+        return (long) words.length << 6;
+    }
+
+    /**
+     * Restituisce il numero di contatori, ovvero la dimensione impostata alla creazione.
+     *
+     * @return il numero di contatori
+     */
+    public long capacity() {
+        return size;
+    }
+
+    /**
+     * Restituisce la dimensione logica della struttura. L'indice dell'ultimo
+     *  contatore non nullo più uno.
+     *
+     * @return la dimensione logica della struttura
+     */
+    public long length() {
+        for(int i = words.length - 1; i >= 0; i--)
+            if(words[i] != 0)
+                return ((long) i << counterShift)
+                        + (64 - Long.numberOfLeadingZeros(words[i]) + counterBits - 1) / counterBits;
+
+        return 0;
+    }
+
+    /**
+     * Restituisce true sse tutti i contatori della struttura sono nulli.
+     *
+     * @return tt sse forall i in size -> array[i] = 0
+     */
+    public boolean isEmpty() {
+        for(long w : words)
+            if(w != 0)
+                return false;
+
+        return true;
+    }
+}
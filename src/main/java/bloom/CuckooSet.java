@@ -0,0 +1,531 @@
+package bloom;
+
+import hash.BloomHash;
+import hash.Digest;
+import hash.HashFactory;
+import hash.HashFamily;
+import hash.KeyEncoder;
+import hash.KeyEncoders;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Cuckoo Set (Fan et al., 2014).
+ * Set di elementi di tipo E che memorizza per ogni elemento un fingerprint di
+ *  fingerprintBits bit in uno di due bucket da bucketSize slot: la ricerca
+ *  accede a soli due bucket indipendentemente da pf e la struttura supporta
+ *  la rimozione.
+ * Il bucket alternativo è ricavato dal solo fingerprint (partial-key cuckoo hashing)
+ *  come i2 = (h(fp) - i1) mod buckets, per cui il numero di bucket non deve
+ *  essere una potenza di 2. Se l'inserimento non trova uno slot libero entro
+ *  maxKicks spostamenti l'ultimo fingerprint spostato è conservato a parte e
+ *  la struttura non accetta altri elementi finché non si libera uno slot.
+ *
+ * Come BloomSet, add() inserisce sempre l'elemento: un elemento aggiunto più
+ *  volte occupa più slot e va rimosso altrettante volte, e al più 2 * bucketSize
+ *  copie dello stesso elemento possono essere inserite.
+ *
+ * @param <E> il tipo dell'elemento
+ * @see BloomSet
+ * @author Marco Costa
+ */
+public class CuckooSet<E> extends AbstractSet<E> implements Set<E>, Serializable {
+    public static final int DEFAULT_BUCKET_SIZE = 4;
+    public static final int DEFAULT_MAX_KICKS = 500;
+
+    private long[] table;
+
+    private final long buckets;
+    private final int bucketSize;
+    private final int fingerprintBits;
+    private final long fingerprintMask;
+    private final int maxKicks;
+    private final long capacity;
+
+    private long n = 0;
+
+    /* fingerprint rimasto senza slot dopo maxKicks spostamenti */
+    private boolean hasVictim = false;
+    private long victimIndex;
+    private long victimFingerprint;
+
+    /* stato del generatore xorshift degli spostamenti */
+    private long random = 0x9E3779B97F4A7C15L;
+
+    private final HashFamily family;
+    private final long seed;
+
+    private transient BloomHash hash;
+    private final KeyEncoder<? super E> encoder;
+    /* chiavi long codificate dall'encoder come hashLong */
+    private final boolean longKeys;
+
+    /**
+     * Creazione di un nuovo Cuckoo Set per n elementi con probabilità di falso
+     *  positivo pf e bucket da DEFAULT_BUCKET_SIZE slot.
+     *
+     * @param n il numero di elementi
+     * @param pf probabilità di falso positivo in (0, 1)
+     */
+    public CuckooSet(long n, double pf) {
+        this(n, pf, KeyEncoders.BY_TYPE, HashFactory.getHashFunction());
+    }
+
+    /**
+     * Creazione di un nuovo Cuckoo Set per n elementi con probabilità di falso
+     *  positivo pf, con encoder e funzione hash specificati.
+     *
+     * @param n il numero di elementi
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash
+     */
+    public CuckooSet(long n, double pf, KeyEncoder<? super E> encoder, BloomHash hash) {
+        this(n, DEFAULT_BUCKET_SIZE, computeFingerprintBits(pf, DEFAULT_BUCKET_SIZE),
+                DEFAULT_MAX_KICKS, encoder, hash);
+    }
+
+    /**
+     * Creazione di un nuovo Cuckoo Set per n elementi con bucket da bucketSize
+     *  slot e fingerprint di fingerprintBits bit.
+     *
+     * @param n il numero di elementi
+     * @param bucketSize il numero di slot per bucket, tra 1 e 8
+     * @param fingerprintBits il numero di bit del fingerprint, tra 2 e 32
+     */
+    public CuckooSet(long n, int bucketSize, int fingerprintBits) {
+        this(n, bucketSize, fingerprintBits, DEFAULT_MAX_KICKS, KeyEncoders.BY_TYPE, HashFactory.getHashFunction());
+    }
+
+    /**
+     * Creazione di un nuovo Cuckoo Set per n elementi con bucket da bucketSize
+     *  slot, fingerprint di fingerprintBits bit e al più maxKicks spostamenti
+     *  per inserimento.
+     * Il numero di bucket è scelto in modo che n elementi occupino al più il
+     *  fattore di carico raggiungibile con bucketSize slot per bucket.
+     *
+     * @param n il numero di elementi
+     * @param bucketSize il numero di slot per bucket, tra 1 e 8
+     * @param fingerprintBits il numero di bit del fingerprint, tra 2 e 32
+     * @param maxKicks il numero massimo di spostamenti per inserimento
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash
+     */
+    public CuckooSet(long n, int bucketSize, int fingerprintBits, int maxKicks,
+                     KeyEncoder<? super E> encoder, BloomHash hash) {
+        if(n <= 0)
+            throw new IllegalArgumentException("n deve essere maggiore di 0");
+        if((bucketSize < 1) || (bucketSize > 8))
+            throw new IllegalArgumentException("bucketSize deve essere compreso tra 1 e 8");
+        if((fingerprintBits < 2) || (fingerprintBits > 32))
+            throw new IllegalArgumentException("fingerprintBits deve essere compreso tra 2 e 32");
+        if(maxKicks < 0)
+            throw new IllegalArgumentException("maxKicks non può essere negativo");
+        if(encoder == null)
+            throw new IllegalArgumentException("encoder non può essere null");
+        if(hash == null)
+            throw new IllegalArgumentException("hash non può essere null");
+
+        long buckets = Math.max(2, (long) Math.ceil(n / (bucketSize * loadFactor(bucketSize))));
+        if(buckets > ((long) BloomFilter.MAX_ARRAY_LENGTH << 6) / ((long) bucketSize * fingerprintBits))
+            throw new IllegalArgumentException("n troppo grande per la dimensione del fingerprint");
+
+        this.buckets = buckets;
+        this.bucketSize = bucketSize;
+        this.fingerprintBits = fingerprintBits;
+        this.fingerprintMask = (1L << fingerprintBits) - 1;
+        this.maxKicks = maxKicks;
+        this.capacity = buckets * bucketSize;
+        this.encoder = encoder;
+        longKeys = KeyEncoders.encodesAs(encoder, Long.class, KeyEncoders.LONG);
+        this.hash = hash;
+        family = hash.family();
+        seed = hash.seed();
+
+        table = new long[(int) PackedSlots.words(capacity, fingerprintBits)];
+    }
+
+    /**
+     * Calcola il numero di bit del fingerprint per ottenere una probabilità di
+     *  falso positivo pf con bucket da bucketSize slot: una ricerca confronta
+     *  il fingerprint con 2 * bucketSize slot, per cui pf = 2b / 2^f.
+     *
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @param bucketSize il numero di slot per bucket
+     * @return il numero di bit del fingerprint
+     */
+    public static int computeFingerprintBits(double pf, int bucketSize) {
+        if((pf <= 0) || (pf >= 1))
+            throw new IllegalArgumentException("pf deve essere compreso tra 0 e 1");
+
+        int bits = (int) Math.ceil(Math.log(2 * bucketSize / pf) / Math.log(2));
+        if(bits > 32)
+            throw new IllegalArgumentException("pf troppo basso, il fingerprint supera 32 bit");
+
+        return Math.max(2, bits);
+    }
+
+    /* fattore di carico raggiungibile in funzione della dimensione del bucket */
+    private static double loadFactor(int bucketSize) {
+        switch(bucketSize) {
+            case 1: return 0.5;
+            case 2: return 0.84;
+            case 3: return 0.9;
+            case 4: return 0.95;
+            default: return 0.98;
+        }
+    }
+
+    private long getSlot(long slot) {
+        return PackedSlots.get(table, slot, fingerprintBits, fingerprintMask);
+    }
+
+    private void setSlot(long slot, long value) {
+        PackedSlots.set(table, slot, fingerprintBits, fingerprintMask, value);
+    }
+
+    /* fingerprint non nullo: lo 0 indica uno slot libero */
+    private long fingerprint(long h2) {
+        long fp = h2 >>> (64 - fingerprintBits);
+        return (fp == 0) ? 1 : fp;
+    }
+
+    private long index(long h1) {
+        return Long.remainderUnsigned(h1, buckets);
+    }
+
+    /* bucket alternativo: i2 = (h(fp) - i1) mod buckets, quindi alt(alt(i)) = i */
+    private long altIndex(long index, long fp) {
+        long h = Long.remainderUnsigned(fp * 0xc4ceb9fe1a85ec53L, buckets);
+        long alt = h - index;
+        return (alt < 0) ? alt + buckets : alt;
+    }
+
+    private boolean bucketContains(long index, long fp) {
+        long slot = index * bucketSize;
+        for(int i = 0; i < bucketSize; i++)
+            if(getSlot(slot + i) == fp)
+                return true;
+
+        return false;
+    }
+
+    private boolean bucketInsert(long index, long fp) {
+        long slot = index * bucketSize;
+        for(int i = 0; i < bucketSize; i++)
+            if(getSlot(slot + i) == 0) {
+                setSlot(slot + i, fp);
+                return true;
+            }
+
+        return false;
+    }
+
+    private boolean bucketDelete(long index, long fp) {
+        long slot = index * bucketSize;
+        for(int i = 0; i < bucketSize; i++)
+            if(getSlot(slot + i) == fp) {
+                setSlot(slot + i, 0);
+                return true;
+            }
+
+        return false;
+    }
+
+    private int nextRandom(int bound) {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) ((random >>> 33) % bound);
+    }
+
+    /**
+     * Inserisce il fingerprint nel bucket index o nel suo alternativo, spostando
+     *  i fingerprint già presenti per al più maxKicks volte.
+     */
+    private void insert(long index, long fp) {
+        if(bucketInsert(index, fp))
+            return;
+
+        index = altIndex(index, fp);
+        if(bucketInsert(index, fp))
+            return;
+
+        for(int kick = 0; kick < maxKicks; kick++) {
+            long slot = index * bucketSize + nextRandom(bucketSize);
+            long evicted = getSlot(slot);
+            setSlot(slot, fp);
+
+            fp = evicted;
+            index = altIndex(index, fp);
+            if(bucketInsert(index, fp))
+                return;
+        }
+
+        hasVictim = true;
+        victimIndex = index;
+        victimFingerprint = fp;
+    }
+
+    private boolean add(long h1, long h2) {
+        if(hasVictim)
+            throw new IllegalStateException("la struttura è piena");
+
+        insert(index(h1), fingerprint(h2));
+        n++;
+        return true;
+    }
+
+    private boolean mightContain(long h1, long h2) {
+        long fp = fingerprint(h2);
+        long i1 = index(h1);
+        long i2 = altIndex(i1, fp);
+
+        if(bucketContains(i1, fp) || bucketContains(i2, fp))
+            return true;
+
+        return hasVictim && (victimFingerprint == fp)
+                && ((victimIndex == i1) || (victimIndex == i2));
+    }
+
+    private boolean remove(long h1, long h2) {
+        long fp = fingerprint(h2);
+        long i1 = index(h1);
+        long i2 = altIndex(i1, fp);
+
+        if(bucketDelete(i1, fp) || bucketDelete(i2, fp)) {
+            n--;
+            if(hasVictim) { /* lo slot liberato può accogliere il fingerprint conservato */
+                hasVictim = false;
+                insert(victimIndex, victimFingerprint);
+            }
+            return true;
+        }
+
+        if(hasVictim && (victimFingerprint == fp) && ((victimIndex == i1) || (victimIndex == i2))) {
+            hasVictim = false;
+            n--;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Aggiunta di un elemento al Set.
+     *
+     * @param e l'elemento da aggiungere
+     * @return tt
+     * @throws IllegalStateException se la struttura è piena
+     */
+    @Override
+    public boolean add(E e) {
+        Digest d = hash.digest(e, encoder);
+        return add(d.h1(), d.h2());
+    }
+
+    /**
+     * Aggiunta di una chiave long al Set, senza boxing.
+     * Equivale ad add(Long) con l'encoder di default o KeyEncoders.LONG.
+     *
+     * @param key la chiave
+     * @return tt
+     * @throws IllegalStateException se la struttura è piena o se l'encoder del set
+     *         non codifica i Long come KeyEncoders.LONG
+     */
+    public boolean addLong(long key) {
+        checkLongKeys();
+        Digest d = hash.hashLong(key);
+        return add(d.h1(), d.h2());
+    }
+
+    /**
+     * Aggiunta di una collezione di elementi al Set.
+     *
+     * @param c la collezione da aggiungere
+     * @return tt
+     * @throws IllegalStateException se la struttura è piena
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        for(E item : c)
+            add(item);
+        return true;
+    }
+
+    /**
+     * Restituisce true se l'elemento è possibilmente nel set, false
+     *  se l'elemento è definitivamente non nel set.
+     * La ricerca accede a due soli bucket.
+     *
+     * @param o l'elemento da verificare
+     * @return true se l'elemento è possibilmente nel set,
+     *         false se l'elemento è definitivamente non nel set
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        Digest d = hash.digest((E) o, encoder);
+        return mightContain(d.h1(), d.h2());
+    }
+
+    /**
+     * Verifica di una chiave long, senza boxing.
+     *
+     * @param key la chiave
+     * @return true se la chiave è possibilmente nel set,
+     *         false se la chiave è definitivamente non nel set
+     * @throws IllegalStateException se l'encoder del set non codifica i Long come KeyEncoders.LONG
+     */
+    public boolean containsLong(long key) {
+        checkLongKeys();
+        Digest d = hash.hashLong(key);
+        return mightContain(d.h1(), d.h2());
+    }
+
+    /**
+     * Rimozione di un elemento dal Set.
+     * L'elemento deve essere stato aggiunto: la rimozione di un elemento mai
+     *  aggiunto che risulta presente per falso positivo introduce falsi negativi.
+     *
+     * @param o l'elemento da rimuovere
+     * @return tt se l'elemento era possibilmente nel set ed è stato rimosso
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        Digest d = hash.digest((E) o, encoder);
+        return remove(d.h1(), d.h2());
+    }
+
+    /**
+     * Rimozione di una chiave long, senza boxing.
+     *
+     * @param key la chiave
+     * @return tt se la chiave era possibilmente nel set ed è stata rimossa
+     * @throws IllegalStateException se l'encoder del set non codifica i Long come KeyEncoders.LONG
+     */
+    public boolean removeLong(long key) {
+        checkLongKeys();
+        Digest d = hash.hashLong(key);
+        return remove(d.h1(), d.h2());
+    }
+
+    private void checkLongKeys() {
+        if(!longKeys)
+            throw new IllegalStateException("l'encoder del set non codifica le chiavi Long come KeyEncoders.LONG");
+    }
+
+    /**
+     * La struttura non supporta iterazione.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @return
+     */
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException("La struttura non supporta iterazione");
+    }
+
+    /**
+     * Restituisce il numero di elementi nel Set, Integer.MAX_VALUE se maggiore.
+     *
+     * @return
+     * @see #count()
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Restituisce il numero di elementi nel Set.
+     *
+     * @return il numero di elementi
+     */
+    public long count() {
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Reimposta la struttura come vuota.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(table, 0);
+        hasVictim = false;
+        n = 0;
+    }
+
+    /**
+     * Restituisce il numero di slot, ovvero il numero massimo di elementi.
+     *
+     * @return il numero di slot
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Restituisce il fattore di carico corrente.
+     *
+     * @return il rapporto tra elementi e slot
+     */
+    public double loadFactor() {
+        return n / (double) capacity;
+    }
+
+    public int bucketSize() {
+        return bucketSize;
+    }
+
+    public int fingerprintBits() {
+        return fingerprintBits;
+    }
+
+    /**
+     * Restituisce la dimensione fisica in memoria della tabella, in bit.
+     *
+     * @return
+     */
+    public long dimension() {
+        return (long) table.length << 6;
+    }
+
+    /**
+     * Restituisce la famiglia della funzione hash.
+     *
+     * @return la famiglia
+     */
+    public HashFamily family() {
+        return family;
+    }
+
+    /**
+     * Restituisce il seme della funzione hash.
+     *
+     * @return il seme
+     */
+    public long seed() {
+        return seed;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = HashFactory.getHashFunction(family, seed);
+    }
+}
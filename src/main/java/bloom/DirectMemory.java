@@ -0,0 +1,65 @@
+package bloom;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Rilascio esplicito della memoria di un ByteBuffer diretto o mappato, senza
+ *  attendere il garbage collector: Unsafe.invokeCleaner() su Java 9+, il Cleaner
+ *  del buffer su Java 8.
+ *
+ * @author Marco Costa
+ */
+final class DirectMemory {
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        }
+        catch (ReflectiveOperationException ex) { /* Java 8: Cleaner del buffer */
+            invokeCleaner = null;
+        }
+
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private DirectMemory() {}
+
+    /**
+     * Rilascia la memoria del buffer, che non deve essere più utilizzato.
+     * Se il rilascio esplicito non è disponibile la memoria viene liberata dal
+     *  garbage collector.
+     *
+     * @param buffer il buffer diretto o mappato
+     */
+    static void free(ByteBuffer buffer) {
+        if((buffer == null) || !buffer.isDirect())
+            return;
+
+        try {
+            if(INVOKE_CLEANER != null)
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            else {
+                Method cleaner = buffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object c = cleaner.invoke(buffer);
+                if(c != null)
+                    c.getClass().getMethod("clean").invoke(c);
+            }
+        }
+        catch (ReflectiveOperationException | RuntimeException ex) {
+            /* rilascio demandato al garbage collector */
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package bloom;
+
+import hash.HashedKey;
+
+/**
+ * Filtro dei domini di un BloomBlocker, realizzato da un BloomSet o da un
+ *  BinaryFuseSet immutabile.
+ *
+ * @see BloomBlocker
+ * @author Marco Costa
+ */
+interface DomainFilter {
+
+    boolean contains(String domain);
+
+    boolean contains(HashedKey key);
+
+    /**
+     * Rimuove un dominio dal filtro.
+     *
+     * @param domain il dominio da rimuovere
+     * @return tt se il dominio è stato rimosso
+     * @throws UnsupportedOperationException se il filtro non supporta la rimozione
+     */
+    boolean remove(String domain);
+
+    HashedKey hashKey(String domain);
+
+    long dimension();
+
+    /**
+     * Forza su disco il filtro, se costruito su file. Per gli altri filtri non ha effetto.
+     */
+    default void checkpoint() {}
+
+    /**
+     * Rilascia le risorse del filtro. Per i filtri su heap non ha effetto.
+     */
+    default void close() {}
+
+    static DomainFilter of(BloomSet<String> set) {
+        return new DomainFilter() {
+            @Override
+            public boolean contains(String domain) {
+                return set.contains(domain);
+            }
+
+            @Override
+            public boolean contains(HashedKey key) {
+                return set.contains(key);
+            }
+
+            @Override
+            public boolean remove(String domain) {
+                return set.remove(domain);
+            }
+
+            @Override
+            public HashedKey hashKey(String domain) {
+                return set.hashKey(domain);
+            }
+
+            @Override
+            public long dimension() {
+                return set.dimension();
+            }
+
+            @Override
+            public void checkpoint() {
+                set.checkpoint();
+            }
+
+            @Override
+            public void close() {
+                set.close();
+            }
+        };
+    }
+
+    static DomainFilter of(BinaryFuseSet<String> fuse) {
+        return new DomainFilter() {
+            @Override
+            public boolean contains(String domain) {
+                return fuse.contains(domain);
+            }
+
+            @Override
+            public boolean contains(HashedKey key) {
+                return fuse.contains(key);
+            }
+
+            @Override
+            public boolean remove(String domain) {
+                return fuse.remove(domain);
+            }
+
+            @Override
+            public HashedKey hashKey(String domain) {
+                return fuse.hashKey(domain);
+            }
+
+            @Override
+            public long dimension() {
+                return fuse.dimension();
+            }
+        };
+    }
+}
@@ -0,0 +1,155 @@
+package bloom;
+
+import hash.Primitives;
+
+/**
+ * Metodi di riduzione di una combinazione di hash g_i(x) ad un indice in [0, m).
+ * L'ordinale è registrato nei file di MappedBloomFilter: i nuovi valori vanno aggiunti in coda.
+ *
+ * @see BloomFilter
+ * @author Marco Costa
+ */
+public enum IndexReduction {
+    /**
+     * Modulo del valore assoluto (complemento per i negativi): una divisione
+     *  intera per posizione. Metodo originale, valido per ogni m.
+     */
+    MODULO {
+        @Override
+        public int reduce(int hash, int bound) {
+            if(hash < 0)
+                hash = ~hash;
+
+            return hash % bound;
+        }
+
+        @Override
+        public int reduce(long hash, int bound) {
+            if(hash < 0)
+                hash = ~hash;
+
+            return (int) (hash % bound);
+        }
+
+        @Override
+        public long reduce(long hash, long bound) {
+            if(hash < 0)
+                hash = ~hash;
+
+            return hash % bound;
+        }
+    },
+
+    /**
+     * Riduzione moltiplicativa di Lemire: (hash * m) >> 32 sull'hash senza segno.
+     *  Una moltiplicazione al posto della divisione, valida per ogni m.
+     *  Per m oltre 2^31 sono utilizzati tutti i 64 bit dell'hash: (hash * m) >> 64.
+     */
+    MULTIPLY_SHIFT {
+        @Override
+        public int reduce(int hash, int bound) {
+            return (int) (((hash & 0xffffffffL) * bound) >>> 32);
+        }
+
+        @Override
+        public int reduce(long hash, int bound) {
+            return (int) (((hash >>> 32) * bound) >>> 32); /* 32 bit alti */
+        }
+
+        @Override
+        public long reduce(long hash, long bound) {
+            /* oltre 2^31 i soli 32 bit alti renderebbero la distribuzione non uniforme */
+            if(bound <= Integer.MAX_VALUE)
+                return ((hash >>> 32) * bound) >>> 32;
+
+            return Primitives.multiplyHigh(hash, bound);
+        }
+    },
+
+    /**
+     * Maschera dei bit bassi: richiede m potenza di due, per cui la dimensione
+     *  del filtro viene arrotondata alla potenza di due successiva.
+     */
+    MASK {
+        @Override
+        public int reduce(int hash, int bound) {
+            return hash & (bound - 1);
+        }
+
+        @Override
+        public int reduce(long hash, int bound) {
+            return (int) hash & (bound - 1);
+        }
+
+        @Override
+        public long reduce(long hash, long bound) {
+            return hash & (bound - 1);
+        }
+
+        @Override
+        public int bound(int m) {
+            if(m > (1 << 30))
+                throw new IllegalArgumentException("m troppo grande per la riduzione con maschera");
+
+            return (m <= 1) ? 1 : Integer.highestOneBit(m - 1) << 1;
+        }
+
+        @Override
+        public long bound(long m) {
+            if(m > (1L << 62))
+                throw new IllegalArgumentException("m troppo grande per la riduzione con maschera");
+
+            return (m <= 1) ? 1 : Long.highestOneBit(m - 1) << 1;
+        }
+    };
+
+    /**
+     * Riduce hash ad un indice in [0, bound).
+     *
+     * @param hash la combinazione di hash
+     * @param bound il limite superiore, ottenuto da bound()
+     * @return l'indice
+     */
+    public abstract int reduce(int hash, int bound);
+
+    /**
+     * Riduce un hash a 64 bit ad un indice in [0, bound).
+     *
+     * @param hash l'hash a 64 bit
+     * @param bound il limite superiore, ottenuto da bound()
+     * @return l'indice
+     */
+    public abstract int reduce(long hash, int bound);
+
+    /**
+     * Riduce un hash a 64 bit ad un indice a 64 bit in [0, bound).
+     * Per bound rappresentabile come int il risultato coincide con reduce(long, int).
+     *
+     * @param hash l'hash a 64 bit
+     * @param bound il limite superiore, ottenuto da bound()
+     * @return l'indice
+     */
+    public abstract long reduce(long hash, long bound);
+
+    /**
+     * Restituisce il numero di bit effettivo per un filtro di m bit ridotto
+     *  con questo metodo.
+     *
+     * @param m il numero di bit richiesto
+     * @return il numero di bit effettivo, maggiore o uguale a m
+     */
+    public int bound(int m) {
+        return m;
+    }
+
+    /**
+     * Restituisce il numero di bit effettivo per un filtro di m bit ridotto
+     *  con questo metodo.
+     *
+     * @param m il numero di bit richiesto
+     * @return il numero di bit effettivo, maggiore o uguale a m
+     */
+    public long bound(long m) {
+        return m;
+    }
+}
@@ -0,0 +1,272 @@
+package bloom;
+
+import java.util.Arrays;
+
+/**
+ * Implementazione dell'interfaccia astratta BloomFilter mediante array di long
+ *  di dimensione fissa.
+ * La geometria è verificata una sola volta alla costruzione: le posizioni
+ *  derivate dallo schema sono già in [0, capacity()) e vengono impostate e lette
+ *  con sola aritmetica su parole e bit, senza verifiche per posizione.
+ * Le parole sono accessibili singolarmente per le operazioni in blocco.
+ * La dimensione è limitata dalla lunghezza massima di un array: circa 2^37 bit.
+ *
+ * @see BloomFilter
+ * @author Marco Costa
+ */
+public class LongArrayBloomFilter extends BloomFilter {
+    private final long[] words;
+    private final long size;
+
+    /**
+     * Creazione di un nuovo BloomFilter implementato mediante array di long di dimensione size bit.
+     *
+     * @param size la dimensione in bit
+     */
+    public LongArrayBloomFilter(long size) {
+        this(size, IndexReduction.MODULO);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter implementato mediante array di long di dimensione size bit,
+     *  le cui posizioni sono ridotte con il metodo reduction.
+     *
+     * @param size la dimensione in bit
+     * @param reduction il metodo di riduzione, MASK richiede size potenza di due
+     */
+    public LongArrayBloomFilter(long size, IndexReduction reduction) {
+        this(size, ProbeScheme.DOUBLE_HASHING, reduction);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter implementato mediante array di long di dimensione size bit,
+     *  le cui posizioni sono derivate con lo schema scheme e ridotte con il metodo reduction.
+     *
+     * @param size la dimensione in bit
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione, MASK richiede size potenza di due
+     */
+    public LongArrayBloomFilter(long size, ProbeScheme scheme, IndexReduction reduction) {
+        super(scheme, reduction);
+        checkCapacity(size);
+        if(((size + 63) >>> 6) > MAX_ARRAY_LENGTH)
+            throw new IllegalArgumentException("size troppo grande per un array di long");
+
+        this.size = size;
+        words = new long[(int) ((size + 63) >>> 6)];
+    }
+
+    @Override
+    void setUnchecked(long index) {
+        words[(int) (index >>> 6)] |= 1L << index;
+    }
+
+    @Override
+    boolean isSetUnchecked(long index) {
+        return (words[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Verifica che pos sia un indice valido del BloomFilter.
+     *
+     * @param pos l'indice
+     * @throws IndexOutOfBoundsException se pos non è un indice valido
+     */
+    private void checkPosition(long pos) throws IndexOutOfBoundsException {
+        if((pos < 0) || (pos >= size))
+            throw new IndexOutOfBoundsException("Indice " + pos + " non valido");
+    }
+
+    /**
+     * Imposta a true l'indice index del Bloom Filter.
+     *
+     * @param index l'indice
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public void set(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        setUnchecked(index);
+    }
+
+    /**
+     * Imposta a true tutti gli indici in index del Bloom Filter.
+     * Se uno degli indici contenuti in index non è valido l'operazione
+     *  non viene eseguita.
+     *
+     * @param index il vettore di indici
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public void set(int[] index) throws IndexOutOfBoundsException {
+        long invalid = 0;
+        for(int i : index)
+            invalid |= i | (size - 1 - i); /* negativo sse i < 0 o i >= size */
+
+        if(invalid < 0)
+            for(int i : index)
+                checkPosition(i);
+
+        for(int i : index)
+            setUnchecked(i);
+    }
+
+    /**
+     * Restituisce true sse l'indice index è settato a true.
+     *
+     * @param index l'indice della struttura
+     * @return tt sse array[index] = 1
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public boolean isSet(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        return isSetUnchecked(index);
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici in index sono settati a true.
+     *
+     * @param index il vettore di indici
+     * @return tt sse forall i in index -> array[i] = 1
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public boolean isSet(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            if(!isSet(i))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Restituisce il numero di parole da 64 bit della struttura.
+     *
+     * @return il numero di parole
+     */
+    public int wordCount() {
+        return words.length;
+    }
+
+    /**
+     * Restituisce la parola i-esima: i bit [64i, 64i + 64) della struttura.
+     *
+     * @param i l'indice della parola
+     * @return la parola
+     */
+    public long getWord(int i) {
+        return words[i];
+    }
+
+    /**
+     * Sostituisce la parola i-esima. I bit oltre capacity() dell'ultima parola
+     *  vengono ignorati.
+     *
+     * @param i l'indice della parola
+     * @param word la nuova parola
+     */
+    public void setWord(int i, long word) {
+        if(i == words.length - 1)
+            word &= lastWordMask();
+        words[i] = word;
+    }
+
+    private long lastWordMask() {
+        return -1L >>> (-size & 63);
+    }
+
+    /**
+     * Unione con un filtro della stessa geometria: ogni parola diventa
+     *  l'or delle due parole corrispondenti.
+     *
+     * @param other il filtro da unire
+     * @throws IllegalArgumentException se i filtri hanno dimensione, schema
+     *         o riduzione diversi
+     */
+    public void or(LongArrayBloomFilter other) {
+        checkGeometry(other);
+        for(int i = 0; i < words.length; i++)
+            words[i] |= other.words[i];
+    }
+
+    /**
+     * Intersezione con un filtro della stessa geometria: ogni parola diventa
+     *  l'and delle due parole corrispondenti.
+     *
+     * @param other il filtro da intersecare
+     * @throws IllegalArgumentException se i filtri hanno dimensione, schema
+     *         o riduzione diversi
+     */
+    public void and(LongArrayBloomFilter other) {
+        checkGeometry(other);
+        for(int i = 0; i < words.length; i++)
+            words[i] &= other.words[i];
+    }
+
+    private void checkGeometry(LongArrayBloomFilter other) {
+        if((other.size != size) || (other.scheme() != scheme()) || (other.reduction() != reduction()))
+            throw new IllegalArgumentException("i filtri devono avere la stessa geometria");
+    }
+
+    /**
+     * Restituisce il numero di bit settati a true.
+     *
+     * @return il numero di bit a 1
+     */
+    public long cardinality() {
+        long count = 0;
+        for(long w : words)
+            count += Long.bitCount(w);
+
+        return count;
+    }
+
+    /**
+     * Reimposta tutti i bit della struttura a false.
+     */
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * Restituisce la dimensione in bit in memoria della struttura, multipla di 64.
+     *
+     * @return la dimensione in bit in memoria
+     */
+    public long size() {
+        return (long) words.length << 6;
+    }
+
+    /**
+     * Restituisce il numero di bit indirizzabili, ovvero la dimensione impostata
+     *  alla creazione.
+     *
+     * @return il numero di bit indirizzabili
+     */
+    public long capacity() {
+        return size;
+    }
+
+    /**
+     * Restituisce la dimensione logica della struttura. L'indice dell'ultimo bit più uno.
+     *
+     * @return la dimensione logica della struttura
+     */
+    public long length() {
+        for(int i = words.length - 1; i >= 0; i--)
+            if(words[i] != 0)
+                return ((long) i << 6) + 64 - Long.numberOfLeadingZeros(words[i]);
+
+        return 0;
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici della struttura sono settati a false.
+     *
+     * @return tt sse forall i in size -> array[i] = 0
+     */
+    public boolean isEmpty() {
+        for(long w : words)
+            if(w != 0)
+                return false;
+
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+package bloom;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implementazione dell'interfaccia astratta BloomFilter mappata in memoria su file.
+ * I bit sono aggiornati nella page cache del sistema operativo: checkpoint() li
+ *  forza su disco e open() riapre il filtro senza leggerlo né ricostruirlo, le
+ *  pagine sono caricate alla prima consultazione. La dimensione del filtro non è
+ *  limitata dallo heap.
+ *
+ * Il file è composto da un'intestazione di HEADER_BYTES byte, seguita dalle parole
+ *  da 64 bit little-endian dei bit:
+ *  magic (8), versione (4), schema (4), riduzione (4), riservato (4), size in bit (8),
+ *  METADATA_SLOTS long a disposizione di chi utilizza il filtro (BloomSet).
+ * Schema e riduzione sono registrati mediante ordinale.
+ *
+ * Il filtro non è serializzabile: il file ne è la rappresentazione persistente.
+ *
+ * @see BloomSet#open(Path, hash.KeyEncoder)
+ * @author Marco Costa
+ */
+public class MappedBloomFilter extends BufferBloomFilter {
+    /* "BLOOMMAP" little-endian */
+    private static final long MAGIC = 0x50414d4d4f4f4c42L;
+    private static final int VERSION = 1;
+
+    /* le parole iniziano a un limite di pagina */
+    static final int HEADER_BYTES = 4096;
+    static final int METADATA_SLOTS = 8;
+
+    private static final int VERSION_OFFSET = 8;
+    private static final int SCHEME_OFFSET = 12;
+    private static final int REDUCTION_OFFSET = 16;
+    private static final int SIZE_OFFSET = 24;
+    private static final int METADATA_OFFSET = 32;
+
+    private final Path file;
+    private transient MappedByteBuffer header;
+
+    private MappedBloomFilter(Path file, long size, ProbeScheme scheme, IndexReduction reduction,
+                              boolean create) throws IOException {
+        super(size, scheme, reduction);
+        this.file = file;
+
+        StandardOpenOption[] options = create
+                ? new StandardOpenOption[] {StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE};
+
+        /* le mappature restano valide dopo la chiusura del canale */
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            if(!create && (channel.size() < HEADER_BYTES + byteSize()))
+                throw new IOException("il file " + file + " è troncato");
+
+            header = map(channel, 0, HEADER_BYTES);
+            int[] sizes = chunkSizes(byteSize());
+            MappedByteBuffer[] chunks = new MappedByteBuffer[sizes.length];
+            try {
+                for(int i = 0; i < sizes.length; i++) /* l'estensione del file è azzerata */
+                    chunks[i] = map(channel, HEADER_BYTES + ((long) i << CHUNK_SHIFT), sizes[i]);
+            }
+            catch (IOException ex) {
+                release(chunks);
+                DirectMemory.free(header);
+                throw ex;
+            }
+            attach(chunks);
+        }
+
+        if(create) {
+            header.putLong(0, MAGIC);
+            header.putInt(VERSION_OFFSET, VERSION);
+            header.putInt(SCHEME_OFFSET, scheme.ordinal());
+            header.putInt(REDUCTION_OFFSET, reduction.ordinal());
+            header.putLong(SIZE_OFFSET, size);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, int size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * Crea un nuovo file file contenente un BloomFilter vuoto di dimensione size bit,
+     *  le cui posizioni sono derivate con lo schema scheme e ridotte con il metodo reduction.
+     *
+     * @param file il file, che non deve esistere
+     * @param size la dimensione in bit
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione, MASK richiede size potenza di due
+     * @return il filtro
+     * @throws IOException se il file esiste già o non può essere creato
+     */
+    public static MappedBloomFilter create(Path file, long size, ProbeScheme scheme,
+                                           IndexReduction reduction) throws IOException {
+        if((file == null) || (scheme == null) || (reduction == null))
+            throw new IllegalArgumentException("file, scheme e reduction non possono essere null");
+
+        return new MappedBloomFilter(file, size, scheme, reduction, true);
+    }
+
+    /**
+     * Riapre il BloomFilter contenuto nel file file, creato con create().
+     * Il contenuto è quello dell'ultimo checkpoint() o, se il processo precedente
+     *  è terminato senza errori di sistema, dell'ultimo aggiornamento.
+     *
+     * @param file il file del filtro
+     * @return il filtro
+     * @throws IOException se il file non esiste o non contiene un filtro valido
+     */
+    public static MappedBloomFilter open(Path file) throws IOException {
+        if(file == null)
+            throw new IllegalArgumentException("file non può essere null");
+
+        ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while(h.hasRemaining())
+                if(channel.read(h) < 0)
+                    throw new IOException("il file " + file + " non contiene un BloomFilter");
+        }
+
+        if(h.getLong(0) != MAGIC)
+            throw new IOException("il file " + file + " non contiene un BloomFilter");
+        if(h.getInt(VERSION_OFFSET) != VERSION)
+            throw new IOException("versione " + h.getInt(VERSION_OFFSET) + " non supportata");
+
+        ProbeScheme[] schemes = ProbeScheme.values();
+        IndexReduction[] reductions = IndexReduction.values();
+        int scheme = h.getInt(SCHEME_OFFSET);
+        int reduction = h.getInt(REDUCTION_OFFSET);
+        long size = h.getLong(SIZE_OFFSET);
+        if((scheme < 0) || (scheme >= schemes.length) || (reduction < 0) || (reduction >= reductions.length)
+                || (size <= 0))
+            throw new IOException("intestazione del file " + file + " non valida");
+
+        return new MappedBloomFilter(file, size, schemes[scheme], reductions[reduction], false);
+    }
+
+    /**
+     * Factory di filtri mappati su file di computeM(n, pf) bit per BloomSet.
+     * Il file viene creato alla costruzione del set e non deve esistere.
+     *
+     * @param file il file del filtro
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione delle posizioni
+     * @return la factory
+     * @throws UncheckedIOException alla creazione, se il file non può essere creato
+     */
+    public static BloomFilterFactory factory(Path file, ProbeScheme scheme, IndexReduction reduction) {
+        if((file == null) || (scheme == null) || (reduction == null))
+            throw new IllegalArgumentException("file, scheme e reduction non possono essere null");
+
+        return (n, pf) -> {
+            try {
+                return create(file, reduction.bound(computeM(n, pf)), scheme, reduction);
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+    }
+
+    /**
+     * Restituisce il file del filtro.
+     *
+     * @return il file
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Forza su disco gli aggiornamenti dei bit e dell'intestazione.
+     * Al termine il filtro è riapribile con open() anche dopo un arresto del sistema.
+     */
+    public void checkpoint() {
+        for(ByteBuffer chunk : chunks())
+            ((MappedByteBuffer) chunk).force();
+        header.force();
+    }
+
+    long metadata(int slot) {
+        ensureOpen();
+        return header.getLong(METADATA_OFFSET + (slot << 3));
+    }
+
+    void metadata(int slot, long value) {
+        ensureOpen();
+        header.putLong(METADATA_OFFSET + (slot << 3), value);
+    }
+
+    /**
+     * Rimuove le mappature del file senza forzarne la scrittura: gli aggiornamenti
+     *  restano nella page cache e sono scritti dal sistema operativo.
+     */
+    @Override
+    protected void release(ByteBuffer[] chunks) {
+        for(ByteBuffer chunk : chunks)
+            DirectMemory.free(chunk);
+        DirectMemory.free(header);
+        header = null;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        throw new NotSerializableException("MappedBloomFilter: utilizzare checkpoint() e open()");
+    }
+}
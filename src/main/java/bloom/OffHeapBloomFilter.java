@@ -0,0 +1,95 @@
+package bloom;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Implementazione dell'interfaccia astratta BloomFilter in memoria diretta, fuori
+ *  dallo heap: i bit non sono visitati né copiati dal garbage collector.
+ * La memoria è allocata con ByteBuffer.allocateDirect(), nei limiti di
+ *  -XX:MaxDirectMemorySize, e rilasciata esplicitamente con close(); in assenza di
+ *  close() è rilasciata dal garbage collector insieme al filtro.
+ * La serializzazione copia i bit e il filtro deserializzato alloca nuova memoria.
+ *
+ * @see BufferBloomFilter
+ * @author Marco Costa
+ */
+public class OffHeapBloomFilter extends BufferBloomFilter {
+
+    /**
+     * Creazione di un nuovo BloomFilter in memoria diretta di dimensione size bit.
+     *
+     * @param size la dimensione in bit
+     */
+    public OffHeapBloomFilter(long size) {
+        this(size, ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter in memoria diretta di dimensione size bit,
+     *  le cui posizioni sono derivate con lo schema scheme e ridotte con il metodo reduction.
+     *
+     * @param size la dimensione in bit
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione, MASK richiede size potenza di due
+     */
+    public OffHeapBloomFilter(long size, ProbeScheme scheme, IndexReduction reduction) {
+        super(size, scheme, reduction);
+        attach(allocate(byteSize()));
+    }
+
+    /**
+     * Factory di filtri in memoria diretta di computeM(n, pf) bit per BloomSet.
+     * La memoria è rilasciata da BloomSet.close().
+     *
+     * @param scheme lo schema di derivazione delle posizioni
+     * @param reduction il metodo di riduzione delle posizioni
+     * @return la factory
+     */
+    public static BloomFilterFactory factory(ProbeScheme scheme, IndexReduction reduction) {
+        if((scheme == null) || (reduction == null))
+            throw new IllegalArgumentException("scheme e reduction non possono essere null");
+
+        return (n, pf) -> new OffHeapBloomFilter(reduction.bound(computeM(n, pf)), scheme, reduction);
+    }
+
+    private static ByteBuffer[] allocate(long bytes) {
+        int[] sizes = chunkSizes(bytes);
+        ByteBuffer[] chunks = new ByteBuffer[sizes.length];
+
+        try {
+            for(int i = 0; i < sizes.length; i++) /* memoria azzerata */
+                chunks[i] = ByteBuffer.allocateDirect(sizes[i]).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        catch (OutOfMemoryError ex) {
+            for(ByteBuffer chunk : chunks)
+                DirectMemory.free(chunk);
+            throw ex;
+        }
+
+        return chunks;
+    }
+
+    @Override
+    protected void release(ByteBuffer[] chunks) {
+        for(ByteBuffer chunk : chunks)
+            DirectMemory.free(chunk);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ensureOpen();
+        out.defaultWriteObject();
+        for(long i = 0; i < wordCount(); i++)
+            out.writeLong(getWord(i));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        attach(allocate(byteSize()));
+        for(long i = 0; i < wordCount(); i++)
+            putWord(i, in.readLong());
+    }
+}
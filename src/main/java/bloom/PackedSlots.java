@@ -0,0 +1,72 @@
+package bloom;
+
+/**
+ * Operazioni comuni ai filtri a fingerprint (CuckooSet, QuotientSet, BinaryFuseSet,
+ *  RibbonSet): slot di bits bit impacchettati in un array di long, che possono
+ *  attraversare il confine tra due parole, e finalizzatore per ridistribuire gli hash.
+ *
+ * @author Marco Costa
+ */
+final class PackedSlots {
+
+    private PackedSlots() {}
+
+    /**
+     * Restituisce il numero di parole da 64 bit necessarie per slots slot di bits bit.
+     */
+    static long words(long slots, int bits) {
+        return (slots * bits + 63) >>> 6;
+    }
+
+    /**
+     * Legge lo slot slot-esimo di bits bit.
+     *
+     * @param table le parole
+     * @param slot l'indice dello slot
+     * @param bits il numero di bit per slot, al più 64
+     * @param mask (1 << bits) - 1
+     * @return il valore dello slot
+     */
+    static long get(long[] table, long slot, int bits, long mask) {
+        long pos = slot * bits;
+        int word = (int) (pos >>> 6);
+        int off = (int) (pos & 63);
+
+        long value = table[word] >>> off;
+        if(off + bits > 64)
+            value |= table[word + 1] << (64 - off);
+
+        return value & mask;
+    }
+
+    /**
+     * Scrive value, di al più bits bit, nello slot slot-esimo.
+     *
+     * @param table le parole
+     * @param slot l'indice dello slot
+     * @param bits il numero di bit per slot, al più 64
+     * @param mask (1 << bits) - 1
+     * @param value il valore dello slot
+     */
+    static void set(long[] table, long slot, int bits, long mask, long value) {
+        long pos = slot * bits;
+        int word = (int) (pos >>> 6);
+        int off = (int) (pos & 63);
+
+        table[word] = (table[word] & ~(mask << off)) | (value << off);
+        if(off + bits > 64) {
+            int shift = 64 - off;
+            table[word + 1] = (table[word + 1] & ~(mask >>> shift)) | (value >>> shift);
+        }
+    }
+
+    /* finalizzatore di MurmurHash3 */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
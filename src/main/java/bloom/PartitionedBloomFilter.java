@@ -0,0 +1,303 @@
+package bloom;
+
+import java.util.Arrays;
+
+/**
+ * Implementazione dell'interfaccia astratta BloomFilter partizionata (partitioned Bloom filter).
+ * Gli m bit del filtro sono divisi in k partizioni di m / k bit, allineate alla parola:
+ *  la posizione i-esima di una chiave, g_i = h1 + i * h2 + (i^3 - i) / 6, è ridotta
+ *  alla sola partizione i, per cui le posizioni di una chiave non collidono mai tra
+ *  loro e con IndexReduction.MASK le partizioni sono potenze di due indicizzate con
+ *  una maschera.
+ * La verifica di un lotto di chiavi visita una partizione alla volta, per cui gli
+ *  accessi di ogni passata sono confinati in m / k bit.
+ *
+ * @see BloomFilter
+ * @author Marco Costa
+ */
+public class PartitionedBloomFilter extends BloomFilter {
+    private final long[] words;
+    private final int slices;
+    private final long sliceBits;
+    private final int sliceWords;
+
+    /**
+     * Creazione di un nuovo BloomFilter partizionato di dimensione size bit in
+     *  slices partizioni potenza di due.
+     *
+     * @param size la dimensione in bit, multipla di slices
+     * @param slices il numero di partizioni, pari al numero di funzioni hash
+     */
+    public PartitionedBloomFilter(long size, int slices) {
+        this(size, slices, IndexReduction.MASK);
+    }
+
+    /**
+     * Creazione di un nuovo BloomFilter partizionato di dimensione size bit in
+     *  slices partizioni, le cui posizioni sono ridotte con il metodo reduction.
+     *
+     * @param size la dimensione in bit, multipla di slices
+     * @param slices il numero di partizioni, pari al numero di funzioni hash
+     * @param reduction il metodo di riduzione alla partizione, MASK richiede
+     *                  partizioni potenza di due
+     */
+    public PartitionedBloomFilter(long size, int slices, IndexReduction reduction) {
+        super(ProbeScheme.ENHANCED_DOUBLE_HASHING, reduction);
+        if(slices <= 0)
+            throw new IllegalArgumentException("slices deve essere maggiore di 0");
+        if((size <= 0) || (size % slices != 0))
+            throw new IllegalArgumentException("size deve essere un multiplo positivo di " + slices);
+
+        sliceBits = size / slices;
+        if(reduction.bound(sliceBits) != sliceBits)
+            throw new IllegalArgumentException("dimensione della partizione non valida per la riduzione " + reduction);
+
+        long sliceWords = (sliceBits + 63) >>> 6;
+        if(sliceWords * slices > MAX_ARRAY_LENGTH)
+            throw new IllegalArgumentException("size troppo grande per un array di long");
+
+        this.slices = slices;
+        this.sliceWords = (int) sliceWords;
+        words = new long[(int) (sliceWords * slices)];
+    }
+
+    /**
+     * Crea un filtro partizionato per n elementi con probabilità di falso positivo pf,
+     *  con K = computeK(pf) partizioni di computeM(n, pf) / K bit arrotondati al
+     *  limite della riduzione.
+     *
+     * @param n il numero di inserimenti previsti
+     * @param pf la probabilità di falso positivo in (0, 1)
+     * @param reduction il metodo di riduzione alla partizione
+     * @return il filtro
+     */
+    public static PartitionedBloomFilter create(long n, double pf, IndexReduction reduction) {
+        int k = Math.max(1, computeK(pf));
+        long sliceBits = reduction.bound(Math.max(1, (computeM(n, pf) + k - 1) / k));
+        if(((sliceBits + 63) >>> 6) > MAX_ARRAY_LENGTH / k)
+            throw new IllegalArgumentException("dimensione del filtro troppo grande");
+
+        return new PartitionedBloomFilter(sliceBits * k, k, reduction);
+    }
+
+    /**
+     * Factory di filtri partizionati per BloomSet.
+     *
+     * @param reduction il metodo di riduzione alla partizione
+     * @return la factory
+     */
+    public static BloomFilterFactory factory(IndexReduction reduction) {
+        if(reduction == null)
+            throw new IllegalArgumentException("reduction non può essere null");
+
+        return (n, pf) -> create(n, pf, reduction);
+    }
+
+    /**
+     * Restituisce il numero di partizioni.
+     *
+     * @return il numero di partizioni
+     */
+    public int slices() {
+        return slices;
+    }
+
+    /**
+     * Restituisce il numero di bit per partizione.
+     *
+     * @return i bit per partizione
+     */
+    public long sliceBits() {
+        return sliceBits;
+    }
+
+    private void checkK(int k) {
+        if(k > slices)
+            throw new IllegalArgumentException("k non può superare il numero di partizioni " + slices);
+    }
+
+    /* bit della posizione i-esima nella partizione i */
+    private long probe(long h1, long h2, int i) {
+        return reduction().reduce(h1 + i * h2 + ((long) i * i * i - i) / 6, sliceBits);
+    }
+
+    /**
+     * Imposta a true le k posizioni del digest (h1, h2), una per partizione.
+     *
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni, al più slices()
+     */
+    @Override
+    public void put(long h1, long h2, int k) {
+        checkK(k);
+
+        for(int i = 0, base = 0; i < k; i++, base += sliceWords) {
+            long bit = probe(h1, h2, i);
+            words[base + (int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Restituisce true sse le k posizioni del digest (h1, h2) sono settate a true.
+     *
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni, al più slices()
+     * @return tt sse forall i in k -> slice_i[g_i] = 1
+     */
+    @Override
+    public boolean mightContain(long h1, long h2, int k) {
+        checkK(k);
+
+        for(int i = 0, base = 0; i < k; i++, base += sliceWords) {
+            long bit = probe(h1, h2, i);
+            if((words[base + (int) (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Verifica di un lotto di len digest una partizione alla volta: la passata
+     *  i-esima verifica la posizione i delle chiavi non ancora escluse.
+     *
+     * @param h1 i 64 bit bassi dei digest
+     * @param h2 i 64 bit alti dei digest
+     * @param len il numero di digest
+     * @param k il numero di posizioni, al più slices()
+     * @param result la destinazione dei risultati, result[j] per il digest j
+     */
+    @Override
+    public void mightContain(long[] h1, long[] h2, int len, int k, boolean[] result) {
+        checkK(k);
+        Arrays.fill(result, 0, len, true);
+
+        for(int i = 0, base = 0; i < k; i++, base += sliceWords)
+            for(int j = 0; j < len; j++)
+                if(result[j]) {
+                    long bit = probe(h1[j], h2[j], i);
+                    result[j] = (words[base + (int) (bit >>> 6)] & (1L << bit)) != 0;
+                }
+    }
+
+    /* parola dell'indice globale index in [0, capacity()) */
+    private int word(long index) {
+        int slice = (int) (index / sliceBits);
+        return slice * sliceWords + (int) ((index % sliceBits) >>> 6);
+    }
+
+    private void checkPosition(long pos) throws IndexOutOfBoundsException {
+        if((pos < 0) || (pos >= capacity()))
+            throw new IndexOutOfBoundsException("Indice " + pos + " non valido");
+    }
+
+    /**
+     * Imposta a true l'indice index del Bloom Filter. Gli indici della
+     *  partizione i sono [i * sliceBits(), (i + 1) * sliceBits()).
+     *
+     * @param index l'indice
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public void set(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        words[word(index)] |= 1L << (index % sliceBits);
+    }
+
+    /**
+     * Imposta a true tutti gli indici in index del Bloom Filter.
+     * Se uno degli indici contenuti in index non è valido l'operazione
+     *  non viene eseguita.
+     *
+     * @param index il vettore di indici
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public void set(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            checkPosition(i);
+        for(int i : index)
+            words[word(i)] |= 1L << (i % sliceBits);
+    }
+
+    /**
+     * Restituisce true sse l'indice index è settato a true.
+     *
+     * @param index l'indice della struttura
+     * @return tt sse array[index] = 1
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public boolean isSet(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        return (words[word(index)] & (1L << (index % sliceBits))) != 0;
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici in index sono settati a true.
+     *
+     * @param index il vettore di indici
+     * @return tt sse forall i in index -> array[i] = 1
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public boolean isSet(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            if(!isSet(i))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Reimposta tutti i bit della struttura a false.
+     */
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * Restituisce la dimensione in bit in memoria della struttura.
+     *
+     * @return la dimensione in bit in memoria
+     */
+    public long size() {
+        return (long) words.length << 6;
+    }
+
+    /**
+     * Restituisce il numero di bit indirizzabili, slices() * sliceBits().
+     *
+     * @return il numero di bit indirizzabili
+     */
+    public long capacity() {
+        return sliceBits * slices;
+    }
+
+    /**
+     * Restituisce la dimensione logica della struttura. L'indice dell'ultimo bit più uno.
+     *
+     * @return la dimensione logica della struttura
+     */
+    public long length() {
+        for(int i = words.length - 1; i >= 0; i--)
+            if(words[i] != 0) {
+                int slice = i / sliceWords;
+                long bit = ((long) (i % sliceWords) << 6) + 64 - Long.numberOfLeadingZeros(words[i]);
+                return slice * sliceBits + bit;
+            }
+
+        return 0;
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici della struttura sono settati a false.
+     *
+     * @return tt sse forall i in size -> array[i] = 0
+     */
+    public boolean isEmpty() {
+        for(long w : words)
+            if(w != 0)
+                return false;
+
+        return true;
+    }
+}
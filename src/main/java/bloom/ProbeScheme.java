@@ -0,0 +1,156 @@
+package bloom;
+
+/**
+ * Schemi di derivazione delle k posizioni di una chiave dal suo digest a 128 bit
+ *  (h1, h2). Le posizioni sono calcolate una alla volta e ridotte a [0, capacity())
+ *  con il metodo di riduzione del filtro.
+ * L'ordinale è registrato nei file di MappedBloomFilter: i nuovi valori vanno aggiunti in coda.
+ *
+ * @see BloomFilter
+ * @author Marco Costa
+ */
+public enum ProbeScheme {
+    /**
+     * Double hashing a 32 bit: g_i = a + i*b, con a e b le due metà di h1.
+     *  Utilizza solo 64 dei 128 bit del digest e, per m grandi, produce
+     *  sequenze correlate. Schema originale, limitato a Integer.MAX_VALUE bit.
+     */
+    DOUBLE_HASHING {
+        @Override
+        public long maxCapacity() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void put(BloomFilter filter, long h1, long h2, int k) {
+            IndexReduction reduction = filter.reduction();
+            int a = (int) h1;
+            int b = (int) (h1 >>> 32);
+            int bound = (int) filter.capacity();
+
+            for(int i = 1; i <= k; i++)
+                filter.setUnchecked(reduction.reduce(a + i * b, bound));
+        }
+
+        @Override
+        public boolean mightContain(BloomFilter filter, long h1, long h2, int k) {
+            IndexReduction reduction = filter.reduction();
+            int a = (int) h1;
+            int b = (int) (h1 >>> 32);
+            int bound = (int) filter.capacity();
+
+            for(int i = 1; i <= k; i++)
+                if(!filter.isSetUnchecked(reduction.reduce(a + i * b, bound)))
+                    return false;
+
+            return true;
+        }
+
+        @Override
+        void remove(BloomFilter filter, long h1, long h2, int k) {
+            IndexReduction reduction = filter.reduction();
+            int a = (int) h1;
+            int b = (int) (h1 >>> 32);
+            int bound = (int) filter.capacity();
+
+            for(int i = 1; i <= k; i++)
+                filter.clearUnchecked(reduction.reduce(a + i * b, bound));
+        }
+    },
+
+    /**
+     * Enhanced double hashing a 64 bit (Dillinger e Manolios) sull'intero digest:
+     *  x_0 = h1, y_0 = h2, x_i = x_(i-1) + y_(i-1), y_i = y_(i-1) + i.
+     *  Il termine cubico implicito rompe la correlazione tra le sequenze di chiavi
+     *  diverse e l'aritmetica a 64 bit evita il wrap-around per m grandi:
+     *  indirizza filtri oltre 2^31 bit.
+     */
+    ENHANCED_DOUBLE_HASHING {
+        @Override
+        public void put(BloomFilter filter, long h1, long h2, int k) {
+            IndexReduction reduction = filter.reduction();
+            long bound = filter.capacity();
+            long x = h1;
+            long y = h2;
+
+            for(int i = 1; i <= k; i++) {
+                filter.setUnchecked(reduction.reduce(x, bound));
+                x += y;
+                y += i;
+            }
+        }
+
+        @Override
+        public boolean mightContain(BloomFilter filter, long h1, long h2, int k) {
+            IndexReduction reduction = filter.reduction();
+            long bound = filter.capacity();
+            long x = h1;
+            long y = h2;
+
+            for(int i = 1; i <= k; i++) {
+                if(!filter.isSetUnchecked(reduction.reduce(x, bound)))
+                    return false;
+                x += y;
+                y += i;
+            }
+
+            return true;
+        }
+
+        @Override
+        void remove(BloomFilter filter, long h1, long h2, int k) {
+            IndexReduction reduction = filter.reduction();
+            long bound = filter.capacity();
+            long x = h1;
+            long y = h2;
+
+            for(int i = 1; i <= k; i++) {
+                filter.clearUnchecked(reduction.reduce(x, bound));
+                x += y;
+                y += i;
+            }
+        }
+    };
+
+    /**
+     * Restituisce il numero massimo di bit indirizzabili con lo schema.
+     *
+     * @return la capacità massima di un filtro che utilizza lo schema
+     */
+    public long maxCapacity() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Imposta a true le k posizioni del digest (h1, h2) nel filtro.
+     *
+     * @param filter il filtro
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni
+     */
+    public abstract void put(BloomFilter filter, long h1, long h2, int k);
+
+    /**
+     * Restituisce true sse tutte le k posizioni del digest (h1, h2) sono settate
+     *  a true nel filtro, arrestandosi al primo bit a false.
+     *
+     * @param filter il filtro
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni
+     * @return tt sse forall i in k -> array[g_i] = 1
+     */
+    public abstract boolean mightContain(BloomFilter filter, long h1, long h2, int k);
+
+    /**
+     * Annulla l'inserimento delle k posizioni del digest (h1, h2) nel filtro,
+     *  visitandole nello stesso ordine di put().
+     *
+     * @param filter il filtro, a contatori
+     * @param h1 i 64 bit bassi del digest
+     * @param h2 i 64 bit alti del digest
+     * @param k il numero di posizioni
+     */
+    abstract void remove(BloomFilter filter, long h1, long h2, int k);
+}
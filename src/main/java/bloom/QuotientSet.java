@@ -0,0 +1,762 @@
+package bloom;
+
+import hash.BloomHash;
+import hash.Digest;
+import hash.HashFactory;
+import hash.HashFamily;
+import hash.KeyEncoder;
+import hash.KeyEncoders;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Quotient Set (Bender et al., 2012).
+ * Set di elementi di tipo E che memorizza per ogni elemento un fingerprint di
+ *  p = q + r bit in una tabella circolare contigua di 2^q slot: i q bit alti
+ *  (quoziente) indicano lo slot canonico e gli r bit bassi (resto) sono
+ *  memorizzati insieme a tre bit di metadati (occupied, continuation, shifted).
+ * I resti con lo stesso quoziente formano un run ordinato e i run consecutivi un
+ *  cluster, per cui ogni operazione accede a slot contigui della tabella.
+ *
+ * Poiché il fingerprint è memorizzato per intero la struttura può essere
+ *  raddoppiata spostando un bit dal resto al quoziente e due strutture possono
+ *  essere unite troncando i fingerprint più lunghi, entrambe in tempo lineare
+ *  e senza ricalcolare l'hash delle chiavi. Ogni raddoppio dimezza circa la
+ *  precisione: la probabilità di falso positivo è circa load * 2^-r.
+ *
+ * Come CuckooSet, add() inserisce sempre l'elemento: un elemento aggiunto più
+ *  volte occupa più slot e va rimosso altrettante volte.
+ *
+ * @param <E> il tipo dell'elemento
+ * @see CuckooSet
+ * @author Marco Costa
+ */
+public class QuotientSet<E> extends AbstractSet<E> implements Set<E>, Serializable {
+    /* fattore di carico oltre il quale la tabella è raddoppiata */
+    public static final double MAX_LOAD = 0.75;
+
+    private static final long OCCUPIED = 1;
+    private static final long CONTINUATION = 2;
+    private static final long SHIFTED = 4;
+    private static final long METADATA = 7;
+
+    private long[] table;
+
+    private int quotientBits;
+    private int remainderBits;
+    private int slotBits;
+    private long slotMask;
+    private long slots;
+
+    private long n = 0;
+
+    private final HashFamily family;
+    private final long seed;
+
+    private transient BloomHash hash;
+    private final KeyEncoder<? super E> encoder;
+    /* chiavi long codificate dall'encoder come hashLong */
+    private final boolean longKeys;
+
+    /**
+     * Creazione di un nuovo Quotient Set per n elementi con probabilità di falso
+     *  positivo pf.
+     *
+     * @param n il numero di elementi
+     * @param pf probabilità di falso positivo in (0, 1)
+     */
+    public QuotientSet(long n, double pf) {
+        this(n, pf, KeyEncoders.BY_TYPE, HashFactory.getHashFunction());
+    }
+
+    /**
+     * Creazione di un nuovo Quotient Set per n elementi con probabilità di falso
+     *  positivo pf, con encoder e funzione hash specificati.
+     * La tabella ha 2^q slot con q minimo per contenere n elementi con carico
+     *  MAX_LOAD e resti di r = ceil(-log2(pf)) bit.
+     *
+     * @param n il numero di elementi
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash
+     */
+    public QuotientSet(long n, double pf, KeyEncoder<? super E> encoder, BloomHash hash) {
+        this(computeQuotientBits(n), BinaryFuseSet.computeFingerprintBits(pf), encoder, hash);
+    }
+
+    /**
+     * Creazione di un nuovo Quotient Set con 2^quotientBits slot e resti di
+     *  remainderBits bit.
+     *
+     * @param quotientBits il numero di bit del quoziente
+     * @param remainderBits il numero di bit del resto, tra 1 e 61
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash
+     */
+    public QuotientSet(int quotientBits, int remainderBits, KeyEncoder<? super E> encoder, BloomHash hash) {
+        if((remainderBits < 1) || (remainderBits > 61))
+            throw new IllegalArgumentException("remainderBits deve essere compreso tra 1 e 61");
+        if((quotientBits < 1) || (quotientBits + remainderBits > 64))
+            throw new IllegalArgumentException("il fingerprint deve essere compreso tra 2 e 64 bit");
+        if(encoder == null)
+            throw new IllegalArgumentException("encoder non può essere null");
+        if(hash == null)
+            throw new IllegalArgumentException("hash non può essere null");
+
+        this.encoder = encoder;
+        longKeys = KeyEncoders.encodesAs(encoder, Long.class, KeyEncoders.LONG);
+        this.hash = hash;
+        family = hash.family();
+        seed = hash.seed();
+
+        allocate(quotientBits, remainderBits);
+    }
+
+    private static int computeQuotientBits(long n) {
+        if(n <= 0)
+            throw new IllegalArgumentException("n deve essere maggiore di 0");
+
+        long slots = (long) Math.ceil(n / MAX_LOAD);
+        return Math.max(1, 64 - Long.numberOfLeadingZeros(slots - 1));
+    }
+
+    private void allocate(int quotientBits, int remainderBits) {
+        long words = PackedSlots.words(1L << quotientBits, remainderBits + 3);
+        if(words > BloomFilter.MAX_ARRAY_LENGTH)
+            throw new IllegalArgumentException("tabella troppo grande");
+
+        this.quotientBits = quotientBits;
+        this.remainderBits = remainderBits;
+        slotBits = remainderBits + 3;
+        slotMask = (1L << slotBits) - 1;
+        slots = 1L << quotientBits;
+        table = new long[(int) words];
+        n = 0;
+    }
+
+    /* accesso agli slot */
+
+    private long get(long slot) {
+        return PackedSlots.get(table, slot, slotBits, slotMask);
+    }
+
+    private void set(long slot, long value) {
+        PackedSlots.set(table, slot, slotBits, slotMask, value);
+    }
+
+    private long inc(long slot) {
+        return (slot + 1) & (slots - 1);
+    }
+
+    private long dec(long slot) {
+        return (slot - 1) & (slots - 1);
+    }
+
+    private static boolean isEmpty(long v) {
+        return (v & METADATA) == 0;
+    }
+
+    private static boolean isOccupied(long v) {
+        return (v & OCCUPIED) != 0;
+    }
+
+    private static boolean isContinuation(long v) {
+        return (v & CONTINUATION) != 0;
+    }
+
+    private static boolean isShifted(long v) {
+        return (v & SHIFTED) != 0;
+    }
+
+    private static boolean isClusterStart(long v) {
+        return isOccupied(v) && !isContinuation(v) && !isShifted(v);
+    }
+
+    private static boolean isRunStart(long v) {
+        return !isContinuation(v) && (isOccupied(v) || isShifted(v));
+    }
+
+    private static long remainder(long v) {
+        return v >>> 3;
+    }
+
+    /* operazioni sul fingerprint */
+
+    private long fingerprint(long h1) {
+        return h1 >>> (64 - quotientBits - remainderBits);
+    }
+
+    /**
+     * Restituisce lo slot di inizio del run del quoziente fq, occupato:
+     *  risale all'inizio del cluster e avanza di un run per ogni quoziente occupato.
+     */
+    private long findRun(long fq) {
+        long b = fq;
+        while(isShifted(get(b)))
+            b = dec(b);
+
+        long s = b;
+        while(b != fq) {
+            do {
+                s = inc(s);
+            } while(isContinuation(get(s)));
+
+            do {
+                b = inc(b);
+            } while(!isOccupied(get(b)));
+        }
+
+        return s;
+    }
+
+    private boolean mightContain(long fp) {
+        long fq = fp >>> remainderBits;
+        long fr = fp & ((1L << remainderBits) - 1);
+
+        if(!isOccupied(get(fq)))
+            return false;
+
+        long s = findRun(fq);
+        do {
+            long rem = remainder(get(s));
+            if(rem == fr)
+                return true;
+            if(rem > fr) /* run ordinato */
+                return false;
+            s = inc(s);
+        } while(isContinuation(get(s)));
+
+        return false;
+    }
+
+    /**
+     * Inserisce entry nello slot s spostando in avanti gli elementi fino al primo
+     *  slot vuoto. Il bit occupied appartiene allo slot e non viene spostato.
+     */
+    private void insertAt(long s, long entry) {
+        long current = entry;
+        boolean empty;
+
+        do {
+            long previous = get(s);
+            empty = isEmpty(previous);
+
+            if(!empty) {
+                previous |= SHIFTED;
+                if(isOccupied(previous)) {
+                    current |= OCCUPIED;
+                    previous &= ~OCCUPIED;
+                }
+            }
+
+            set(s, current);
+            current = previous;
+            s = inc(s);
+        } while(!empty);
+    }
+
+    private void insert(long fp) {
+        long fq = fp >>> remainderBits;
+        long fr = fp & ((1L << remainderBits) - 1);
+        long head = get(fq);
+        long entry = fr << 3;
+
+        if(isEmpty(head)) {
+            set(fq, entry | OCCUPIED);
+            n++;
+            return;
+        }
+
+        boolean occupied = isOccupied(head);
+        if(!occupied)
+            set(fq, head | OCCUPIED);
+
+        long start = findRun(fq);
+        long s = start;
+
+        if(occupied) { /* posizione ordinata nel run esistente */
+            do {
+                if(remainder(get(s)) > fr)
+                    break;
+                s = inc(s);
+            } while(isContinuation(get(s)));
+
+            if(s == start) /* il nuovo elemento diventa l'inizio del run */
+                set(start, get(start) | CONTINUATION);
+            else
+                entry |= CONTINUATION;
+        }
+
+        if(s != fq)
+            entry |= SHIFTED;
+
+        insertAt(s, entry);
+        n++;
+    }
+
+    /**
+     * Rimuove l'elemento nello slot s spostando indietro gli elementi successivi
+     *  del cluster, che tornano non shifted se raggiungono il proprio slot canonico.
+     */
+    private void deleteAt(long s, long fq) {
+        long current = get(s);
+        long sp = inc(s);
+        long origin = s;
+
+        while(true) {
+            long next = get(sp);
+            boolean occupied = isOccupied(current);
+
+            if(isEmpty(next) || isClusterStart(next) || (sp == origin)) {
+                set(s, 0);
+                return;
+            }
+
+            long updated = next;
+            if(isRunStart(next)) {
+                do {
+                    fq = inc(fq);
+                } while(!isOccupied(get(fq)));
+
+                if(occupied && (fq == s))
+                    updated &= ~SHIFTED;
+            }
+
+            set(s, occupied ? (updated | OCCUPIED) : (updated & ~OCCUPIED));
+            s = sp;
+            sp = inc(sp);
+            current = next;
+        }
+    }
+
+    private boolean delete(long fp) {
+        long fq = fp >>> remainderBits;
+        long fr = fp & ((1L << remainderBits) - 1);
+        long head = get(fq);
+
+        if(!isOccupied(head))
+            return false;
+
+        long s = findRun(fq);
+        long rem;
+        do {
+            rem = remainder(get(s));
+            if(rem >= fr)
+                break;
+            s = inc(s);
+        } while(isContinuation(get(s)));
+
+        if(rem != fr)
+            return false;
+
+        boolean runStart = isRunStart(get(s));
+        if(runStart && !isContinuation(get(inc(s)))) /* ultimo elemento del run */
+            set(fq, get(fq) & ~OCCUPIED);
+
+        deleteAt(s, fq);
+
+        if(runStart) { /* l'elemento successivo diventa l'inizio del run */
+            long next = get(s);
+            long updated = next & ~CONTINUATION;
+            if((s == fq) && isRunStart(updated))
+                updated &= ~SHIFTED;
+            if(updated != next)
+                set(s, updated);
+        }
+
+        n--;
+        return true;
+    }
+
+    /**
+     * Restituisce i fingerprint memorizzati in ordine crescente.
+     * La tabella è visitata dal primo inizio di cluster: i cluster che superano
+     *  la fine della tabella producono i quozienti minori per ultimi, per cui la
+     *  sequenza è ordinata a meno di una rotazione.
+     */
+    private long[] fingerprints() {
+        long[] fps = new long[(int) n];
+        if(n == 0)
+            return fps;
+
+        long first = 0;
+        while(!isClusterStart(get(first)))
+            first++;
+
+        int count = 0;
+        long quotient = first;
+        long s = first;
+
+        for(long i = 0; i < slots; i++, s = inc(s)) {
+            long v = get(s);
+            if(isEmpty(v))
+                continue;
+
+            if(isClusterStart(v))
+                quotient = s;
+            else if(isRunStart(v))
+                do {
+                    quotient = inc(quotient);
+                } while(!isOccupied(get(quotient)));
+
+            fps[count++] = (quotient << remainderBits) | remainder(v);
+        }
+
+        int rotation = 0;
+        for(int i = 1; i < count; i++)
+            if(fps[i] < fps[i - 1]) {
+                rotation = i;
+                break;
+            }
+
+        if(rotation != 0) {
+            long[] sorted = new long[count];
+            System.arraycopy(fps, rotation, sorted, 0, count - rotation);
+            System.arraycopy(fps, 0, sorted, count - rotation, rotation);
+            fps = sorted;
+        }
+
+        return fps;
+    }
+
+    /**
+     * Riempie la tabella vuota con fingerprint ordinati, disponendo i run in
+     *  sequenza senza spostamenti. I run che superano la fine della tabella
+     *  sono inseriti normalmente.
+     */
+    private void fill(long[] fps, int count) {
+        long remainderMask = (1L << remainderBits) - 1;
+        long pos = 0;
+        long last = -1;
+
+        for(int i = 0; i < count; i++) {
+            long fq = fps[i] >>> remainderBits;
+            long slot;
+            long flags;
+
+            if(fq != last) {
+                slot = Math.max(pos, fq);
+                flags = (slot != fq) ? SHIFTED : 0;
+                last = fq;
+            }
+            else {
+                slot = pos;
+                flags = CONTINUATION | SHIFTED;
+            }
+
+            if(slot >= slots) {
+                for(int j = i; j < count; j++)
+                    insert(fps[j]);
+                return;
+            }
+
+            set(slot, (get(slot) & OCCUPIED) | flags | ((fps[i] & remainderMask) << 3));
+            set(fq, get(fq) | OCCUPIED);
+            pos = slot + 1;
+            n++;
+        }
+    }
+
+    /**
+     * Raddoppia la tabella spostando il bit più significativo del resto nel
+     *  quoziente, senza ricalcolare l'hash delle chiavi.
+     *
+     * @throws IllegalStateException se il resto ha un solo bit
+     */
+    public void resize() {
+        if(remainderBits == 1)
+            throw new IllegalStateException("il resto non può essere ridotto");
+
+        long[] fps = fingerprints();
+        allocate(quotientBits + 1, remainderBits - 1);
+        fill(fps, fps.length);
+    }
+
+    /**
+     * Unisce due Quotient Set con la stessa funzione hash e lo stesso encoder in
+     *  un nuovo set, con il minimo numero di slot per contenerne gli elementi con
+     *  carico MAX_LOAD, senza ricalcolare l'hash delle chiavi.
+     * Il fingerprint è il prefisso dell'hash, per cui se i set hanno fingerprint di
+     *  dimensione diversa quelli più lunghi sono troncati ai bit alti e il set unione
+     *  ha i fingerprint più corti. I fingerprint sono uniti in ordine in tempo lineare.
+     *
+     * @param a il primo set
+     * @param b il secondo set
+     * @param <E> il tipo dell'elemento
+     * @return il set unione
+     * @throws IllegalArgumentException se i set non sono compatibili
+     */
+    public static <E> QuotientSet<E> merge(QuotientSet<E> a, QuotientSet<E> b) {
+        if((a.family != b.family) || (a.seed != b.seed))
+            throw new IllegalArgumentException("i set devono utilizzare la stessa funzione hash");
+        if(a.encoder != b.encoder)
+            throw new IllegalArgumentException("i set devono utilizzare lo stesso encoder");
+
+        int bitsA = a.quotientBits + a.remainderBits;
+        int bitsB = b.quotientBits + b.remainderBits;
+        int bits = Math.min(bitsA, bitsB);
+
+        long[] fa = truncate(a.fingerprints(), bitsA - bits);
+        long[] fb = truncate(b.fingerprints(), bitsB - bits);
+        long[] merged = new long[fa.length + fb.length];
+
+        int i = 0, j = 0, k = 0;
+        while((i < fa.length) && (j < fb.length))
+            merged[k++] = (fa[i] <= fb[j]) ? fa[i++] : fb[j++];
+        while(i < fa.length)
+            merged[k++] = fa[i++];
+        while(j < fb.length)
+            merged[k++] = fb[j++];
+
+        int quotientBits = Math.max(computeQuotientBits(Math.max(1, merged.length)),
+                Math.min(Math.max(a.quotientBits, b.quotientBits), bits - 1));
+        if(quotientBits >= bits)
+            throw new IllegalArgumentException("fingerprint troppo piccolo per l'unione");
+
+        QuotientSet<E> set = new QuotientSet<>(quotientBits, bits - quotientBits, a.encoder, a.hash);
+        set.fill(merged, merged.length);
+        return set;
+    }
+
+    /* tronca ai bit alti fingerprint ordinati, mantenendone l'ordine */
+    private static long[] truncate(long[] fps, int shift) {
+        if(shift > 0)
+            for(int i = 0; i < fps.length; i++)
+                fps[i] >>>= shift;
+
+        return fps;
+    }
+
+    private boolean addHash(long h1) {
+        if(n >= MAX_LOAD * slots) {
+            if(remainderBits > 1)
+                resize();
+            else if(n == slots - 1)
+                throw new IllegalStateException("la struttura è piena");
+        }
+
+        insert(fingerprint(h1));
+        return true;
+    }
+
+    /**
+     * Aggiunta di un elemento al Set.
+     * Se il carico supera MAX_LOAD la tabella è raddoppiata.
+     *
+     * @param e l'elemento da aggiungere
+     * @return tt
+     * @throws IllegalStateException se la struttura è piena e non può essere raddoppiata
+     */
+    @Override
+    public boolean add(E e) {
+        Digest d = hash.digest(e, encoder);
+        return addHash(d.h1());
+    }
+
+    /**
+     * Aggiunta di una chiave long al Set, senza boxing.
+     * Equivale ad add(Long) con l'encoder di default o KeyEncoders.LONG.
+     *
+     * @param key la chiave
+     * @return tt
+     * @throws IllegalStateException se la struttura è piena e non può essere raddoppiata
+     *         o se l'encoder del set non codifica i Long come KeyEncoders.LONG
+     */
+    public boolean addLong(long key) {
+        checkLongKeys();
+        return addHash(hash.hashLong(key).h1());
+    }
+
+    /**
+     * Aggiunta di una collezione di elementi al Set.
+     *
+     * @param c la collezione da aggiungere
+     * @return tt
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        for(E item : c)
+            add(item);
+        return true;
+    }
+
+    /**
+     * Restituisce true se l'elemento è possibilmente nel set, false
+     *  se l'elemento è definitivamente non nel set.
+     *
+     * @param o l'elemento da verificare
+     * @return true se l'elemento è possibilmente nel set,
+     *         false se l'elemento è definitivamente non nel set
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        Digest d = hash.digest((E) o, encoder);
+        return mightContain(fingerprint(d.h1()));
+    }
+
+    /**
+     * Verifica di una chiave long, senza boxing.
+     *
+     * @param key la chiave
+     * @return true se la chiave è possibilmente nel set,
+     *         false se la chiave è definitivamente non nel set
+     * @throws IllegalStateException se l'encoder del set non codifica i Long come KeyEncoders.LONG
+     */
+    public boolean containsLong(long key) {
+        checkLongKeys();
+        return mightContain(fingerprint(hash.hashLong(key).h1()));
+    }
+
+    /**
+     * Rimozione di un elemento dal Set.
+     * L'elemento deve essere stato aggiunto: la rimozione di un elemento mai
+     *  aggiunto che risulta presente per falso positivo introduce falsi negativi.
+     *
+     * @param o l'elemento da rimuovere
+     * @return tt se l'elemento era possibilmente nel set ed è stato rimosso
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        Digest d = hash.digest((E) o, encoder);
+        return delete(fingerprint(d.h1()));
+    }
+
+    /**
+     * Rimozione di una chiave long, senza boxing.
+     *
+     * @param key la chiave
+     * @return tt se la chiave era possibilmente nel set ed è stata rimossa
+     * @throws IllegalStateException se l'encoder del set non codifica i Long come KeyEncoders.LONG
+     */
+    public boolean removeLong(long key) {
+        checkLongKeys();
+        return delete(fingerprint(hash.hashLong(key).h1()));
+    }
+
+    private void checkLongKeys() {
+        if(!longKeys)
+            throw new IllegalStateException("l'encoder del set non codifica le chiavi Long come KeyEncoders.LONG");
+    }
+
+    /**
+     * La struttura non supporta iterazione.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @return
+     */
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException("La struttura non supporta iterazione");
+    }
+
+    /**
+     * Restituisce il numero di elementi nel Set, Integer.MAX_VALUE se maggiore.
+     *
+     * @return
+     * @see #count()
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Restituisce il numero di elementi nel Set.
+     *
+     * @return il numero di elementi
+     */
+    public long count() {
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Reimposta la struttura come vuota, mantenendo la dimensione della tabella.
+     */
+    @Override
+    public void clear() {
+        allocate(quotientBits, remainderBits);
+    }
+
+    /**
+     * Restituisce il numero di slot della tabella.
+     *
+     * @return il numero di slot
+     */
+    public long capacity() {
+        return slots;
+    }
+
+    /**
+     * Restituisce il fattore di carico corrente.
+     *
+     * @return il rapporto tra elementi e slot
+     */
+    public double loadFactor() {
+        return n / (double) slots;
+    }
+
+    public int quotientBits() {
+        return quotientBits;
+    }
+
+    public int remainderBits() {
+        return remainderBits;
+    }
+
+    /**
+     * Restituisce la probabilità di falso positivo prevista con il carico
+     *  corrente, 1 - e^(-load * 2^-r).
+     *
+     * @return la probabilità di falso positivo prevista
+     */
+    public double expectedFalsePositiveRate() {
+        return -Math.expm1(-loadFactor() * Math.scalb(1.0, -remainderBits));
+    }
+
+    /**
+     * Restituisce la dimensione fisica in memoria della tabella, in bit.
+     *
+     * @return
+     */
+    public long dimension() {
+        return (long) table.length << 6;
+    }
+
+    /**
+     * Restituisce la famiglia della funzione hash.
+     *
+     * @return la famiglia
+     */
+    public HashFamily family() {
+        return family;
+    }
+
+    /**
+     * Restituisce il seme della funzione hash.
+     *
+     * @return il seme
+     */
+    public long seed() {
+        return seed;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = HashFactory.getHashFunction(family, seed);
+    }
+}
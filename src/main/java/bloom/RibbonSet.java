@@ -0,0 +1,428 @@
+package bloom;
+
+import static bloom.PackedSlots.mix;
+
+import hash.BloomHash;
+import hash.Digest;
+import hash.HashFactory;
+import hash.HashFamily;
+import hash.KeyEncoder;
+import hash.KeyEncoders;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Ribbon Set (Dillinger e Walzer, 2021).
+ * Set immutabile di elementi di tipo E costruito una sola volta a partire da
+ *  tutte le chiavi. Ogni chiave definisce un'equazione lineare su GF(2) con
+ *  64 coefficienti consecutivi a partire dalla riga start(x): c(x) · Z = f(x),
+ *  dove Z è la soluzione di m righe da r bit. Il sistema è risolto per eliminazione
+ *  gaussiana durante l'inserimento (banding) e per sostituzione all'indietro.
+ * La soluzione è memorizzata per blocchi di 64 righe, colonna per colonna: la
+ *  ricerca legge 2r word contigue e la probabilità di falso positivo è 2^-r con
+ *  circa r * (1 + eps) bit per chiave.
+ *
+ * Nella variante standard f(x) è un fingerprint di r bit e la costruzione può
+ *  fallire ed essere ripetuta con un altro seme; nella variante omogenea f(x) = 0
+ *  e le righe libere della soluzione sono casuali, per cui la costruzione non
+ *  fallisce mai e non memorizza i risultati. Una chiave assente la cui equazione
+ *  dipende da quelle delle chiavi è però sempre un falso positivo: avviene nelle
+ *  regioni della banda sature di equazioni, la cui frequenza decresce
+ *  esponenzialmente con eps. La variante omogenea utilizza quindi un eps calcolato
+ *  da r, in modo che l'eccesso atteso sia al più 2^-r / 16, e il minimo r tale che
+ *  2^-r * (1 + 1/16) sia minore o uguale a pf.
+ *
+ * @param <E> il tipo dell'elemento
+ * @see BinaryFuseSet
+ * @author Marco Costa
+ */
+public class RibbonSet<E> extends AbstractSet<E> implements Set<E>, Serializable {
+    private static final int WIDTH = 64;
+    private static final int MAX_ITERATIONS = 100;
+
+    /* eccesso di falsi positivi della variante omogenea rispetto a 2^-r */
+    private static final double HOMOGENEOUS_EXCESS = 1.0 / 16;
+    /* righe di banda satura oltre le quali una query dipende dalle chiavi, stima conservativa */
+    private static final int SATURATION = 40;
+
+    /* soluzione: per ogni blocco di 64 righe, r word con una colonna ciascuna */
+    private final long[] solution;
+
+    private final boolean homogeneous;
+    private final int resultBits;
+    private final long resultMask;
+    private final int numStarts;
+
+    /* seme del tentativo di costruzione riuscito */
+    private final long ribbonSeed;
+    private final long n;
+
+    private final HashFamily family;
+    private final long seed;
+
+    private transient BloomHash hash;
+    private final KeyEncoder<? super E> encoder;
+
+    /**
+     * Costruzione del set a partire dagli hash delle chiavi.
+     */
+    private RibbonSet(long[] keys, int resultBits, boolean homogeneous,
+                      KeyEncoder<? super E> encoder, BloomHash hash) {
+        double eps = computeOverhead(keys.length, resultBits, homogeneous);
+        long slots = ((long) Math.ceil(keys.length * (1 + eps)) + 2L * WIDTH - 1) & -WIDTH;
+        if(slots > BloomFilter.MAX_ARRAY_LENGTH)
+            throw new IllegalArgumentException("troppe chiavi");
+
+        int m = (int) slots;
+        numStarts = m - WIDTH + 1;
+        this.homogeneous = homogeneous;
+        this.resultBits = resultBits;
+        resultMask = (resultBits == 64) ? -1L : (1L << resultBits) - 1;
+        this.encoder = encoder;
+        this.hash = hash;
+        family = hash.family();
+        seed = hash.seed();
+
+        long[] coefficients = new long[m];
+        long[] results = homogeneous ? null : new long[m];
+        long attempt = 0;
+
+        while(true) {
+            if(++attempt > MAX_ITERATIONS)
+                throw new IllegalStateException("impossibile costruire il filtro");
+
+            long s = attempt * 0x9E3779B97F4A7C15L;
+            boolean failed = false;
+
+            for(int i = 0; (i < keys.length) && !failed; i++) {
+                long h = mix(keys[i] + s);
+                failed = !band(coefficients, results, start(h), coefficient(h), homogeneous ? 0 : result(h));
+            }
+
+            if(!failed)
+                break;
+
+            Arrays.fill(coefficients, 0);
+            if(results != null)
+                Arrays.fill(results, 0);
+        }
+
+        ribbonSeed = attempt * 0x9E3779B97F4A7C15L;
+        n = keys.length;
+        solution = new long[(m / WIDTH) * resultBits];
+        backSubstitute(coefficients, results, m);
+    }
+
+    /**
+     * Calcola lo spazio aggiuntivo eps rispetto al numero di chiavi.
+     * Con coefficienti di 64 bit eps cresce con log(n): 0.08 per 10^5 chiavi
+     *  e 0.10 per 10^6 chiavi mantengono trascurabile la probabilità di fallimento
+     *  della variante standard.
+     * Nella variante omogenea, con lambda = 1 / (1 + eps) chiavi per riga, la banda
+     *  è satura in una frazione di righe al più e^(-SATURATION * theta), dove
+     *  lambda * (e^theta - 1) = theta; eps è il minimo per cui questa frazione è al
+     *  più 2^-r * HOMOGENEOUS_EXCESS: 0.10 per r = 7, 0.24 per r = 20.
+     *
+     * @param n il numero di chiavi
+     * @param resultBits il numero r di bit del risultato
+     * @param homogeneous tt per la variante omogenea
+     * @return eps
+     */
+    private static double computeOverhead(int n, int resultBits, boolean homogeneous) {
+        double eps = Math.max(0.05, 0.02 * Math.log10(Math.max(1, n)) - 0.02);
+        if(!homogeneous)
+            return eps;
+
+        double theta = (resultBits * Math.log(2) - Math.log(HOMOGENEOUS_EXCESS)) / SATURATION;
+        return Math.max(eps, Math.expm1(theta) / theta - 1);
+    }
+
+    /**
+     * Calcola il numero r di bit del risultato della variante omogenea: il minimo
+     *  per cui 2^-r * (1 + HOMOGENEOUS_EXCESS) è minore o uguale a pf.
+     *
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @return r, al più 64
+     */
+    private static int computeHomogeneousResultBits(double pf) {
+        int r = BinaryFuseSet.computeFingerprintBits(pf);
+        while((r < 64) && (Math.scalb(1 + HOMOGENEOUS_EXCESS, -r) > pf))
+            r++;
+
+        return r;
+    }
+
+    /**
+     * Eliminazione gaussiana incrementale: riduce l'equazione con le righe già
+     *  presenti fino a trovare una riga libera.
+     *
+     * @return ff se l'equazione è incompatibile con quelle già inserite
+     */
+    private static boolean band(long[] coefficients, long[] results, int start, long c, long r) {
+        int row = start;
+
+        while(true) {
+            long pivot = coefficients[row];
+            if(pivot == 0) {
+                coefficients[row] = c;
+                if(results != null)
+                    results[row] = r;
+                return true;
+            }
+
+            c ^= pivot;
+            if(results != null)
+                r ^= results[row];
+
+            if(c == 0) /* equazione dipendente: compatibile solo se anche il risultato si annulla */
+                return r == 0;
+
+            int shift = Long.numberOfTrailingZeros(c);
+            c >>>= shift;
+            row += shift;
+        }
+    }
+
+    /**
+     * Sostituzione all'indietro dall'ultima riga: state[b] contiene la colonna b
+     *  delle 64 righe a partire da quella corrente, salvata a ogni inizio di blocco.
+     */
+    private void backSubstitute(long[] coefficients, long[] results, int m) {
+        long[] state = new long[resultBits];
+        long random = ribbonSeed | 1;
+
+        for(int row = m - 1; row >= 0; row--) {
+            long c = coefficients[row];
+            long r;
+
+            if(c == 0) { /* riga libera: valore casuale */
+                random ^= random << 13;
+                random ^= random >>> 7;
+                random ^= random << 17;
+                r = random;
+                for(int b = 0; b < resultBits; b++)
+                    state[b] = (state[b] << 1) | ((r >>> b) & 1);
+            }
+            else {
+                r = (results == null) ? 0 : results[row];
+                for(int b = 0; b < resultBits; b++) {
+                    long column = state[b] << 1;
+                    long bit = (Long.bitCount(column & c) & 1) ^ ((r >>> b) & 1);
+                    state[b] = column | bit;
+                }
+            }
+
+            if((row & (WIDTH - 1)) == 0)
+                System.arraycopy(state, 0, solution, (row / WIDTH) * resultBits, resultBits);
+        }
+    }
+
+    /**
+     * Costruzione di un Ribbon Set standard con probabilità di falso positivo
+     *  minore o uguale a pf contenente le chiavi keys.
+     *
+     * @param keys le chiavi del set
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @param <E> il tipo dell'elemento
+     * @return il set
+     */
+    public static <E> RibbonSet<E> build(Collection<? extends E> keys, double pf) {
+        return build(keys, pf, false, KeyEncoders.BY_TYPE, HashFactory.getHashFunction());
+    }
+
+    /**
+     * Costruzione di un Ribbon Set con probabilità di falso positivo pf
+     *  contenente le chiavi keys, con encoder e funzione hash specificati.
+     *
+     * @param keys le chiavi del set
+     * @param pf probabilità di falso positivo in (0, 1)
+     * @param homogeneous tt per la variante omogenea, ff per quella standard
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash
+     * @param <E> il tipo dell'elemento
+     * @return il set
+     */
+    public static <E> RibbonSet<E> build(Collection<? extends E> keys, double pf, boolean homogeneous,
+                                         KeyEncoder<? super E> encoder, BloomHash hash) {
+        if(keys == null)
+            throw new IllegalArgumentException("keys non può essere null");
+        if(encoder == null)
+            throw new IllegalArgumentException("encoder non può essere null");
+        if(hash == null)
+            throw new IllegalArgumentException("hash non può essere null");
+
+        long[] hashes = new long[keys.size()];
+        int i = 0;
+        for(E key : keys)
+            hashes[i++] = hash.digest(key, encoder).h1();
+
+        int resultBits = homogeneous ? computeHomogeneousResultBits(pf) : BinaryFuseSet.computeFingerprintBits(pf);
+        return new RibbonSet<>(hashes, resultBits, homogeneous, encoder, hash);
+    }
+
+    private int start(long h) {
+        return (int) ((((h >>> 32) * numStarts) + (((h & 0xffffffffL) * numStarts) >>> 32)) >>> 32);
+    }
+
+    /* coefficienti con il primo bit a 1, pivot della riga di partenza */
+    private static long coefficient(long h) {
+        return mix(h + 0x632BE59BD9B4E019L) | 1;
+    }
+
+    private long result(long h) {
+        return mix(h ^ 0x8CB92BA72F3D8DD7L) & resultMask;
+    }
+
+    private boolean mightContain(long h1) {
+        long h = mix(h1 + ribbonSeed);
+        int start = start(h);
+        long c = coefficient(h);
+        long expected = homogeneous ? 0 : result(h);
+
+        int block = (start / WIDTH) * resultBits;
+        int offset = start & (WIDTH - 1);
+
+        for(int b = 0; b < resultBits; b++) {
+            long column = solution[block + b] >>> offset;
+            if(offset != 0)
+                column |= solution[block + resultBits + b] << (WIDTH - offset);
+
+            if((Long.bitCount(column & c) & 1) != ((expected >>> b) & 1))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Restituisce true se l'elemento è possibilmente nel set, false
+     *  se l'elemento è definitivamente non nel set.
+     *
+     * @param o l'elemento da verificare
+     * @return true se l'elemento è possibilmente nel set,
+     *         false se l'elemento è definitivamente non nel set
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        Digest d = hash.digest((E) o, encoder);
+        return mightContain(d.h1());
+    }
+
+    /**
+     * La struttura è immutabile.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @param e
+     * @return
+     */
+    @Override
+    public boolean add(E e) {
+        throw new UnsupportedOperationException("La struttura è immutabile");
+    }
+
+    /**
+     * La struttura è immutabile.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @param o
+     * @return
+     */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("La struttura è immutabile");
+    }
+
+    /**
+     * La struttura è immutabile.
+     * Lancia una UnsupportedOperationException.
+     */
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("La struttura è immutabile");
+    }
+
+    /**
+     * La struttura non supporta iterazione.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @return
+     */
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException("La struttura non supporta iterazione");
+    }
+
+    /**
+     * Restituisce il numero di chiavi del set.
+     *
+     * @return
+     */
+    @Override
+    public int size() {
+        return (int) n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public boolean isHomogeneous() {
+        return homogeneous;
+    }
+
+    public int resultBits() {
+        return resultBits;
+    }
+
+    /**
+     * Restituisce la probabilità di falso positivo prevista: 2^-r per la variante
+     *  standard, 2^-r * (1 + 1/16) per quella omogenea.
+     *
+     * @return la probabilità di falso positivo prevista
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.scalb(homogeneous ? 1 + HOMOGENEOUS_EXCESS : 1, -resultBits);
+    }
+
+    /**
+     * Restituisce la dimensione fisica in memoria della soluzione, in bit.
+     *
+     * @return
+     */
+    public long dimension() {
+        return (long) solution.length << 6;
+    }
+
+    /**
+     * Restituisce la famiglia della funzione hash.
+     *
+     * @return la famiglia
+     */
+    public HashFamily family() {
+        return family;
+    }
+
+    /**
+     * Restituisce il seme della funzione hash.
+     *
+     * @return il seme
+     */
+    public long seed() {
+        return seed;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = HashFactory.getHashFunction(family, seed);
+    }
+}
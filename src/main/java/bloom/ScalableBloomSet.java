@@ -0,0 +1,355 @@
+package bloom;
+
+import hash.BloomHash;
+import hash.Digest;
+import hash.HashFactory;
+import hash.HashFamily;
+import hash.KeyEncoder;
+import hash.KeyEncoders;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scalable Bloom Set (Almeida et al., 2007).
+ * Set di elementi di tipo E il cui numero non è noto a priori: quando il filtro
+ *  corrente raggiunge la sua capacità viene aggiunto un nuovo stadio di capacità
+ *  growth volte maggiore e probabilità di falso positivo tightening volte minore.
+ * Lo stadio i ha capacità n * growth^i e probabilità pf * (1 - tightening) * tightening^i,
+ *  per cui la probabilità di falso positivo complessiva resta minore di pf per ogni
+ *  numero di elementi. La dimensione di ogni stadio è calcolata con il K arrotondato,
+ *  in modo che computeP(capacità, M, K) non superi la sua probabilità.
+ * Gli elementi sono inseriti solo nell'ultimo stadio e cercati a partire da esso,
+ *  che contiene la maggior parte degli elementi. Un elemento già possibilmente
+ *  presente non viene reinserito, per cui i duplicati non consumano capacità ma
+ *  size() sottostima il numero di elementi distinti.
+ *
+ * @param <E> il tipo dell'elemento
+ * @see BloomSet
+ * @author Marco Costa
+ */
+public class ScalableBloomSet<E> extends AbstractSet<E> implements Set<E>, Serializable {
+    public static final int DEFAULT_GROWTH = 2;
+    public static final double DEFAULT_TIGHTENING = 0.5;
+
+    private static final double LN2 = Math.log(2);
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    private final long initialCapacity;
+    private final double pf;
+    private final int growth;
+    private final double tightening;
+    private final BloomFilterFactory factory;
+
+    private long n = 0;
+
+    private final HashFamily family;
+    private final long seed;
+
+    private transient BloomHash hash;
+    private final KeyEncoder<? super E> encoder;
+
+    /* filtro di uno stadio con la propria capacità e il proprio K */
+    private static final class Stage implements Serializable {
+        final BloomFilter filter;
+        final long capacity;
+        final double pf;
+        final int k;
+        long n;
+
+        Stage(BloomFilter filter, long capacity, double pf, int k) {
+            this.filter = filter;
+            this.capacity = capacity;
+            this.pf = pf;
+            this.k = k;
+        }
+    }
+
+    /**
+     * Creazione di un nuovo Scalable Bloom Set con capacità iniziale n e probabilità
+     *  di falso positivo complessiva pf.
+     *
+     * @param n il numero di elementi del primo stadio
+     * @param pf probabilità di falso positivo complessiva in (0, 1)
+     */
+    public ScalableBloomSet(long n, double pf) {
+        this(n, pf, DEFAULT_GROWTH, DEFAULT_TIGHTENING);
+    }
+
+    /**
+     * Creazione di un nuovo Scalable Bloom Set con capacità iniziale n, probabilità
+     *  di falso positivo complessiva pf e crescita degli stadi growth e tightening.
+     *
+     * @param n il numero di elementi del primo stadio
+     * @param pf probabilità di falso positivo complessiva in (0, 1)
+     * @param growth il fattore di crescita della capacità degli stadi, maggiore di 1
+     * @param tightening il fattore di riduzione di pf degli stadi in (0, 1)
+     */
+    public ScalableBloomSet(long n, double pf, int growth, double tightening) {
+        this(n, pf, growth, tightening, KeyEncoders.BY_TYPE, HashFactory.getHashFunction(),
+                BloomFilterFactory.longArray(ProbeScheme.ENHANCED_DOUBLE_HASHING, IndexReduction.MULTIPLY_SHIFT));
+    }
+
+    /**
+     * Creazione di un nuovo Scalable Bloom Set con capacità iniziale n, probabilità
+     *  di falso positivo complessiva pf e crescita degli stadi growth e tightening,
+     *  i cui stadi sono costruiti da factory.
+     *
+     * @param n il numero di elementi del primo stadio
+     * @param pf probabilità di falso positivo complessiva in (0, 1)
+     * @param growth il fattore di crescita della capacità degli stadi, maggiore di 1
+     * @param tightening il fattore di riduzione di pf degli stadi in (0, 1)
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash
+     * @param factory la factory degli stadi, i cui parametri catturati devono
+     *                essere serializzabili per serializzare il set
+     */
+    public ScalableBloomSet(long n, double pf, int growth, double tightening,
+                            KeyEncoder<? super E> encoder, BloomHash hash, BloomFilterFactory factory) {
+        if((pf <= 0) || (pf >= 1))
+            throw new IllegalArgumentException("pf deve essere compreso tra 0 e 1");
+        if(n <= 0)
+            throw new IllegalArgumentException("n deve essere maggiore di 0");
+        if(growth < 2)
+            throw new IllegalArgumentException("growth deve essere maggiore di 1");
+        if((tightening <= 0) || (tightening >= 1))
+            throw new IllegalArgumentException("tightening deve essere compreso tra 0 e 1");
+        if(encoder == null)
+            throw new IllegalArgumentException("encoder non può essere null");
+        if(hash == null)
+            throw new IllegalArgumentException("hash non può essere null");
+        if(factory == null)
+            throw new IllegalArgumentException("factory non può essere null");
+
+        initialCapacity = n;
+        this.pf = pf;
+        this.growth = growth;
+        this.tightening = tightening;
+        this.factory = factory;
+        this.encoder = encoder;
+        this.hash = hash;
+        family = hash.family();
+        seed = hash.seed();
+
+        addStage();
+    }
+
+    /**
+     * Aggiunge uno stadio di capacità growth volte e pf tightening volte
+     *  quelle dello stadio precedente.
+     */
+    private Stage addStage() {
+        Stage stage;
+
+        if(stages.isEmpty())
+            stage = stage(initialCapacity, pf * (1 - tightening));
+        else {
+            Stage last = stages.get(stages.size() - 1);
+            long capacity = (last.capacity > Long.MAX_VALUE / growth) ? Long.MAX_VALUE : last.capacity * growth;
+            stage = stage(capacity, last.pf * tightening);
+        }
+
+        stages.add(stage);
+        return stage;
+    }
+
+    private Stage stage(long capacity, double pf) {
+        int k = Math.max(1, BloomFilter.computeK(pf));
+
+        /* M con computeP(capacity, M, k) = pf, richiesto alla factory come la pf
+         *  per cui computeM(capacity, pf) = M: computeK arrotonda K e con M ottimo
+         *  la probabilità dello stadio supererebbe pf */
+        double m = -k * (double) capacity / Math.log1p(-Math.pow(pf, 1.0 / k));
+        double sizing = Math.min(pf, Math.exp(-m * LN2 * LN2 / capacity));
+
+        return new Stage(factory.create(capacity, sizing), capacity, pf, k);
+    }
+
+    /**
+     * Aggiunta di un elemento al Set, nell'ultimo stadio.
+     * Se l'ultimo stadio ha raggiunto la sua capacità ne viene aggiunto uno nuovo.
+     *
+     * @param e l'elemento da aggiungere
+     * @return tt se l'elemento è stato inserito,
+     *         ff se era possibilmente già presente
+     */
+    @Override
+    public boolean add(E e) {
+        Digest d = hash.digest(e, encoder);
+        long h1 = d.h1();
+        long h2 = d.h2();
+
+        if(mightContain(h1, h2))
+            return false;
+
+        Stage stage = stages.get(stages.size() - 1);
+        if(stage.n >= stage.capacity)
+            stage = addStage();
+
+        stage.filter.put(h1, h2, stage.k);
+        stage.n++;
+        n++;
+        return true;
+    }
+
+    private boolean mightContain(long h1, long h2) {
+        for(int i = stages.size() - 1; i >= 0; i--) { /* dall'ultimo stadio */
+            Stage stage = stages.get(i);
+            if(stage.filter.mightContain(h1, h2, stage.k))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Restituisce true se l'elemento è possibilmente nel set, false
+     *  se l'elemento è definitivamente non nel set.
+     * La probabilità di falso positivo è minore di pf.
+     *
+     * @param o l'elemento da verificare
+     * @return true se l'elemento è possibilmente nel set,
+     *         false se l'elemento è definitivamente non nel set
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        Digest d = hash.digest((E) o, encoder);
+        return mightContain(d.h1(), d.h2());
+    }
+
+    /**
+     * Il BloomFilter non supporta iterazione.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @return
+     */
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException("La struttura non supporta iterazione");
+    }
+
+    /**
+     * Il BloomFilter non supporta rimozione.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @param o
+     * @return
+     */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("La struttura non supporta la rimozione");
+    }
+
+    /**
+     * Restituisce il numero di elementi inseriti nel Set, Integer.MAX_VALUE se
+     *  maggiore.
+     * Un elemento nuovo che risulta un falso positivo non viene inserito né contato,
+     *  per cui il valore sottostima il numero di elementi distinti aggiunti: in media
+     *  di una frazione minore di pf, la probabilità di falso positivo durante gli inserimenti.
+     *
+     * @return
+     * @see #count()
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Restituisce il numero di elementi inseriti nel Set, con la stessa sottostima
+     *  di size() rispetto agli elementi distinti aggiunti.
+     *
+     * @return il numero di elementi inseriti
+     */
+    public long count() {
+        return n;
+    }
+
+    /**
+     * Restituisce true se nessun elemento è stato aggiunto al Set.
+     *
+     * @return
+     */
+    @Override
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    /**
+     * Reimposta la struttura come vuota, con il solo primo stadio.
+     */
+    @Override
+    public void clear() {
+        stages.clear();
+        n = 0;
+        addStage();
+    }
+
+    /**
+     * Restituisce il numero di stadi.
+     *
+     * @return il numero di stadi
+     */
+    public int stages() {
+        return stages.size();
+    }
+
+    /**
+     * Restituisce la dimensione fisica in memoria di tutti gli stadi.
+     *
+     * @return
+     */
+    public long dimension() {
+        long size = 0;
+        for(Stage stage : stages)
+            size += stage.filter.size();
+
+        return size;
+    }
+
+    /**
+     * Restituisce la probabilità di falso positivo attesa con gli elementi inseriti
+     *  finora: 1 - prod(1 - p_i), con p_i la probabilità attesa dello stadio i.
+     *
+     * @return la probabilità di falso positivo attesa, minore di pf
+     */
+    public double expectedFalsePositiveRate() {
+        double negative = 1;
+        for(Stage stage : stages)
+            negative *= 1 - BloomFilter.computeP(stage.n, stage.filter.capacity(), stage.k);
+
+        return 1 - negative;
+    }
+
+    /**
+     * Restituisce la famiglia della funzione hash del filtro.
+     *
+     * @return la famiglia
+     */
+    public HashFamily family() {
+        return family;
+    }
+
+    /**
+     * Restituisce il seme della funzione hash del filtro.
+     *
+     * @return il seme
+     */
+    public long seed() {
+        return seed;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = HashFactory.getHashFunction(family, seed);
+    }
+}
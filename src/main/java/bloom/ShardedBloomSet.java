@@ -0,0 +1,361 @@
+package bloom;
+
+import hash.BloomHash;
+import hash.Digest;
+import hash.HashFactory;
+import hash.HashFamily;
+import hash.KeyEncoder;
+import hash.KeyEncoders;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Bloom Set suddiviso in shard indipendenti, utilizzabile da più thread.
+ * Ogni elemento è assegnato ad uno di shards sotto-filtri dai bit alti di un
+ *  rimescolamento del suo digest; ogni shard ha il proprio lock, per cui thread
+ *  che inseriscono o cercano elementi di shard diversi non si contendono né
+ *  lock né linee di cache. Il numero di shard va scelto in modo che ogni shard,
+ *  dimension() / shards() bit, rientri nella cache del core che lo utilizza.
+ * addAll() calcola i digest fuori dai lock e inserisce gli elementi a lotti per
+ *  shard, acquisendo ogni lock una sola volta per lotto.
+ *
+ * Ogni shard è dimensionato per n / shards elementi più tre deviazioni standard,
+ *  per cui la probabilità di falso positivo resta pf anche per lo shard più carico.
+ *
+ * @param <E> il tipo dell'elemento
+ * @see ConcurrentBloomFilter
+ * @author Marco Costa
+ */
+public class ShardedBloomSet<E> extends AbstractSet<E> implements Set<E>, Serializable {
+    public static final int MAX_SHARDS = 1 << 16;
+
+    /* elementi per lotto di addAll() */
+    private static final int BATCH = 4096;
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+
+    private final Shard[] shards;
+    private final int shardShift;
+    private final int k;
+
+    private final HashFamily family;
+    private final long seed;
+
+    private transient BloomHash hash;
+    private final KeyEncoder<? super E> encoder;
+
+    /* filtro e contatore di uno shard, protetti dal monitor dello shard */
+    private static final class Shard implements Serializable {
+        final BloomFilter filter;
+        long n;
+
+        Shard(BloomFilter filter) {
+            this.filter = filter;
+        }
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Set di shards shard con numero di elementi n e
+     *  probabilità di falso positivo pf.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param shards il numero di shard, potenza di due in [1, MAX_SHARDS]
+     */
+    public ShardedBloomSet(long n, double pf, int shards) {
+        this(n, pf, shards, KeyEncoders.BY_TYPE, HashFactory.getHashFunction(),
+                BloomFilterFactory.longArray(ProbeScheme.ENHANCED_DOUBLE_HASHING, IndexReduction.MULTIPLY_SHIFT));
+    }
+
+    /**
+     * Creazione di un nuovo Bloom Set di shards shard con numero di elementi n e
+     *  probabilità di falso positivo pf, i cui shard sono costruiti da factory.
+     *
+     * @param n ordine del numero di elementi dell'insieme
+     * @param pf probabilità di falso positivo richiesta in (0, 1)
+     * @param shards il numero di shard, potenza di due in [1, MAX_SHARDS]
+     * @param encoder l'encoder degli elementi
+     * @param hash la funzione hash
+     * @param factory la factory degli shard
+     */
+    public ShardedBloomSet(long n, double pf, int shards, KeyEncoder<? super E> encoder,
+                           BloomHash hash, BloomFilterFactory factory) {
+        if((pf <= 0) || (pf >= 1))
+            throw new IllegalArgumentException("pf deve essere compreso tra 0 e 1");
+        if(n <= 0)
+            throw new IllegalArgumentException("n deve essere maggiore di 0");
+        if((shards < 1) || (shards > MAX_SHARDS) || (Integer.bitCount(shards) != 1))
+            throw new IllegalArgumentException("shards deve essere una potenza di due in [1, " + MAX_SHARDS + "]");
+        if(encoder == null)
+            throw new IllegalArgumentException("encoder non può essere null");
+        if(hash == null)
+            throw new IllegalArgumentException("hash non può essere null");
+        if(factory == null)
+            throw new IllegalArgumentException("factory non può essere null");
+
+        this.encoder = encoder;
+        this.hash = hash;
+        family = hash.family();
+        seed = hash.seed();
+        k = BloomFilter.computeK(pf);
+
+        double mean = (double) n / shards;
+        long perShard = (long) Math.ceil(mean + 3 * Math.sqrt(mean));
+
+        this.shards = new Shard[shards];
+        for(int i = 0; i < shards; i++)
+            this.shards[i] = new Shard(factory.create(perShard, pf));
+        shardShift = 64 - Integer.numberOfTrailingZeros(shards);
+    }
+
+    /**
+     * Indice dello shard del digest (h1, h2): bit alti di un rimescolamento di
+     *  entrambe le metà, indipendenti dai bit utilizzati per le posizioni.
+     */
+    private int shard(long h1, long h2) {
+        if(shardShift == 64)
+            return 0;
+
+        return (int) (((Long.rotateLeft(h1, 32) ^ h2) * MIX) >>> shardShift);
+    }
+
+    /**
+     * Aggiunta di un elemento al Set.
+     *
+     * @param e l'elemento da aggiungere
+     * @return tt
+     */
+    @Override
+    public boolean add(E e) {
+        Digest d = hash.digest(e, encoder);
+        long h1 = d.h1();
+        long h2 = d.h2();
+        Shard s = shards[shard(h1, h2)];
+
+        synchronized(s) {
+            s.filter.put(h1, h2, k);
+            s.n++;
+        }
+
+        return true;
+    }
+
+    /**
+     * Aggiunta di una collezione di elementi al Set.
+     * Gli elementi sono elaborati a lotti: i digest sono calcolati senza lock e
+     *  raggruppati per shard, quindi ogni shard del lotto è aggiornato con una
+     *  sola acquisizione del suo lock.
+     *
+     * @param c la collezione da aggiungere
+     * @return tt
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        int batch = Math.min(BATCH, Math.max(1, c.size()));
+        long[] h1 = new long[batch];
+        long[] h2 = new long[batch];
+        int[] index = new int[batch];
+        int[] start = new int[shards.length + 1];
+        long[] s1 = new long[batch];
+        long[] s2 = new long[batch];
+        int len = 0;
+
+        for(E e : c) {
+            Digest d = hash.digest(e, encoder);
+            h1[len] = d.h1();
+            h2[len] = d.h2();
+            index[len] = shard(h1[len], h2[len]);
+
+            if(++len == batch) {
+                flush(h1, h2, index, len, start, s1, s2);
+                len = 0;
+            }
+        }
+
+        if(len > 0)
+            flush(h1, h2, index, len, start, s1, s2);
+
+        return true;
+    }
+
+    /**
+     * Ordina per shard i primi len digest (counting sort) e li inserisce a lotti.
+     */
+    private void flush(long[] h1, long[] h2, int[] index, int len, int[] start, long[] s1, long[] s2) {
+        Arrays.fill(start, 0);
+        for(int i = 0; i < len; i++)
+            start[index[i] + 1]++;
+        for(int i = 0; i < shards.length; i++)
+            start[i + 1] += start[i];
+
+        int[] next = start.clone();
+        for(int i = 0; i < len; i++) {
+            int j = next[index[i]]++;
+            s1[j] = h1[i];
+            s2[j] = h2[i];
+        }
+
+        for(int i = 0; i < shards.length; i++) {
+            if(start[i] == start[i + 1])
+                continue;
+
+            Shard s = shards[i];
+            synchronized(s) {
+                for(int j = start[i]; j < start[i + 1]; j++)
+                    s.filter.put(s1[j], s2[j], k);
+                s.n += start[i + 1] - start[i];
+            }
+        }
+    }
+
+    /**
+     * Restituisce true se l'elemento è possibilmente nel set, false
+     *  se l'elemento è definitivamente non nel set.
+     *
+     * @param o l'elemento da verificare
+     * @return true se l'elemento è possibilmente nel set,
+     *         false se l'elemento è definitivamente non nel set
+     * @throws ClassCastException se o non è compatibile con l'encoder del set
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        Digest d = hash.digest((E) o, encoder);
+        long h1 = d.h1();
+        long h2 = d.h2();
+        Shard s = shards[shard(h1, h2)];
+
+        synchronized(s) {
+            return s.filter.mightContain(h1, h2, k);
+        }
+    }
+
+    /**
+     * Il BloomFilter non supporta iterazione.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @return
+     */
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException("La struttura non supporta iterazione");
+    }
+
+    /**
+     * Il BloomFilter non supporta rimozione.
+     * Lancia una UnsupportedOperationException.
+     *
+     * @param o
+     * @return
+     */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("La struttura non supporta la rimozione");
+    }
+
+    /**
+     * Restituisce il numero di elementi aggiunti al Set, Integer.MAX_VALUE se
+     *  maggiore.
+     *
+     * @return
+     * @see #count()
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(count(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Restituisce il numero di elementi aggiunti al Set.
+     *
+     * @return il numero di elementi aggiunti
+     */
+    public long count() {
+        long n = 0;
+        for(Shard s : shards)
+            synchronized(s) {
+                n += s.n;
+            }
+
+        return n;
+    }
+
+    /**
+     * Restituisce true se nessun elemento è stato aggiunto al Set.
+     *
+     * @return
+     */
+    @Override
+    public boolean isEmpty() {
+        for(Shard s : shards)
+            synchronized(s) {
+                if(!s.filter.isEmpty())
+                    return false;
+            }
+
+        return true;
+    }
+
+    /**
+     * Reimposta la struttura come vuota.
+     */
+    @Override
+    public void clear() {
+        for(Shard s : shards)
+            synchronized(s) {
+                s.filter.clear();
+                s.n = 0;
+            }
+    }
+
+    /**
+     * Restituisce la dimensione fisica in memoria di tutti gli shard.
+     *
+     * @return
+     */
+    public long dimension() {
+        long size = 0;
+        for(Shard s : shards)
+            size += s.filter.size();
+
+        return size;
+    }
+
+    /**
+     * Restituisce il numero di shard.
+     *
+     * @return il numero di shard
+     */
+    public int shards() {
+        return shards.length;
+    }
+
+    /**
+     * Restituisce la famiglia della funzione hash del filtro.
+     *
+     * @return la famiglia
+     */
+    public HashFamily family() {
+        return family;
+    }
+
+    /**
+     * Restituisce il seme della funzione hash del filtro.
+     *
+     * @return il seme
+     */
+    public long seed() {
+        return seed;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        hash = HashFactory.getHashFunction(family, seed);
+    }
+}
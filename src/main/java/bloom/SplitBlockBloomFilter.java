@@ -0,0 +1,285 @@
+package bloom;
+
+import java.util.Arrays;
+
+/**
+ * Implementazione dell'interfaccia astratta BloomFilter split-block (SBBF), con lo
+ *  stesso formato dei Bloom Filter di Apache Parquet.
+ * Il filtro è diviso in blocchi di 256 bit, ciascuno di otto parole da 32 bit: i 32 bit
+ *  alti di h1 selezionano il blocco, i 32 bit bassi moltiplicati per otto costanti
+ *  (salt) impostano un bit in ciascuna parola. Le otto operazioni sono indipendenti e
+ *  prive di salti condizionali. Il numero di posizioni è sempre otto, il k del set
+ *  viene ignorato.
+ * Con funzione hash XXH64 a seme 0 e chiavi codificate come in Parquet, i byte
+ *  restituiti da toByteArray() coincidono con il bitset di un filtro Parquet.
+ *
+ * @see hash.HashFamily#XXH64
+ * @author Marco Costa
+ */
+public class SplitBlockBloomFilter extends BloomFilter {
+    public static final int BLOCK_BITS = 256;
+    public static final int BLOCK_BYTES = BLOCK_BITS / 8;
+    private static final int BLOCK_WORDS = 8;
+
+    private static final int[] SALT = {
+            0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d,
+            0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31
+    };
+
+    private final int[] words;
+    private final int blocks;
+
+    /**
+     * Creazione di un nuovo BloomFilter split-block di dimensione size bit.
+     *
+     * @param size la dimensione in bit, multipla di 256
+     */
+    public SplitBlockBloomFilter(long size) {
+        if((size <= 0) || (size % BLOCK_BITS != 0))
+            throw new IllegalArgumentException("size deve essere un multiplo positivo di " + BLOCK_BITS);
+        if(size / BLOCK_BITS > MAX_ARRAY_LENGTH / BLOCK_WORDS)
+            throw new IllegalArgumentException("size troppo grande per un array di int");
+
+        blocks = (int) (size / BLOCK_BITS);
+        words = new int[blocks * BLOCK_WORDS];
+    }
+
+    /**
+     * Creazione di un BloomFilter split-block a partire dal bitset di un filtro
+     *  Parquet, parole da 32 bit little-endian.
+     *
+     * @param bitset i byte del bitset, multipli di 32
+     */
+    public SplitBlockBloomFilter(byte[] bitset) {
+        this(bitset.length * 8L);
+
+        for(int i = 0; i < words.length; i++)
+            words[i] = (bitset[4 * i] & 0xff)
+                    | (bitset[4 * i + 1] & 0xff) << 8
+                    | (bitset[4 * i + 2] & 0xff) << 16
+                    | (bitset[4 * i + 3] & 0xff) << 24;
+    }
+
+    /**
+     * Crea un filtro split-block per n elementi con probabilità di falso positivo pf.
+     * La dimensione parte da quella di Parquet, m = -8n / ln(1 - pf^(1/8)), che non
+     *  considera la variabilità del carico dei blocchi, e cresce finché la probabilità
+     *  stimata non è minore o uguale a pf.
+     *
+     * @param n il numero di inserimenti previsti
+     * @param pf la probabilità di falso positivo in (0, 1)
+     * @return il filtro
+     */
+    public static SplitBlockBloomFilter create(long n, double pf) {
+        double m = -8.0 * n / Math.log(1 - Math.pow(pf, 1.0 / 8));
+        long blocks = Math.max(1, (long) Math.ceil(m / BLOCK_BITS));
+
+        while(falsePositive(n, blocks) > pf)
+            blocks += Math.max(1, blocks >> 6); /* circa 1.5% per passo */
+
+        if(blocks > MAX_ARRAY_LENGTH / BLOCK_WORDS)
+            throw new IllegalArgumentException("dimensione del filtro troppo grande");
+
+        return new SplitBlockBloomFilter(blocks * BLOCK_BITS);
+    }
+
+    /**
+     * Probabilità di falso positivo di n chiavi in blocks blocchi: media su
+     *  Poisson(n / blocks) chiavi per blocco di (1 - (31/32)^i)^8, essendo le
+     *  otto parole di un blocco indipendenti con un bit per chiave ciascuna.
+     */
+    private static double falsePositive(long n, long blocks) {
+        double lambda = (double) n / blocks;
+        double p = Math.exp(-lambda); /* P(0) */
+        double fpr = 0;
+        int max = (int) Math.ceil(lambda + 20 * Math.sqrt(lambda) + 20);
+
+        for(int i = 0; i <= max; i++) {
+            fpr += p * Math.pow(1 - Math.pow(1 - 1.0 / 32, i), BLOCK_WORDS);
+            p *= lambda / (i + 1);
+        }
+
+        return fpr;
+    }
+
+    /**
+     * Factory di filtri split-block per BloomSet.
+     *
+     * @return la factory
+     */
+    public static BloomFilterFactory factory() {
+        return SplitBlockBloomFilter::create;
+    }
+
+    /**
+     * Restituisce il bitset nel formato di Parquet: parole da 32 bit little-endian.
+     *
+     * @return i byte del bitset
+     * @throws IllegalStateException se il bitset supera la dimensione massima di un array
+     */
+    public byte[] toByteArray() {
+        if(words.length > MAX_ARRAY_LENGTH / 4)
+            throw new IllegalStateException("bitset troppo grande per un array di byte");
+
+        byte[] bitset = new byte[words.length * 4];
+
+        for(int i = 0; i < words.length; i++) {
+            bitset[4 * i] = (byte) words[i];
+            bitset[4 * i + 1] = (byte) (words[i] >>> 8);
+            bitset[4 * i + 2] = (byte) (words[i] >>> 16);
+            bitset[4 * i + 3] = (byte) (words[i] >>> 24);
+        }
+
+        return bitset;
+    }
+
+    private int block(long h) {
+        return (int) (((h >>> 32) * blocks) >>> 32) * BLOCK_WORDS;
+    }
+
+    /**
+     * Imposta a true un bit in ciascuna parola del blocco selezionato da h1.
+     *
+     * @param h1 l'hash a 64 bit della chiave
+     * @param h2 non utilizzato
+     * @param k non utilizzato, le posizioni sono sempre otto
+     */
+    @Override
+    public void put(long h1, long h2, int k) {
+        int base = block(h1);
+        int key = (int) h1;
+
+        for(int i = 0; i < BLOCK_WORDS; i++)
+            words[base + i] |= 1 << ((key * SALT[i]) >>> 27);
+    }
+
+    /**
+     * Restituisce true sse il bit di ciascuna parola del blocco selezionato da h1
+     *  è settato a true.
+     *
+     * @param h1 l'hash a 64 bit della chiave
+     * @param h2 non utilizzato
+     * @param k non utilizzato, le posizioni sono sempre otto
+     * @return tt sse forall i in 8 -> block[i][g_i] = 1
+     */
+    @Override
+    public boolean mightContain(long h1, long h2, int k) {
+        int base = block(h1);
+        int key = (int) h1;
+        int missing = 0;
+
+        for(int i = 0; i < BLOCK_WORDS; i++)
+            missing |= ~words[base + i] & (1 << ((key * SALT[i]) >>> 27));
+
+        return missing == 0;
+    }
+
+    private void checkPosition(long pos) throws IndexOutOfBoundsException {
+        if((pos < 0) || (pos >= capacity()))
+            throw new IndexOutOfBoundsException("Indice " + pos + " non valido");
+    }
+
+    /**
+     * Imposta a true l'indice index del Bloom Filter.
+     *
+     * @param index l'indice
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public void set(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        words[(int) (index >>> 5)] |= 1 << index;
+    }
+
+    /**
+     * Imposta a true tutti gli indici in index del Bloom Filter.
+     * Se uno degli indici contenuti in index non è valido l'operazione
+     *  non viene eseguita.
+     *
+     * @param index il vettore di indici
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public void set(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            checkPosition(i);
+        for(int i : index)
+            words[i >>> 5] |= 1 << i;
+    }
+
+    /**
+     * Restituisce true sse l'indice index è settato a true.
+     *
+     * @param index l'indice della struttura
+     * @return tt sse array[index] = 1
+     * @throws IndexOutOfBoundsException se index non è un indice valido
+     */
+    public boolean isSet(long index) throws IndexOutOfBoundsException {
+        checkPosition(index);
+        return (words[(int) (index >>> 5)] & (1 << index)) != 0;
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici in index sono settati a true.
+     *
+     * @param index il vettore di indici
+     * @return tt sse forall i in index -> array[i] = 1
+     * @throws IndexOutOfBoundsException se index contiene un indice non valido
+     */
+    public boolean isSet(int[] index) throws IndexOutOfBoundsException {
+        for(int i : index)
+            if(!isSet(i))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Reimposta tutti i bit della struttura a false.
+     */
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * Restituisce la dimensione in bit in memoria della struttura.
+     *
+     * @return la dimensione in bit in memoria
+     */
+    public long size() {
+        return (long) words.length << 5;
+    }
+
+    /**
+     * Restituisce il numero di bit indirizzabili, multiplo di 256.
+     *
+     * @return il numero di bit indirizzabili
+     */
+    public long capacity() {
+        return (long) blocks * BLOCK_BITS;
+    }
+
+    /**
+     * Restituisce la dimensione logica della struttura. L'indice dell'ultimo bit più uno.
+     *
+     * @return la dimensione logica della struttura
+     */
+    public long length() {
+        for(int i = words.length - 1; i >= 0; i--)
+            if(words[i] != 0)
+                return ((long) i << 5) + 32 - Integer.numberOfLeadingZeros(words[i]);
+
+        return 0;
+    }
+
+    /**
+     * Restituisce true sse tutti gli indici della struttura sono settati a false.
+     *
+     * @return tt sse forall i in size -> array[i] = 0
+     */
+    public boolean isEmpty() {
+        for(int w : words)
+            if(w != 0)
+                return false;
+
+        return true;
+    }
+}
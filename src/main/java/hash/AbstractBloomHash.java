@@ -0,0 +1,175 @@
+package hash;
+
+/**
+ * Implementazione di base di BloomHash a partire dal digest a 128 bit di una chiave.
+ * Basata su Same Performance Less Hashing.
+ *
+ * g_i(x) = h1(x) + i*h2(x)
+ *
+ * @author Marco Costa
+ */
+public abstract class AbstractBloomHash implements BloomHash {
+    private final HashFamily family;
+    private final long seed;
+
+    protected AbstractBloomHash(HashFamily family, long seed) {
+        this.family = family;
+        this.seed = seed;
+    }
+
+    public HashFamily family() {
+        return family;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Computazione delle k posizioni risultanti dall'operazione di combinazione
+     *  g_i(x) = h1(x) + ih2(x)
+     *
+     * @param h1 la prima f. hash
+     * @param h2 la seconda f. hash
+     * @param k il numero di iterazioni (o posizioni da computare)
+     * @param bound limite superiore per ogni posizione
+     * @return il vettore di posizioni
+     */
+    private int[] computeHash(int h1, int h2, int k, int bound) {
+        int[] out = new int[k];
+
+        for(int i = 0; i < k; i++)
+        {
+            out[i] = h1 + (i + 1) * h2;
+            if(out[i] < 0)
+                out[i] = ~out[i];
+
+            out[i] = out[i] % bound;
+        }
+
+        return out;
+    }
+
+    /**
+     * Effettua l'hash di un oggetto e ne restituisce il vettore di k posizioni,
+     *  tale che ogni posizione sia < bound.
+     * L'oggetto è convertito in byte mediante l'encoder registrato per il suo tipo
+     *  in KeyEncoders, altrimenti mediante serializzazione.
+     *
+     * @param o l'oggetto
+     * @param k il numero di posizioni
+     * @param bound il limite superiore per ogni posizione
+     * @return il vettore di posizioni
+     * @see KeyEncoders
+     */
+    public int[] hashObject(Object o, int k, int bound) {
+        return hashObject(o, KeyEncoders.forObject(o), k, bound);
+    }
+
+    /**
+     * Effettua l'hash di una stringa UTF-8 e ne restituisce il vettore
+     *  di k posizioni, tale che ogni posizione sia < bound.
+     *
+     * @param s la stringa UTF-8
+     * @param k il numero di posizioni
+     * @param bound il limite superiore per ogni posizione
+     * @return il vettore di posizioni
+     */
+    public int[] hashObject(String s, int k, int bound) {
+        return hashObject(s, KeyEncoders.CHAR_SEQUENCE, k, bound);
+    }
+
+    /**
+     * Effettua l'hash di un oggetto descritto dall'encoder e ne restituisce il
+     *  vettore di k posizioni, tale che ogni posizione sia < bound.
+     *
+     * @param o l'oggetto
+     * @param encoder l'encoder dell'oggetto
+     * @param k il numero di posizioni
+     * @param bound il limite superiore per ogni posizione
+     * @param <T> il tipo dell'oggetto
+     * @return il vettore di posizioni
+     */
+    public <T> int[] hashObject(T o, KeyEncoder<? super T> encoder, int k, int bound) {
+        long hash64 = digest(o, encoder).h1();
+        int h1 = (int) hash64;
+        int h2 = (int) (hash64 >>> 32);
+
+        return computeHash(h1, h2, k, bound);
+    }
+
+    /**
+     * Effettua l'hash di un oggetto e ne restituisce il vettore di k posizioni
+     *  a 64 bit, tale che ogni posizione sia < bound.
+     *
+     * @param o l'oggetto
+     * @param k il numero di posizioni
+     * @param bound il limite superiore per ogni posizione
+     * @return il vettore di posizioni
+     * @see #hashObject(Object, KeyEncoder, int, long)
+     */
+    public long[] hashObject(Object o, int k, long bound) {
+        return hashObject(o, KeyEncoders.forObject(o), k, bound);
+    }
+
+    /**
+     * Effettua l'hash di una stringa UTF-8 e ne restituisce il vettore di k
+     *  posizioni a 64 bit, tale che ogni posizione sia < bound.
+     *
+     * @param s la stringa UTF-8
+     * @param k il numero di posizioni
+     * @param bound il limite superiore per ogni posizione
+     * @return il vettore di posizioni
+     */
+    public long[] hashObject(String s, int k, long bound) {
+        return hashObject(s, KeyEncoders.CHAR_SEQUENCE, k, bound);
+    }
+
+    /**
+     * Effettua l'hash di un oggetto descritto dall'encoder e ne restituisce il
+     *  vettore di k posizioni a 64 bit, tale che ogni posizione sia < bound.
+     * Le posizioni sono derivate dall'intero digest con l'enhanced double hashing
+     *  e ridotte con il modulo, come ProbeScheme.ENHANCED_DOUBLE_HASHING con
+     *  IndexReduction.MODULO.
+     *
+     * @param o l'oggetto
+     * @param encoder l'encoder dell'oggetto
+     * @param k il numero di posizioni
+     * @param bound il limite superiore per ogni posizione
+     * @param <T> il tipo dell'oggetto
+     * @return il vettore di posizioni
+     */
+    public <T> long[] hashObject(T o, KeyEncoder<? super T> encoder, int k, long bound) {
+        if(bound <= 0)
+            throw new IllegalArgumentException("bound deve essere maggiore di 0");
+
+        Digest d = digest(o, encoder);
+        long x = d.h1();
+        long y = d.h2();
+        long[] out = new long[k];
+
+        for(int i = 0; i < k; i++) {
+            out[i] = ((x < 0) ? ~x : x) % bound;
+            x += y;
+            y += i + 1;
+        }
+
+        return out;
+    }
+
+    /**
+     * Calcola il digest a 128 bit di un oggetto, convertito in byte mediante
+     *  l'encoder registrato per il suo tipo in KeyEncoders.
+     *
+     * @param o l'oggetto
+     * @return il digest, riutilizzato dal thread corrente
+     */
+    public Digest digest(Object o) {
+        return digest(o, KeyEncoders.forObject(o));
+    }
+
+    @Override
+    public String toString() {
+        return family + "(" + seed + ")";
+    }
+}
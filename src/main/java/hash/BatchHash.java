@@ -0,0 +1,106 @@
+package hash;
+
+/**
+ * Calcolo dei digest a 128 bit di un gruppo di chiavi con una sola invocazione.
+ * Le chiavi a larghezza fissa (long) con funzione MURMUR3_128 sono elaborate a
+ *  corsie parallele: su JDK 17+, con il modulo jdk.incubator.vector disponibile,
+ *  mediante la Vector API, altrimenti con un ciclo scalare equivalente.
+ * Le altre chiavi e famiglie sono elaborate chiave per chiave, senza allocazioni.
+ * I digest coincidono con quelli di BloomHash.digest() per la stessa chiave.
+ *
+ * @author Marco Costa
+ */
+public final class BatchHash {
+
+    private BatchHash() {}
+
+    /**
+     * Calcola i digest di len chiavi long a partire da keys[off], codificate come
+     *  KeyEncoders.LONG, scrivendone le due metà in h1[0..len) e h2[0..len).
+     *
+     * @param hash la funzione hash
+     * @param keys le chiavi
+     * @param off l'indice della prima chiave
+     * @param len il numero di chiavi
+     * @param h1 la destinazione delle prime metà
+     * @param h2 la destinazione delle seconde metà
+     */
+    public static void digestLongs(BloomHash hash, long[] keys, int off, int len, long[] h1, long[] h2) {
+        checkBounds(keys.length, off, len, h1, h2);
+
+        if(hash.family() == HashFamily.MURMUR3_128) {
+            LaneKernels.murmur3Longs(hash.seed(), keys, off, len, h1, h2);
+            return;
+        }
+
+        for(int i = 0; i < len; i++) {
+            Digest d = hash.hashLong(keys[off + i]);
+            h1[i] = d.h1();
+            h2[i] = d.h2();
+        }
+    }
+
+    /**
+     * Restituisce il kernel utilizzato per le chiavi long con MURMUR3_128:
+     *  "vector" se la Vector API è attiva, "scalar" altrimenti.
+     * La versione vettoriale è caricata solo dal jar multi-release su JDK 17+,
+     *  non da una directory di classi.
+     *
+     * @return il nome del kernel
+     */
+    public static String kernel() {
+        return LaneKernels.name();
+    }
+
+    /**
+     * Calcola i digest di len chiavi a partire da keys[off], descritte dall'encoder,
+     *  scrivendone le due metà in h1[0..len) e h2[0..len).
+     *
+     * @param hash la funzione hash
+     * @param keys le chiavi
+     * @param off l'indice della prima chiave
+     * @param len il numero di chiavi
+     * @param encoder l'encoder delle chiavi
+     * @param h1 la destinazione delle prime metà
+     * @param h2 la destinazione delle seconde metà
+     * @param <T> il tipo delle chiavi
+     */
+    public static <T> void digestAll(BloomHash hash, T[] keys, int off, int len,
+                                     KeyEncoder<? super T> encoder, long[] h1, long[] h2) {
+        checkBounds(keys.length, off, len, h1, h2);
+
+        for(int i = 0; i < len; i++) {
+            Digest d = hash.digest(keys[off + i], encoder);
+            h1[i] = d.h1();
+            h2[i] = d.h2();
+        }
+    }
+
+    /**
+     * Murmur3 x64_128 di chiavi di 8 byte, una corsia per chiave.
+     * Con un solo blocco parziale h2 non dipende dalla chiave prima della finalizzazione.
+     */
+    static void murmur3Longs(long seed, long[] keys, int off, int from, int len, long[] h1, long[] h2) {
+        long b0 = seed ^ 8;
+
+        for(int i = from; i < len; i++) {
+            long a = (seed ^ Murmur3_128.mixK1(keys[off + i])) ^ 8;
+            a += b0;
+            long b = b0 + a;
+
+            a = Murmur3_128.fmix64(a);
+            b = Murmur3_128.fmix64(b);
+
+            a += b;
+            h1[i] = a;
+            h2[i] = b + a;
+        }
+    }
+
+    private static void checkBounds(int length, int off, int len, long[] h1, long[] h2) {
+        if((off < 0) || (len < 0) || (off + len > length))
+            throw new IndexOutOfBoundsException("off: " + off + ", len: " + len + ", chiavi: " + length);
+        if((h1.length < len) || (h2.length < len))
+            throw new IllegalArgumentException("le destinazioni devono contenere almeno " + len + " digest");
+    }
+}
@@ -1,8 +1,5 @@
 package hash;
 
-import java.io.IOException;
-import java.io.Serializable;
-
 /**
  * @author Marco Costa
  */
@@ -10,4 +7,23 @@ public interface BloomHash {
 
     public int[] hashObject(Object o, int k, int bound);
     public int[] hashObject(String s, int k, int bound);
+    public <T> int[] hashObject(T o, KeyEncoder<? super T> encoder, int k, int bound);
+
+    /* posizioni a 64 bit per filtri oltre 2^31 bit */
+    public long[] hashObject(Object o, int k, long bound);
+    public long[] hashObject(String s, int k, long bound);
+    public <T> long[] hashObject(T o, KeyEncoder<? super T> encoder, int k, long bound);
+
+    /* digest a 128 bit, da cui il filtro deriva le posizioni senza allocazioni */
+    public Digest digest(Object o);
+    public <T> Digest digest(T o, KeyEncoder<? super T> encoder);
+
+    /* chiavi a larghezza fissa senza boxing: stessi digest di KeyEncoders.LONG, INTEGER e UUID */
+    public Digest hashLong(long key);
+    public Digest hashInt(int key);
+    public Digest hash(long msb, long lsb);
+
+    /* famiglia e seme della funzione, da registrare nei metadati del filtro */
+    public HashFamily family();
+    public long seed();
 }
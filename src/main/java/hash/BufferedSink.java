@@ -0,0 +1,152 @@
+package hash;
+
+import java.util.Arrays;
+
+/**
+ * HashSink che accumula i byte di una chiave in un buffer riutilizzabile.
+ * Il buffer cresce secondo necessità e viene riutilizzato tra una chiave e
+ *  la successiva: un'istanza non deve essere condivisa tra thread.
+ *
+ * @author Marco Costa
+ */
+final class BufferedSink implements HashSink {
+    private static final int INITIAL_CAPACITY = 64;
+    /* oltre questa dimensione il buffer non viene trattenuto tra due chiavi */
+    private static final int MAX_RETAINED = 1 << 16;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length = 0;
+
+    /* digest dell'ultima chiave scritta nel sink */
+    final Digest digest = new Digest();
+
+    /**
+     * Svuota il sink per la scrittura di una nuova chiave.
+     *
+     * @return il sink
+     */
+    BufferedSink reset() {
+        if(buffer.length > MAX_RETAINED)
+            buffer = new byte[INITIAL_CAPACITY];
+        length = 0;
+        return this;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int length() {
+        return length;
+    }
+
+    private void ensure(int n) {
+        if(length + n > buffer.length)
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, length + n));
+    }
+
+    @Override
+    public HashSink putByte(byte b) {
+        ensure(1);
+        buffer[length++] = b;
+        return this;
+    }
+
+    @Override
+    public HashSink putBytes(byte[] bytes) {
+        return putBytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public HashSink putBytes(byte[] bytes, int off, int len) {
+        ensure(len);
+        System.arraycopy(bytes, off, buffer, length, len);
+        length += len;
+        return this;
+    }
+
+    @Override
+    public HashSink putShort(short s) {
+        ensure(2);
+        buffer[length++] = (byte) s;
+        buffer[length++] = (byte) (s >>> 8);
+        return this;
+    }
+
+    @Override
+    public HashSink putChar(char c) {
+        return putShort((short) c);
+    }
+
+    @Override
+    public HashSink putInt(int i) {
+        ensure(4);
+        buffer[length++] = (byte) i;
+        buffer[length++] = (byte) (i >>> 8);
+        buffer[length++] = (byte) (i >>> 16);
+        buffer[length++] = (byte) (i >>> 24);
+        return this;
+    }
+
+    @Override
+    public HashSink putLong(long l) {
+        putInt((int) l);
+        return putInt((int) (l >>> 32));
+    }
+
+    @Override
+    public HashSink putFloat(float f) {
+        return putInt(Float.floatToRawIntBits(f));
+    }
+
+    @Override
+    public HashSink putDouble(double d) {
+        return putLong(Double.doubleToRawLongBits(d));
+    }
+
+    @Override
+    public HashSink putBoolean(boolean b) {
+        return putByte(b ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Scrive la stringa codificata in UTF-8 direttamente nel buffer.
+     * I surrogati spaiati sono sostituiti con '?', come in String.getBytes().
+     *
+     * @param s la stringa
+     * @return il sink
+     */
+    @Override
+    public HashSink putString(CharSequence s) {
+        int len = s.length();
+        ensure(len * 3);
+
+        for(int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+
+            if(c < 0x80)
+                buffer[length++] = (byte) c;
+            else if(c < 0x800) {
+                buffer[length++] = (byte) (0xc0 | (c >>> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if(!Character.isSurrogate(c)) {
+                buffer[length++] = (byte) (0xe0 | (c >>> 12));
+                buffer[length++] = (byte) (0x80 | ((c >>> 6) & 0x3f));
+                buffer[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+            else if(Character.isHighSurrogate(c) && (i + 1 < len)
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buffer[length++] = (byte) (0xf0 | (cp >>> 18));
+                buffer[length++] = (byte) (0x80 | ((cp >>> 12) & 0x3f));
+                buffer[length++] = (byte) (0x80 | ((cp >>> 6) & 0x3f));
+                buffer[length++] = (byte) (0x80 | (cp & 0x3f));
+            }
+            else
+                buffer[length++] = (byte) '?';
+        }
+
+        return this;
+    }
+}
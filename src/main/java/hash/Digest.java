@@ -0,0 +1,29 @@
+package hash;
+
+/**
+ * Digest a 128 bit di una chiave, composto dalle due metà h1 (64 bit bassi)
+ *  e h2 (64 bit alti).
+ * L'istanza restituita da BloomHash.digest() è riutilizzata dal thread corrente:
+ *  i valori vanno letti prima della successiva invocazione.
+ *
+ * @see BloomHash#digest(Object)
+ * @author Marco Costa
+ */
+public final class Digest {
+    private long h1;
+    private long h2;
+
+    Digest set(long h1, long h2) {
+        this.h1 = h1;
+        this.h2 = h2;
+        return this;
+    }
+
+    public long h1() {
+        return h1;
+    }
+
+    public long h2() {
+        return h2;
+    }
+}
@@ -1,10 +1,52 @@
 package hash;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * @author Marco Costa
  */
 public class HashFactory {
+    /* istanze per famiglia e seme, condivise tra i filtri */
+    private static final Map<HashFamily, Map<Long, BloomHash>> instances = new EnumMap<>(HashFamily.class);
+
+    static {
+        for(HashFamily family : HashFamily.values())
+            instances.put(family, new ConcurrentHashMap<>());
+    }
+
     public static BloomHash getHashFunction() {
         return Murmur3_Hash.getInstance();
     }
+
+    /**
+     * Restituisce la funzione hash della famiglia family con seme seed.
+     *
+     * @param family la famiglia
+     * @param seed il seme
+     * @return la funzione hash
+     */
+    public static BloomHash getHashFunction(HashFamily family, long seed) {
+        if(family == null)
+            throw new IllegalArgumentException("family non può essere null");
+
+        return instances.get(family).computeIfAbsent(seed, s -> create(family, s));
+    }
+
+    private static BloomHash create(HashFamily family, long seed) {
+        switch(family) {
+            case MURMUR3_128:
+                return (seed == 0) ? Murmur3_Hash.getInstance() : new Murmur3_Hash(seed);
+            case XXH3_64:
+            case XXH3_128:
+                return new XXH3_Hash(family, seed);
+            case WYHASH:
+                return new WyHash_Hash(seed);
+            case XXH64:
+                return new XXH64_Hash(seed);
+            default:
+                throw new IllegalArgumentException("famiglia " + family + " non supportata");
+        }
+    }
 }
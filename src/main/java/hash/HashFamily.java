@@ -0,0 +1,22 @@
+package hash;
+
+/**
+ * Famiglie di funzioni hash non crittografiche disponibili per i Bloom Filter.
+ * Ogni famiglia produce un digest a 128 bit (h1, h2) a partire da un seme esplicito.
+ * L'ordinale è registrato nei file di MappedBloomFilter: i nuovi valori vanno aggiunti in coda.
+ *
+ * @see HashFactory#getHashFunction(HashFamily, long)
+ * @author Marco Costa
+ */
+public enum HashFamily {
+    /** MurmurHash3 x64_128, in streaming sui campi della chiave. */
+    MURMUR3_128,
+    /** XXH3 a 64 bit, h2 derivato da h1 con un round di mix. */
+    XXH3_64,
+    /** XXH3 a 128 bit. */
+    XXH3_128,
+    /** wyhash final4, h2 derivato da h1 con un round di mix. */
+    WYHASH,
+    /** XXH64, h2 derivato da h1 con un round di mix. Con seme 0 è la funzione dei filtri Parquet. */
+    XXH64
+}
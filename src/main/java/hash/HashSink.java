@@ -0,0 +1,24 @@
+package hash;
+
+/**
+ * Destinazione dei byte di una chiave da sottoporre ad hash.
+ * Gli encoder descrivono una chiave scrivendone i campi nel sink, che li
+ *  accumula senza costruire un array di byte intermedio.
+ * I valori numerici sono scritti in ordine little-endian, le stringhe in UTF-8.
+ *
+ * @see KeyEncoder
+ * @author Marco Costa
+ */
+public interface HashSink {
+    HashSink putByte(byte b);
+    HashSink putBytes(byte[] bytes);
+    HashSink putBytes(byte[] bytes, int off, int len);
+    HashSink putShort(short s);
+    HashSink putChar(char c);
+    HashSink putInt(int i);
+    HashSink putLong(long l);
+    HashSink putFloat(float f);
+    HashSink putDouble(double d);
+    HashSink putBoolean(boolean b);
+    HashSink putString(CharSequence s);
+}
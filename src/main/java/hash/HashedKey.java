@@ -0,0 +1,124 @@
+package hash;
+
+import java.io.Serializable;
+
+/**
+ * Digest a 128 bit precalcolato di una chiave, immutabile.
+ * Consente di calcolare l'hash di una chiave una sola volta e di interrogare più
+ *  filtri che utilizzano la stessa funzione hash: ogni filtro deriva dal digest le
+ *  proprie posizioni secondo i propri k e m.
+ * Famiglia e seme della funzione, l'encoder e la classe della chiave sono registrati
+ *  nella chiave, che può essere utilizzata solo con filtri costruiti con la stessa
+ *  funzione e con un encoder che codifica la chiave allo stesso modo: BY_TYPE è
+ *  equivalente all'encoder associato alla classe della chiave.
+ * Gli encoder sono confrontati per identità: quelli di KeyEncoders la mantengono
+ *  dopo la deserializzazione, gli altri solo se la ripristinano con readResolve().
+ *
+ * @see bloom.BloomSet#hashKey(Object)
+ * @author Marco Costa
+ */
+public final class HashedKey implements Serializable {
+    private final long h1;
+    private final long h2;
+    private final HashFamily family;
+    private final long seed;
+    private final KeyEncoder<?> encoder;
+    private final Class<?> type;
+
+    private HashedKey(long h1, long h2, HashFamily family, long seed, KeyEncoder<?> encoder, Object o) {
+        this.h1 = h1;
+        this.h2 = h2;
+        this.family = family;
+        this.seed = seed;
+        this.encoder = encoder;
+        type = (o == null) ? null : o.getClass();
+    }
+
+    /**
+     * Calcola la chiave di un oggetto, convertito in byte mediante l'encoder
+     *  registrato per il suo tipo in KeyEncoders. La chiave è registrata con
+     *  l'encoder KeyEncoders.BY_TYPE.
+     *
+     * @param hash la funzione hash
+     * @param o l'oggetto
+     * @return la chiave
+     */
+    public static HashedKey of(BloomHash hash, Object o) {
+        Digest d = hash.digest(o, KeyEncoders.BY_TYPE);
+        return new HashedKey(d.h1(), d.h2(), hash.family(), hash.seed(), KeyEncoders.BY_TYPE, o);
+    }
+
+    /**
+     * Calcola la chiave di un oggetto descritto dall'encoder.
+     *
+     * @param hash la funzione hash
+     * @param o l'oggetto
+     * @param encoder l'encoder dell'oggetto
+     * @param <T> il tipo dell'oggetto
+     * @return la chiave
+     */
+    public static <T> HashedKey of(BloomHash hash, T o, KeyEncoder<? super T> encoder) {
+        Digest d = hash.digest(o, encoder);
+        return new HashedKey(d.h1(), d.h2(), hash.family(), hash.seed(), encoder, o);
+    }
+
+    public long h1() {
+        return h1;
+    }
+
+    public long h2() {
+        return h2;
+    }
+
+    public HashFamily family() {
+        return family;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * Restituisce true se la chiave è stata calcolata con la funzione hash.
+     *
+     * @param hash la funzione hash
+     * @return true se famiglia e seme coincidono
+     */
+    public boolean isFrom(BloomHash hash) {
+        return (family == hash.family()) && (seed == hash.seed());
+    }
+
+    /**
+     * Restituisce true se encoder codifica la chiave come l'encoder con cui è
+     *  stata calcolata, risolvendo BY_TYPE con la classe della chiave.
+     *
+     * @param encoder l'encoder
+     * @return true se i due encoder codificano la chiave allo stesso modo
+     * @see KeyEncoders#forType(KeyEncoder, Class)
+     */
+    public boolean isEncodedWith(KeyEncoder<?> encoder) {
+        return KeyEncoders.forType(this.encoder, type) == KeyEncoders.forType(encoder, type);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof HashedKey))
+            return false;
+
+        HashedKey other = (HashedKey) o;
+        return (h1 == other.h1) && (h2 == other.h2)
+                && (family == other.family) && (seed == other.seed);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(h1);
+    }
+
+    @Override
+    public String toString() {
+        return family + "(" + seed + ")[" + Long.toHexString(h1) + ", " + Long.toHexString(h2) + "]";
+    }
+}
@@ -0,0 +1,24 @@
+package hash;
+
+import java.io.Serializable;
+
+/**
+ * Encoder di una chiave di tipo T: descrive la chiave scrivendone i campi
+ *  in un HashSink.
+ * Due chiavi uguali devono produrre la stessa sequenza di scritture.
+ *
+ * @param <T> il tipo della chiave
+ * @see HashSink
+ * @author Marco Costa
+ */
+@FunctionalInterface
+public interface KeyEncoder<T> extends Serializable {
+
+    /**
+     * Scrive i campi della chiave nel sink.
+     *
+     * @param key la chiave
+     * @param sink la destinazione dei campi
+     */
+    void encode(T key, HashSink sink);
+}
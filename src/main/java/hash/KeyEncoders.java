@@ -0,0 +1,248 @@
+package hash;
+
+import java.io.*;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro degli encoder per tipo utilizzati dalle funzioni hash per convertire
+ *  una chiave in byte.
+ * Stringhe, CharSequence, byte[], UUID e tipi primitivi boxed sono codificati direttamente,
+ *  altri tipi possono essere registrati mediante register(). La serializzazione Java
+ *  è utilizzata solo se nessun encoder è associato al tipo della chiave.
+ * Gli encoder predefiniti sono serializzati per nome e deserializzati nelle costanti
+ *  di questa classe, per cui possono essere confrontati per identità anche dopo la
+ *  deserializzazione delle strutture che li registrano.
+ *
+ * @author Marco Costa
+ */
+public final class KeyEncoders {
+    /* encoder registrati per tipo */
+    private static final Map<Class<?>, KeyEncoder<?>> registered = new ConcurrentHashMap<>();
+    /* cache della risoluzione classe concreta -> encoder */
+    private static final Map<Class<?>, KeyEncoder<?>> resolved = new ConcurrentHashMap<>();
+    /* encoder predefiniti per nome */
+    private static final Map<String, KeyEncoder<?>> builtins = new ConcurrentHashMap<>();
+
+    public static final KeyEncoder<CharSequence> CHAR_SEQUENCE = builtin("CHAR_SEQUENCE", (s, into) -> into.putString(s));
+    public static final KeyEncoder<byte[]> BYTES = builtin("BYTES", (b, into) -> into.putBytes(b));
+    public static final KeyEncoder<Integer> INTEGER = builtin("INTEGER", (i, into) -> into.putInt(i));
+    public static final KeyEncoder<Long> LONG = builtin("LONG", (l, into) -> into.putLong(l));
+    public static final KeyEncoder<Short> SHORT = builtin("SHORT", (s, into) -> into.putShort(s));
+    public static final KeyEncoder<Byte> BYTE = builtin("BYTE", (b, into) -> into.putByte(b));
+    public static final KeyEncoder<Character> CHARACTER = builtin("CHARACTER", (c, into) -> into.putChar(c));
+    public static final KeyEncoder<Boolean> BOOLEAN = builtin("BOOLEAN", (b, into) -> into.putBoolean(b));
+    public static final KeyEncoder<Float> FLOAT = builtin("FLOAT", (f, into) -> into.putFloat(f));
+    public static final KeyEncoder<Double> DOUBLE = builtin("DOUBLE", (d, into) -> into.putDouble(d));
+    public static final KeyEncoder<UUID> UUID = builtin("UUID",
+            (u, into) -> into.putLong(u.getMostSignificantBits()).putLong(u.getLeastSignificantBits()));
+
+    /**
+     * Encoder di ultima istanza: serializzazione Java dell'oggetto.
+     */
+    public static final KeyEncoder<Object> SERIALIZED = builtin("SERIALIZED", KeyEncoders::serialize);
+
+    /**
+     * Encoder che delega all'encoder associato al tipo a runtime della chiave.
+     */
+    public static final KeyEncoder<Object> BY_TYPE = builtin("BY_TYPE", (o, into) -> forObject(o).encode(o, into));
+
+    /* encoder predefinito: serializzato per nome e risolto nella costante omonima */
+    private static final class Builtin<T> implements KeyEncoder<T> {
+        private final String name;
+        private final transient KeyEncoder<T> encoder;
+
+        Builtin(String name, KeyEncoder<T> encoder) {
+            this.name = name;
+            this.encoder = encoder;
+        }
+
+        @Override
+        public void encode(T key, HashSink sink) {
+            encoder.encode(key, sink);
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            KeyEncoder<?> builtin = builtins.get(name);
+            if(builtin == null)
+                throw new InvalidObjectException("encoder " + name + " sconosciuto");
+
+            return builtin;
+        }
+
+        @Override
+        public String toString() {
+            return "KeyEncoders." + name;
+        }
+    }
+
+    private static <T> KeyEncoder<T> builtin(String name, KeyEncoder<T> encoder) {
+        KeyEncoder<T> builtin = new Builtin<>(name, encoder);
+        builtins.put(name, builtin);
+        return builtin;
+    }
+
+    static {
+        register(CharSequence.class, CHAR_SEQUENCE);
+        register(byte[].class, BYTES);
+        register(Integer.class, INTEGER);
+        register(Long.class, LONG);
+        register(Short.class, SHORT);
+        register(Byte.class, BYTE);
+        register(Character.class, CHARACTER);
+        register(Boolean.class, BOOLEAN);
+        register(Float.class, FLOAT);
+        register(Double.class, DOUBLE);
+        register(java.util.UUID.class, UUID);
+    }
+
+    private KeyEncoders() {}
+
+    /**
+     * Associa un encoder al tipo type e ai suoi sottotipi, sostituendo
+     *  l'eventuale encoder già registrato.
+     *
+     * @param type il tipo della chiave
+     * @param encoder l'encoder da utilizzare
+     * @param <T> il tipo della chiave
+     */
+    public static <T> void register(Class<T> type, KeyEncoder<? super T> encoder) {
+        if((type == null) || (encoder == null))
+            throw new IllegalArgumentException("tipo ed encoder non possono essere null");
+
+        registered.put(type, encoder);
+        resolved.clear();
+    }
+
+    /**
+     * Restituisce l'encoder da utilizzare per l'oggetto o: quello registrato per la
+     *  sua classe o per il supertipo più vicino, altrimenti SERIALIZED.
+     *
+     * @param o l'oggetto
+     * @return l'encoder dell'oggetto
+     */
+    public static KeyEncoder<Object> forObject(Object o) {
+        if(o == null)
+            return SERIALIZED;
+
+        return forType(o.getClass());
+    }
+
+    /**
+     * Restituisce l'encoder da utilizzare per gli oggetti di classe type: quello
+     *  registrato per type o per il supertipo più vicino, altrimenti SERIALIZED.
+     *
+     * @param type la classe concreta
+     * @return l'encoder della classe
+     */
+    @SuppressWarnings("unchecked")
+    public static KeyEncoder<Object> forType(Class<?> type) {
+        KeyEncoder<?> encoder = resolved.get(type);
+        if(encoder == null) {
+            encoder = resolve(type);
+            resolved.put(type, encoder);
+        }
+
+        return (KeyEncoder<Object>) encoder;
+    }
+
+    /**
+     * Restituisce l'encoder utilizzato da encoder per gli oggetti di classe type:
+     *  per BY_TYPE quello associato a type, SERIALIZED se type è null, per gli
+     *  altri encoder encoder stesso.
+     *
+     * @param encoder l'encoder
+     * @param type la classe concreta, null per l'oggetto null
+     * @return l'encoder effettivo
+     */
+    public static KeyEncoder<?> forType(KeyEncoder<?> encoder, Class<?> type) {
+        if(encoder != BY_TYPE)
+            return encoder;
+
+        return (type == null) ? SERIALIZED : forType(type);
+    }
+
+    /**
+     * Restituisce true se encoder codifica le chiavi di tipo type come fixed,
+     *  ovvero se coincide con fixed oppure è BY_TYPE e fixed è l'encoder di type.
+     * Le chiavi primitive calcolate senza boxing, ad esempio con BloomHash.hashLong(),
+     *  coincidono con quelle dell'encoder solo in questo caso.
+     *
+     * @param encoder l'encoder da verificare
+     * @param type il tipo della chiave
+     * @param fixed l'encoder a larghezza fissa di type
+     * @return tt sse encoder codifica type come fixed
+     */
+    public static boolean encodesAs(KeyEncoder<?> encoder, Class<?> type, KeyEncoder<?> fixed) {
+        return forType(encoder, type) == fixed;
+    }
+
+    /**
+     * Ricerca l'encoder registrato per type risalendo prima la gerarchia delle classi
+     *  e poi quella delle interfacce.
+     *
+     * @param type la classe concreta
+     * @return l'encoder, SERIALIZED se nessun supertipo è registrato
+     */
+    private static KeyEncoder<?> resolve(Class<?> type) {
+        for(Class<?> c = type; c != null; c = c.getSuperclass()) {
+            KeyEncoder<?> encoder = registered.get(c);
+            if(encoder != null)
+                return encoder;
+        }
+
+        for(Class<?> c = type; c != null; c = c.getSuperclass()) {
+            KeyEncoder<?> encoder = resolveInterfaces(c);
+            if(encoder != null)
+                return encoder;
+        }
+
+        return SERIALIZED;
+    }
+
+    private static KeyEncoder<?> resolveInterfaces(Class<?> type) {
+        for(Class<?> i : type.getInterfaces()) {
+            KeyEncoder<?> encoder = registered.get(i);
+            if(encoder == null)
+                encoder = resolveInterfaces(i);
+            if(encoder != null)
+                return encoder;
+        }
+
+        return null;
+    }
+
+    /**
+     * Conversione di un oggetto serializzabile in byte.
+     *
+     * @param o l'oggetto da convertire
+     * @param into la destinazione dei byte
+     * @throws IllegalArgumentException se l'oggetto non è serializzabile
+     */
+    private static void serialize(Object o, HashSink into) {
+        if(!(o instanceof Serializable))
+            throw new IllegalArgumentException("l'oggetto deve essere serializzabile");
+
+        OutputStream bos = new OutputStream() { /* scrittura diretta nel sink */
+            @Override
+            public void write(int b) {
+                into.putByte((byte) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                into.putBytes(b, off, len);
+            }
+        };
+
+        try (ObjectOutput out = new ObjectOutputStream(bos))
+        {
+            out.writeObject(o);
+            out.flush();
+        }
+        catch (IOException ex) {
+            throw new IllegalArgumentException("l'oggetto non può essere convertito in byte");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package hash;
+
+/**
+ * Kernel a corsie parallele di BatchHash.
+ * Questa versione è scalare; su JDK 17+ è sostituita dalla versione in
+ *  META-INF/versions/17 che utilizza la Vector API, se disponibile.
+ *
+ * @author Marco Costa
+ */
+final class LaneKernels {
+
+    private LaneKernels() {}
+
+    static String name() {
+        return "scalar";
+    }
+
+    static void murmur3Longs(long seed, long[] keys, int off, int len, long[] h1, long[] h2) {
+        BatchHash.murmur3Longs(seed, keys, off, 0, len, h1, h2);
+    }
+}
@@ -0,0 +1,388 @@
+package hash;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Implementazione di MurmurHash3 x64_128 come HashSink in streaming.
+ * I byte scritti sono accumulati in un blocco di 16 byte e mescolati nello
+ *  stato (h1, h2) non appena il blocco è completo, senza buffer intermedi:
+ *  le stringhe sono codificate in UTF-8 carattere per carattere e i ByteBuffer,
+ *  heap o diretti, sono letti sul posto.
+ * Un'istanza è riutilizzabile mediante reset() ma non deve essere condivisa tra thread.
+ *
+ * Produce gli stessi digest di Guava Hashing.murmur3_128(seed).
+ *
+ * @author Marco Costa
+ */
+public final class Murmur3_128 implements HashSink {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long seed;
+    private final Digest digest = new Digest();
+
+    /* stato */
+    private long h1;
+    private long h2;
+
+    /* blocco corrente di 16 byte, little-endian */
+    private long k1;
+    private long k2;
+    private int pending;
+    private long length;
+
+    /**
+     * Creazione di una nuova funzione Murmur3_128 con seme seed.
+     *
+     * @param seed il seme
+     */
+    public Murmur3_128(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    /**
+     * Reimposta lo stato per il calcolo di un nuovo digest.
+     *
+     * @return la funzione
+     */
+    public Murmur3_128 reset() {
+        h1 = seed;
+        h2 = seed;
+        k1 = 0;
+        k2 = 0;
+        pending = 0;
+        length = 0;
+        return this;
+    }
+
+    /**
+     * Digest di una regione di un array di byte.
+     *
+     * @param bytes l'array
+     * @param off l'indice del primo byte
+     * @param len il numero di byte
+     * @return il digest, riutilizzato dall'istanza
+     */
+    public Digest hash(byte[] bytes, int off, int len) {
+        reset().putBytes(bytes, off, len);
+        return finish();
+    }
+
+    /**
+     * Digest di una regione di un ByteBuffer, letta sul posto senza modificarne
+     *  posizione, limite e ordine.
+     *
+     * @param buffer il buffer, heap o diretto
+     * @param off l'indice assoluto del primo byte
+     * @param len il numero di byte
+     * @return il digest, riutilizzato dall'istanza
+     */
+    public Digest hash(ByteBuffer buffer, int off, int len) {
+        reset().putBytes(buffer, off, len);
+        return finish();
+    }
+
+    /**
+     * Digest della codifica UTF-8 di una sequenza di caratteri.
+     *
+     * @param s la sequenza di caratteri
+     * @return il digest, riutilizzato dall'istanza
+     */
+    public Digest hash(CharSequence s) {
+        reset().putString(s);
+        return finish();
+    }
+
+    /**
+     * Digest degli 8 byte little-endian di v, senza passare per il blocco corrente.
+     * Equivale a reset().putLong(v) seguito da finish().
+     *
+     * @param v la chiave
+     * @return il digest, riutilizzato dall'istanza
+     */
+    public Digest hashLong(long v) {
+        return finish(seed ^ mixK1(v), seed, 8);
+    }
+
+    /**
+     * Digest dei 4 byte little-endian di v.
+     * Equivale a reset().putInt(v) seguito da finish().
+     *
+     * @param v la chiave
+     * @return il digest, riutilizzato dall'istanza
+     */
+    public Digest hashInt(int v) {
+        return finish(seed ^ mixK1(v & 0xffffffffL), seed, 4);
+    }
+
+    /**
+     * Digest dei 16 byte little-endian di x seguiti da quelli di y.
+     * Equivale a reset().putLong(x).putLong(y) seguito da finish().
+     *
+     * @param x i primi 8 byte
+     * @param y gli ultimi 8 byte
+     * @return il digest, riutilizzato dall'istanza
+     */
+    public Digest hash(long x, long y) {
+        reset().bmix(x, y);
+        return finish(h1, h2, 16);
+    }
+
+    /**
+     * Finalizzazione di uno stato (h1, h2) senza blocco parziale.
+     */
+    private Digest finish(long h1, long h2, long length) {
+        h1 ^= length;
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        return digest.set(h1, h2);
+    }
+
+    /**
+     * Completa il calcolo del digest dei byte scritti dall'ultimo reset().
+     *
+     * @return il digest, riutilizzato dall'istanza
+     */
+    public Digest finish() {
+        h1 ^= mixK1(k1);
+        h2 ^= mixK2(k2);
+
+        return finish(h1, h2, length);
+    }
+
+    static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Mescola nello stato un blocco completo di 16 byte.
+     */
+    private void bmix(long k1, long k2) {
+        h1 ^= mixK1(k1);
+
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k2);
+
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    /**
+     * Accoda al blocco corrente gli n byte meno significativi di v (n <= 8),
+     *  i cui byte restanti devono essere a zero.
+     */
+    private void write(long v, int n) {
+        int shift = pending << 3;
+        long spill = 0;
+
+        if(pending < 8) {
+            k1 |= v << shift;
+            if(pending + n > 8)
+                k2 |= v >>> (64 - shift);
+        }
+        else {
+            k2 |= v << (shift - 64);
+            if(pending + n > 16)
+                spill = v >>> (128 - shift);
+        }
+
+        length += n;
+        pending += n;
+
+        if(pending >= 16) {
+            bmix(k1, k2);
+            k1 = spill;
+            k2 = 0;
+            pending -= 16;
+        }
+    }
+
+    @Override
+    public HashSink putByte(byte b) {
+        write(b & 0xffL, 1);
+        return this;
+    }
+
+    @Override
+    public HashSink putBytes(byte[] bytes) {
+        return putBytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public HashSink putBytes(byte[] bytes, int off, int len) {
+        int end = off + len;
+
+        while((pending != 0) && (off < end))
+            write(bytes[off++] & 0xffL, 1);
+
+        /* blocchi completi letti direttamente dall'array */
+        for(; off + 16 <= end; off += 16) {
+            bmix(Primitives.getLong(bytes, off), Primitives.getLong(bytes, off + 8));
+            length += 16;
+        }
+
+        while(off < end)
+            write(bytes[off++] & 0xffL, 1);
+
+        return this;
+    }
+
+    /**
+     * Scrive una regione di un ByteBuffer letta sul posto, senza modificarne
+     *  posizione, limite e ordine.
+     *
+     * @param buffer il buffer, heap o diretto
+     * @param off l'indice assoluto del primo byte
+     * @param len il numero di byte
+     * @return il sink
+     */
+    public HashSink putBytes(ByteBuffer buffer, int off, int len) {
+        boolean swap = buffer.order() != ByteOrder.LITTLE_ENDIAN;
+        int end = off + len;
+
+        while((pending != 0) && (off < end))
+            write(buffer.get(off++) & 0xffL, 1);
+
+        for(; off + 16 <= end; off += 16) {
+            long b1 = buffer.getLong(off);
+            long b2 = buffer.getLong(off + 8);
+            if(swap) {
+                b1 = Long.reverseBytes(b1);
+                b2 = Long.reverseBytes(b2);
+            }
+
+            bmix(b1, b2);
+            length += 16;
+        }
+
+        while(off < end)
+            write(buffer.get(off++) & 0xffL, 1);
+
+        return this;
+    }
+
+    @Override
+    public HashSink putShort(short s) {
+        write(s & 0xffffL, 2);
+        return this;
+    }
+
+    @Override
+    public HashSink putChar(char c) {
+        write(c, 2);
+        return this;
+    }
+
+    @Override
+    public HashSink putInt(int i) {
+        write(i & 0xffffffffL, 4);
+        return this;
+    }
+
+    @Override
+    public HashSink putLong(long l) {
+        write(l, 8);
+        return this;
+    }
+
+    @Override
+    public HashSink putFloat(float f) {
+        return putInt(Float.floatToRawIntBits(f));
+    }
+
+    @Override
+    public HashSink putDouble(double d) {
+        return putLong(Double.doubleToRawLongBits(d));
+    }
+
+    @Override
+    public HashSink putBoolean(boolean b) {
+        write(b ? 1 : 0, 1);
+        return this;
+    }
+
+    /**
+     * Scrive la codifica UTF-8 della stringa senza costruirne l'array di byte.
+     * I surrogati spaiati sono sostituiti con '?', come in String.getBytes().
+     *
+     * @param s la stringa
+     * @return il sink
+     */
+    @Override
+    public HashSink putString(CharSequence s) {
+        int len = s.length();
+        int i = 0;
+
+        while(i < len) {
+            /* blocchi di 4 caratteri ASCII scritti con una sola operazione */
+            if(i + 4 <= len) {
+                char c0 = s.charAt(i);
+                char c1 = s.charAt(i + 1);
+                char c2 = s.charAt(i + 2);
+                char c3 = s.charAt(i + 3);
+
+                if((c0 | c1 | c2 | c3) < 0x80) {
+                    write(c0 | (c1 << 8) | (c2 << 16) | ((long) c3 << 24), 4);
+                    i += 4;
+                    continue;
+                }
+            }
+
+            char c = s.charAt(i++);
+
+            if(c < 0x80)
+                write(c, 1);
+            else if(c < 0x800)
+                write((0xc0 | (c >>> 6)) | ((0x80 | (c & 0x3f)) << 8), 2);
+            else if(!Character.isSurrogate(c))
+                write((0xe0 | (c >>> 12))
+                        | ((0x80 | ((c >>> 6) & 0x3f)) << 8)
+                        | ((0x80 | (c & 0x3f)) << 16), 3);
+            else if(Character.isHighSurrogate(c) && (i < len) && Character.isLowSurrogate(s.charAt(i))) {
+                int cp = Character.toCodePoint(c, s.charAt(i++));
+                write(((0xf0 | (cp >>> 18))
+                        | ((0x80 | ((cp >>> 12) & 0x3f)) << 8)
+                        | ((0x80 | ((cp >>> 6) & 0x3f)) << 16)
+                        | ((long) (0x80 | (cp & 0x3f)) << 24)), 4);
+            }
+            else
+                write('?', 1);
+        }
+
+        return this;
+    }
+}
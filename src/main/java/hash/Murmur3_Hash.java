@@ -1,12 +1,5 @@
 package hash;
 
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-
-import java.io.*;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
-
 /**
  * Classe Singleton per il calcolo di funzioni hash per Bloom Filter
  *  mediante funzione Murmur3.
@@ -16,113 +9,52 @@ import java.nio.charset.StandardCharsets;
  *
  * @author Marco Costa
  */
-public class Murmur3_Hash implements BloomHash {
+public class Murmur3_Hash extends AbstractBloomHash {
     private static final Murmur3_Hash Instance;
 
-    private final HashFunction hash1;
-
     private static final int SEED_1 = 0;
 
+    /* funzione in streaming riutilizzata da ogni thread per la codifica delle chiavi */
+    private final ThreadLocal<Murmur3_128> hash1;
+
     static {
-        Instance = new Murmur3_Hash();
+        Instance = new Murmur3_Hash(SEED_1);
     }
 
-    private Murmur3_Hash() {
-        hash1 = Hashing.murmur3_128(SEED_1);
+    Murmur3_Hash(long seed) {
+        super(HashFamily.MURMUR3_128, seed);
+        hash1 = ThreadLocal.withInitial(() -> new Murmur3_128(seed));
     }
 
     public static Murmur3_Hash getInstance() { return Instance; };
 
     /**
-     * Conversione di un oggetto in array di byte.
+     * Calcola il digest a 128 bit di un oggetto descritto dall'encoder.
+     * I campi scritti dall'encoder sono mescolati direttamente nello stato della
+     *  funzione del thread corrente, senza richiedere che l'oggetto sia serializzabile.
      *
-     * @param in l'oggetto da convertire
-     * @return l'array di byte
-     * @throws IOException se non è possibile convertire l'oggetto
+     * @param o l'oggetto
+     * @param encoder l'encoder dell'oggetto
+     * @param <T> il tipo dell'oggetto
+     * @return il digest, riutilizzato dal thread corrente
      */
-    private static byte[] objectToBytes(Object in) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-
-        try (ObjectOutput out = new ObjectOutputStream(bos);)
-        {
-            out.writeObject(in);
-            out.flush();
-        }
-        catch (IOException ex) {
-            throw new IOException();
-        }
+    public <T> Digest digest(T o, KeyEncoder<? super T> encoder) {
+        Murmur3_128 sink = hash1.get().reset();
+        encoder.encode(o, sink);
 
-        return bos.toByteArray();
+        return sink.finish();
     }
 
-    /**
-     * Computazione delle k posizioni risultanti dall'operazione di combinazione
-     *  g_i(x) = h1(x) + ih2(x)
-     *
-     * @param h1 la prima f. hash
-     * @param h2 la seconda f. hash
-     * @param k il numero di iterazioni (o posizioni da computare)
-     * @param bound limite superiore per ogni posizione
-     * @return il vettore di posizioni
-     */
-    private int[] computeHash(int h1, int h2, int k, int bound) {
-        int[] out = new int[k];
-
-        for(int i = 0; i < k; i++)
-        {
-            out[i] = h1 + (i + 1) * h2;
-            if(out[i] < 0)
-                out[i] = ~out[i];
-
-            out[i] = out[i] % bound;
-        }
-
-        return out;
+    public Digest hashLong(long key) {
+        return hash1.get().hashLong(key);
     }
 
-    /**
-     * Effettua l'hash di un oggetto serializzabile e ne restituisce il vettore
-     *  di k posizioni, tale che ogni posizione sia < bound.
-     *
-     * @param o l'oggetto
-     * @param k il numero di posizioni
-     * @param bound il limite superiore per ogni posizione
-     * @return il vettore di posizioni
-     */
-    public int[] hashObject(Object o, int k, int bound) {
-        if(!(o instanceof Serializable))
-            throw new IllegalArgumentException("l'oggetto deve essere serializzabile");
-
-        byte[] byteObject;
-
-        try {
-            byteObject = Murmur3_Hash.objectToBytes(o);
-        } catch (IOException e) {
-            throw new IllegalArgumentException("l'oggetto non può essere convertito in byte");
-        }
-
-        long hash64 = hash1.hashBytes(byteObject).asLong();
-        int h1 = (int) hash64;
-        int h2 = (int) (hash64 >>> 32);
-
-        return computeHash(h1, h2, k, bound);
+    public Digest hashInt(int key) {
+        return hash1.get().hashInt(key);
     }
 
-    /**
-     * Effettua l'hash di una stringa UTF-8 e ne restituisce il vettore
-     *  di k posizioni, tale che ogni posizione sia < bound.
-     *
-     * @param s la stringa UTF-8
-     * @param k il numero di posizioni
-     * @param bound il limite superiore per ogni posizione
-     * @return il vettore di posizioni
-     */
-    public int[] hashObject(String s, int k, int bound) {
-        long hash64 = hash1.hashString(s, StandardCharsets.UTF_8).asLong();
-        int h1 = (int) hash64;
-        int h2 = (int) (hash64 >>> 32);
-
-        return computeHash(h1, h2, k, bound);
+    public Digest hash(long msb, long lsb) {
+        return hash1.get().hash(msb, lsb);
     }
 
 }
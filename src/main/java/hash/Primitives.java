@@ -0,0 +1,54 @@
+package hash;
+
+/**
+ * Operazioni sui primitivi comuni alle funzioni hash: letture little-endian
+ *  da array di byte e prodotto senza segno a 128 bit, condiviso anche con la
+ *  riduzione delle posizioni dei filtri.
+ *
+ * @author Marco Costa
+ */
+public final class Primitives {
+
+    private Primitives() {}
+
+    static long getLong(byte[] b, int off) {
+        return (b[off] & 0xffL)
+                | (b[off + 1] & 0xffL) << 8
+                | (b[off + 2] & 0xffL) << 16
+                | (b[off + 3] & 0xffL) << 24
+                | (b[off + 4] & 0xffL) << 32
+                | (b[off + 5] & 0xffL) << 40
+                | (b[off + 6] & 0xffL) << 48
+                | (b[off + 7] & 0xffL) << 56;
+    }
+
+    /**
+     * Legge 4 byte little-endian come intero senza segno.
+     */
+    static long getInt(byte[] b, int off) {
+        return (b[off] & 0xffL)
+                | (b[off + 1] & 0xffL) << 8
+                | (b[off + 2] & 0xffL) << 16
+                | (b[off + 3] & 0xffL) << 24;
+    }
+
+    /**
+     * Restituisce i 64 bit alti del prodotto senza segno a * b.
+     *
+     * @param a il primo fattore, senza segno
+     * @param b il secondo fattore, senza segno
+     * @return i 64 bit alti del prodotto a 128 bit
+     */
+    public static long multiplyHigh(long a, long b) {
+        long aLo = a & 0xffffffffL;
+        long aHi = a >>> 32;
+        long bLo = b & 0xffffffffL;
+        long bHi = b >>> 32;
+
+        long lolo = aLo * bLo;
+        long hilo = aHi * bLo;
+        long cross = (lolo >>> 32) + (hilo & 0xffffffffL) + aLo * bHi;
+
+        return aHi * bHi + (hilo >>> 32) + (cross >>> 32);
+    }
+}
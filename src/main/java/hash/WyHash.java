@@ -0,0 +1,149 @@
+package hash;
+
+import static hash.Primitives.getInt;
+import static hash.Primitives.getLong;
+import static hash.Primitives.multiplyHigh;
+
+/**
+ * Implementazione di wyhash (versione final4) su array di byte, con i
+ *  parametri segreti di default.
+ *
+ * @author Marco Costa
+ */
+final class WyHash {
+    private static final long P0 = 0x2d358dccaa6c78a5L;
+    private static final long P1 = 0x8bb84b93962eacc9L;
+    private static final long P2 = 0x4b33a62ed433d4a3L;
+    private static final long P3 = 0x4d5a2da51de1aa47L;
+
+    private WyHash() {}
+
+    /**
+     * Prodotto a 128 bit ripiegato: parte bassa xor parte alta.
+     */
+    static long mix(long a, long b) {
+        return (a * b) ^ multiplyHigh(a, b);
+    }
+
+    private static long getInt3(byte[] in, int off, int len) {
+        return ((in[off] & 0xffL) << 16) | ((in[off + (len >> 1)] & 0xffL) << 8) | (in[off + len - 1] & 0xffL);
+    }
+
+    /**
+     * wyhash di una regione di un array di byte.
+     *
+     * @param in l'array
+     * @param off l'indice del primo byte
+     * @param len il numero di byte
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hash(byte[] in, int off, int len, long seed) {
+        seed ^= mix(seed ^ P0, P1);
+        long a;
+        long b;
+
+        if(len <= 16) {
+            if(len >= 4) {
+                int q = (len >> 3) << 2;
+                a = (getInt(in, off) << 32) | getInt(in, off + q);
+                b = (getInt(in, off + len - 4) << 32) | getInt(in, off + len - 4 - q);
+            }
+            else if(len > 0) {
+                a = getInt3(in, off, len);
+                b = 0;
+            }
+            else
+                a = b = 0;
+        }
+        else {
+            int i = len;
+            int p = off;
+
+            if(i > 48) {
+                long see1 = seed;
+                long see2 = seed;
+                do {
+                    seed = mix(getLong(in, p) ^ P1, getLong(in, p + 8) ^ seed);
+                    see1 = mix(getLong(in, p + 16) ^ P2, getLong(in, p + 24) ^ see1);
+                    see2 = mix(getLong(in, p + 32) ^ P3, getLong(in, p + 40) ^ see2);
+                    p += 48;
+                    i -= 48;
+                } while(i > 48);
+                seed ^= see1 ^ see2;
+            }
+
+            while(i > 16) {
+                seed = mix(getLong(in, p) ^ P1, getLong(in, p + 8) ^ seed);
+                i -= 16;
+                p += 16;
+            }
+
+            a = getLong(in, p + i - 16);
+            b = getLong(in, p + i - 8);
+        }
+
+        return finish(a, b, len, seed);
+    }
+
+    /**
+     * wyhash degli 8 byte little-endian di v.
+     *
+     * @param v la chiave
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hashLong(long v, long seed) {
+        long lo = v & 0xffffffffL;
+        long hi = v >>> 32;
+        return finish((lo << 32) | hi, (hi << 32) | lo, 8, seed ^ mix(seed ^ P0, P1));
+    }
+
+    /**
+     * wyhash dei 4 byte little-endian di v.
+     *
+     * @param v la chiave
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hashInt(int v, long seed) {
+        long i = v & 0xffffffffL;
+        return finish((i << 32) | i, (i << 32) | i, 4, seed ^ mix(seed ^ P0, P1));
+    }
+
+    /**
+     * wyhash dei 16 byte little-endian di x seguiti da quelli di y.
+     *
+     * @param x i primi 8 byte
+     * @param y gli ultimi 8 byte
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hash(long x, long y, long seed) {
+        long a = (x << 32) | (y & 0xffffffffL);
+        long b = (y & 0xffffffff00000000L) | (x >>> 32);
+        return finish(a, b, 16, seed ^ mix(seed ^ P0, P1));
+    }
+
+    private static long finish(long a, long b, long len, long seed) {
+        a ^= P1;
+        b ^= seed;
+
+        long lo = a * b;
+        long hi = multiplyHigh(a, b);
+
+        return mix(lo ^ P0 ^ len, hi ^ P1);
+    }
+
+    /**
+     * Seconda metà del digest a 128 bit, derivata dall'hash h con un ulteriore
+     *  round di mix: la coppia (h, rehash(h)) ha 64 bit di entropia.
+     *
+     * @param h l'hash a 64 bit
+     * @param seed il seme
+     * @return la seconda metà del digest
+     */
+    static long rehash(long h, long seed) {
+        return mix(h ^ P2, seed ^ P3);
+    }
+}
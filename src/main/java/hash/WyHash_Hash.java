@@ -0,0 +1,50 @@
+package hash;
+
+/**
+ * Funzione hash per Bloom Filter mediante wyhash.
+ * I campi della chiave sono accumulati nel sink del thread corrente e il
+ *  digest è calcolato sui byte risultanti.
+ *
+ * @author Marco Costa
+ */
+public class WyHash_Hash extends AbstractBloomHash {
+
+    /* sink riutilizzato da ogni thread per la codifica delle chiavi */
+    private final ThreadLocal<BufferedSink> sinks = ThreadLocal.withInitial(BufferedSink::new);
+
+    WyHash_Hash(long seed) {
+        super(HashFamily.WYHASH, seed);
+    }
+
+    /**
+     * Calcola il digest a 128 bit di un oggetto descritto dall'encoder.
+     *
+     * @param o l'oggetto
+     * @param encoder l'encoder dell'oggetto
+     * @param <T> il tipo dell'oggetto
+     * @return il digest, riutilizzato dal thread corrente
+     */
+    public <T> Digest digest(T o, KeyEncoder<? super T> encoder) {
+        BufferedSink sink = sinks.get().reset();
+        encoder.encode(o, sink);
+
+        long h1 = WyHash.hash(sink.buffer(), 0, sink.length(), seed());
+        return sink.digest.set(h1, WyHash.rehash(h1, seed()));
+    }
+
+    public Digest hashLong(long key) {
+        return digest(WyHash.hashLong(key, seed()));
+    }
+
+    public Digest hashInt(int key) {
+        return digest(WyHash.hashInt(key, seed()));
+    }
+
+    public Digest hash(long msb, long lsb) {
+        return digest(WyHash.hash(msb, lsb, seed()));
+    }
+
+    private Digest digest(long h1) {
+        return sinks.get().digest.set(h1, WyHash.rehash(h1, seed()));
+    }
+}
@@ -0,0 +1,491 @@
+package hash;
+
+import static hash.Primitives.getInt;
+import static hash.Primitives.getLong;
+import static hash.Primitives.multiplyHigh;
+
+/**
+ * Implementazione scalare di XXH3 (xxHash 0.8) a 64 e 128 bit su array di byte,
+ *  con segreto di default e seme esplicito.
+ * Produce gli stessi valori di XXH3_64bits_withSeed e XXH3_128bits_withSeed.
+ *
+ * @author Marco Costa
+ */
+final class XXH3 {
+    private static final long PRIME32_1 = 0x9E3779B1L;
+    private static final long PRIME32_2 = 0x85EBCA77L;
+    private static final long PRIME32_3 = 0xC2B2AE3DL;
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+    private static final long PRIME_MX1 = 0x165667919E3779F9L;
+    private static final long PRIME_MX2 = 0x9FB21C651E98DF25L;
+
+    private static final int STRIPE_LEN = 64;
+    private static final int SECRET_SIZE = 192;
+    private static final int SECRET_SIZE_MIN = 136;
+    private static final int SECRET_CONSUME_RATE = 8;
+    private static final int STRIPES_PER_BLOCK = (SECRET_SIZE - STRIPE_LEN) / SECRET_CONSUME_RATE;
+    private static final int BLOCK_LEN = STRIPE_LEN * STRIPES_PER_BLOCK;
+    private static final int MIDSIZE_MAX = 240;
+    private static final int MIDSIZE_STARTOFFSET = 3;
+    private static final int MIDSIZE_LASTOFFSET = 17;
+    private static final int SECRET_LASTACC_START = 7;
+    private static final int SECRET_MERGEACCS_START = 11;
+
+    private static final byte[] SECRET = {
+            (byte) 0xb8, (byte) 0xfe, (byte) 0x6c, (byte) 0x39, (byte) 0x23, (byte) 0xa4, (byte) 0x4b, (byte) 0xbe,
+            (byte) 0x7c, (byte) 0x01, (byte) 0x81, (byte) 0x2c, (byte) 0xf7, (byte) 0x21, (byte) 0xad, (byte) 0x1c,
+            (byte) 0xde, (byte) 0xd4, (byte) 0x6d, (byte) 0xe9, (byte) 0x83, (byte) 0x90, (byte) 0x97, (byte) 0xdb,
+            (byte) 0x72, (byte) 0x40, (byte) 0xa4, (byte) 0xa4, (byte) 0xb7, (byte) 0xb3, (byte) 0x67, (byte) 0x1f,
+            (byte) 0xcb, (byte) 0x79, (byte) 0xe6, (byte) 0x4e, (byte) 0xcc, (byte) 0xc0, (byte) 0xe5, (byte) 0x78,
+            (byte) 0x82, (byte) 0x5a, (byte) 0xd0, (byte) 0x7d, (byte) 0xcc, (byte) 0xff, (byte) 0x72, (byte) 0x21,
+            (byte) 0xb8, (byte) 0x08, (byte) 0x46, (byte) 0x74, (byte) 0xf7, (byte) 0x43, (byte) 0x24, (byte) 0x8e,
+            (byte) 0xe0, (byte) 0x35, (byte) 0x90, (byte) 0xe6, (byte) 0x81, (byte) 0x3a, (byte) 0x26, (byte) 0x4c,
+            (byte) 0x3c, (byte) 0x28, (byte) 0x52, (byte) 0xbb, (byte) 0x91, (byte) 0xc3, (byte) 0x00, (byte) 0xcb,
+            (byte) 0x88, (byte) 0xd0, (byte) 0x65, (byte) 0x8b, (byte) 0x1b, (byte) 0x53, (byte) 0x2e, (byte) 0xa3,
+            (byte) 0x71, (byte) 0x64, (byte) 0x48, (byte) 0x97, (byte) 0xa2, (byte) 0x0d, (byte) 0xf9, (byte) 0x4e,
+            (byte) 0x38, (byte) 0x19, (byte) 0xef, (byte) 0x46, (byte) 0xa9, (byte) 0xde, (byte) 0xac, (byte) 0xd8,
+            (byte) 0xa8, (byte) 0xfa, (byte) 0x76, (byte) 0x3f, (byte) 0xe3, (byte) 0x9c, (byte) 0x34, (byte) 0x3f,
+            (byte) 0xf9, (byte) 0xdc, (byte) 0xbb, (byte) 0xc7, (byte) 0xc7, (byte) 0x0b, (byte) 0x4f, (byte) 0x1d,
+            (byte) 0x8a, (byte) 0x51, (byte) 0xe0, (byte) 0x4b, (byte) 0xcd, (byte) 0xb4, (byte) 0x59, (byte) 0x31,
+            (byte) 0xc8, (byte) 0x9f, (byte) 0x7e, (byte) 0xc9, (byte) 0xd9, (byte) 0x78, (byte) 0x73, (byte) 0x64,
+            (byte) 0xea, (byte) 0xc5, (byte) 0xac, (byte) 0x83, (byte) 0x34, (byte) 0xd3, (byte) 0xeb, (byte) 0xc3,
+            (byte) 0xc5, (byte) 0x81, (byte) 0xa0, (byte) 0xff, (byte) 0xfa, (byte) 0x13, (byte) 0x63, (byte) 0xeb,
+            (byte) 0x17, (byte) 0x0d, (byte) 0xdd, (byte) 0x51, (byte) 0xb7, (byte) 0xf0, (byte) 0xda, (byte) 0x49,
+            (byte) 0xd3, (byte) 0x16, (byte) 0x55, (byte) 0x26, (byte) 0x29, (byte) 0xd4, (byte) 0x68, (byte) 0x9e,
+            (byte) 0x2b, (byte) 0x16, (byte) 0xbe, (byte) 0x58, (byte) 0x7d, (byte) 0x47, (byte) 0xa1, (byte) 0xfc,
+            (byte) 0x8f, (byte) 0xf8, (byte) 0xb8, (byte) 0xd1, (byte) 0x7a, (byte) 0xd0, (byte) 0x31, (byte) 0xce,
+            (byte) 0x45, (byte) 0xcb, (byte) 0x3a, (byte) 0x8f, (byte) 0x95, (byte) 0x16, (byte) 0x04, (byte) 0x28,
+            (byte) 0xaf, (byte) 0xd7, (byte) 0xfb, (byte) 0xca, (byte) 0xbb, (byte) 0x4b, (byte) 0x40, (byte) 0x7e,
+    };
+
+    private XXH3() {}
+
+    /* ------------------------------------------------------------------ */
+    /* primitive comuni                                                    */
+    /* ------------------------------------------------------------------ */
+
+    private static long mul128Fold64(long a, long b) {
+        return (a * b) ^ multiplyHigh(a, b);
+    }
+
+    private static long xxh64Avalanche(long h) {
+        h ^= h >>> 33;
+        h *= PRIME64_2;
+        h ^= h >>> 29;
+        h *= PRIME64_3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 37;
+        h *= PRIME_MX1;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long rrmxmx(long h, long len) {
+        h ^= Long.rotateLeft(h, 49) ^ Long.rotateLeft(h, 24);
+        h *= PRIME_MX2;
+        h ^= (h >>> 35) + len;
+        h *= PRIME_MX2;
+        h ^= h >>> 28;
+        return h;
+    }
+
+    private static long mix16B(byte[] in, int off, byte[] secret, int s, long seed) {
+        long lo = getLong(in, off);
+        long hi = getLong(in, off + 8);
+        return mul128Fold64(lo ^ (getLong(secret, s) + seed), hi ^ (getLong(secret, s + 8) - seed));
+    }
+
+    /**
+     * Segreto derivato dal seme per gli input lunghi, da calcolare una volta
+     *  per seme e passare a hash64() e hash128().
+     *
+     * @param seed il seme
+     * @return il segreto
+     */
+    static byte[] secret(long seed) {
+        if(seed == 0)
+            return SECRET;
+
+        byte[] secret = new byte[SECRET_SIZE];
+        for(int i = 0; i < SECRET_SIZE; i += 16) {
+            putLong(secret, i, getLong(SECRET, i) + seed);
+            putLong(secret, i + 8, getLong(SECRET, i + 8) - seed);
+        }
+
+        return secret;
+    }
+
+    private static void putLong(byte[] b, int off, long v) {
+        for(int i = 0; i < 8; i++)
+            b[off + i] = (byte) (v >>> (i << 3));
+    }
+
+    /**
+     * Accumula le stripe dell'input in acc, con scramble al termine di ogni blocco.
+     */
+    private static void hashLong(long[] acc, byte[] in, int off, int len, byte[] secret) {
+        int blocks = (len - 1) / BLOCK_LEN;
+
+        for(int n = 0; n < blocks; n++) {
+            accumulate(acc, in, off + n * BLOCK_LEN, secret, STRIPES_PER_BLOCK);
+            scramble(acc, secret, SECRET_SIZE - STRIPE_LEN);
+        }
+
+        int stripes = ((len - 1) - (BLOCK_LEN * blocks)) / STRIPE_LEN;
+        accumulate(acc, in, off + blocks * BLOCK_LEN, secret, stripes);
+
+        /* ultima stripe */
+        accumulate512(acc, in, off + len - STRIPE_LEN, secret, SECRET_SIZE - STRIPE_LEN - SECRET_LASTACC_START);
+    }
+
+    private static long[] initAcc() {
+        return new long[] {PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1};
+    }
+
+    private static void accumulate(long[] acc, byte[] in, int off, byte[] secret, int stripes) {
+        for(int n = 0; n < stripes; n++)
+            accumulate512(acc, in, off + n * STRIPE_LEN, secret, n * SECRET_CONSUME_RATE);
+    }
+
+    private static void accumulate512(long[] acc, byte[] in, int off, byte[] secret, int s) {
+        for(int i = 0; i < 8; i++) {
+            long data = getLong(in, off + 8 * i);
+            long key = data ^ getLong(secret, s + 8 * i);
+            acc[i ^ 1] += data;
+            acc[i] += (key & 0xffffffffL) * (key >>> 32);
+        }
+    }
+
+    private static void scramble(long[] acc, byte[] secret, int s) {
+        for(int i = 0; i < 8; i++) {
+            long a = acc[i];
+            a ^= a >>> 47;
+            a ^= getLong(secret, s + 8 * i);
+            a *= PRIME32_1;
+            acc[i] = a;
+        }
+    }
+
+    private static long mergeAccs(long[] acc, byte[] secret, int s, long start) {
+        long result = start;
+        for(int i = 0; i < 4; i++)
+            result += mul128Fold64(acc[2 * i] ^ getLong(secret, s + 16 * i),
+                    acc[2 * i + 1] ^ getLong(secret, s + 16 * i + 8));
+
+        return avalanche(result);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /* XXH3 64 bit                                                         */
+    /* ------------------------------------------------------------------ */
+
+    /**
+     * XXH3 a 64 bit di una regione di un array di byte.
+     *
+     * @param in l'array
+     * @param off l'indice del primo byte
+     * @param len il numero di byte
+     * @param seed il seme
+     * @param secret il segreto derivato da seed mediante secret()
+     * @return l'hash a 64 bit
+     */
+    static long hash64(byte[] in, int off, int len, long seed, byte[] secret) {
+        if(len <= 16)
+            return hash64Short(in, off, len, seed);
+        if(len <= 128)
+            return hash64Upto128(in, off, len, seed);
+        if(len <= MIDSIZE_MAX)
+            return hash64Upto240(in, off, len, seed);
+
+        long[] acc = initAcc();
+        hashLong(acc, in, off, len, secret);
+
+        return mergeAccs(acc, secret, SECRET_MERGEACCS_START, len * PRIME64_1);
+    }
+
+    private static long hash64Short(byte[] in, int off, int len, long seed) {
+        if(len > 8)
+            return hash64Len9to16(getLong(in, off), getLong(in, off + len - 8), len, seed);
+
+        if(len >= 4)
+            return hash64Len4to8(getInt(in, off), getInt(in, off + len - 4), len, seed);
+
+        if(len > 0) {
+            int c1 = in[off] & 0xff;
+            int c2 = in[off + (len >> 1)] & 0xff;
+            int c3 = in[off + len - 1] & 0xff;
+            long combined = ((c1 << 16) | (c2 << 24) | c3 | (len << 8)) & 0xffffffffL;
+            long bitflip = ((getInt(SECRET, 0) ^ getInt(SECRET, 4))) + seed;
+            return xxh64Avalanche(combined ^ bitflip);
+        }
+
+        return xxh64Avalanche(seed ^ getLong(SECRET, 56) ^ getLong(SECRET, 64));
+    }
+
+    /**
+     * XXH3 a 64 bit di un input di 4..8 byte, dati i primi e gli ultimi 4 byte.
+     *
+     * @param in1 i primi 4 byte, little-endian senza segno
+     * @param in2 gli ultimi 4 byte, little-endian senza segno
+     * @param len il numero di byte
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hash64Len4to8(long in1, long in2, int len, long seed) {
+        seed ^= (long) Integer.reverseBytes((int) seed) << 32;
+        long bitflip = (getLong(SECRET, 8) ^ getLong(SECRET, 16)) - seed;
+        long in64 = in2 + (in1 << 32);
+        return rrmxmx(in64 ^ bitflip, len);
+    }
+
+    /**
+     * XXH3 a 64 bit di un input di 9..16 byte, dati i primi e gli ultimi 8 byte.
+     *
+     * @param lo i primi 8 byte, little-endian
+     * @param hi gli ultimi 8 byte, little-endian
+     * @param len il numero di byte
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hash64Len9to16(long lo, long hi, int len, long seed) {
+        long bitflip1 = (getLong(SECRET, 24) ^ getLong(SECRET, 32)) + seed;
+        long bitflip2 = (getLong(SECRET, 40) ^ getLong(SECRET, 48)) - seed;
+        lo ^= bitflip1;
+        hi ^= bitflip2;
+        long acc = len + Long.reverseBytes(lo) + hi + mul128Fold64(lo, hi);
+        return avalanche(acc);
+    }
+
+    private static long hash64Upto128(byte[] in, int off, int len, long seed) {
+        long acc = len * PRIME64_1;
+
+        if(len > 32) {
+            if(len > 64) {
+                if(len > 96) {
+                    acc += mix16B(in, off + 48, SECRET, 96, seed);
+                    acc += mix16B(in, off + len - 64, SECRET, 112, seed);
+                }
+                acc += mix16B(in, off + 32, SECRET, 64, seed);
+                acc += mix16B(in, off + len - 48, SECRET, 80, seed);
+            }
+            acc += mix16B(in, off + 16, SECRET, 32, seed);
+            acc += mix16B(in, off + len - 32, SECRET, 48, seed);
+        }
+        acc += mix16B(in, off, SECRET, 0, seed);
+        acc += mix16B(in, off + len - 16, SECRET, 16, seed);
+
+        return avalanche(acc);
+    }
+
+    private static long hash64Upto240(byte[] in, int off, int len, long seed) {
+        int rounds = len / 16;
+        long acc = len * PRIME64_1;
+
+        for(int i = 0; i < 8; i++)
+            acc += mix16B(in, off + 16 * i, SECRET, 16 * i, seed);
+        acc = avalanche(acc);
+
+        for(int i = 8; i < rounds; i++)
+            acc += mix16B(in, off + 16 * i, SECRET, 16 * (i - 8) + MIDSIZE_STARTOFFSET, seed);
+
+        acc += mix16B(in, off + len - 16, SECRET, SECRET_SIZE_MIN - MIDSIZE_LASTOFFSET, seed);
+
+        return avalanche(acc);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /* XXH3 128 bit                                                        */
+    /* ------------------------------------------------------------------ */
+
+    /**
+     * XXH3 a 128 bit di una regione di un array di byte. I 64 bit bassi e alti
+     *  sono scritti rispettivamente in h1 e h2 del digest.
+     *
+     * @param in l'array
+     * @param off l'indice del primo byte
+     * @param len il numero di byte
+     * @param seed il seme
+     * @param secret il segreto derivato da seed mediante secret()
+     * @param out il digest di destinazione
+     * @return out
+     */
+    static Digest hash128(byte[] in, int off, int len, long seed, byte[] secret, Digest out) {
+        if(len <= 16)
+            return hash128Short(in, off, len, seed, out);
+        if(len <= 128)
+            return hash128Upto128(in, off, len, seed, out);
+        if(len <= MIDSIZE_MAX)
+            return hash128Upto240(in, off, len, seed, out);
+
+        long[] acc = initAcc();
+        hashLong(acc, in, off, len, secret);
+
+        long lo = mergeAccs(acc, secret, SECRET_MERGEACCS_START, len * PRIME64_1);
+        long hi = mergeAccs(acc, secret, SECRET_SIZE - STRIPE_LEN - SECRET_MERGEACCS_START, ~(len * PRIME64_2));
+
+        return out.set(lo, hi);
+    }
+
+    private static Digest hash128Short(byte[] in, int off, int len, long seed, Digest out) {
+        if(len > 8)
+            return hash128Len9to16(getLong(in, off), getLong(in, off + len - 8), len, seed, out);
+
+        if(len >= 4)
+            return hash128Len4to8(getInt(in, off), getInt(in, off + len - 4), len, seed, out);
+
+        if(len > 0) {
+            int c1 = in[off] & 0xff;
+            int c2 = in[off + (len >> 1)] & 0xff;
+            int c3 = in[off + len - 1] & 0xff;
+            int combinedl = (c1 << 16) | (c2 << 24) | c3 | (len << 8);
+            int combinedh = Integer.rotateLeft(Integer.reverseBytes(combinedl), 13);
+            long bitflipl = (getInt(SECRET, 0) ^ getInt(SECRET, 4)) + seed;
+            long bitfliph = (getInt(SECRET, 8) ^ getInt(SECRET, 12)) - seed;
+            long keyedLo = (combinedl & 0xffffffffL) ^ bitflipl;
+            long keyedHi = (combinedh & 0xffffffffL) ^ bitfliph;
+
+            return out.set(xxh64Avalanche(keyedLo), xxh64Avalanche(keyedHi));
+        }
+
+        return out.set(xxh64Avalanche(seed ^ getLong(SECRET, 64) ^ getLong(SECRET, 72)),
+                xxh64Avalanche(seed ^ getLong(SECRET, 80) ^ getLong(SECRET, 88)));
+    }
+
+    /**
+     * XXH3 a 128 bit di un input di 4..8 byte, dati i primi e gli ultimi 4 byte.
+     *
+     * @param inLo i primi 4 byte, little-endian senza segno
+     * @param inHi gli ultimi 4 byte, little-endian senza segno
+     * @param len il numero di byte
+     * @param seed il seme
+     * @param out il digest di destinazione
+     * @return out
+     */
+    static Digest hash128Len4to8(long inLo, long inHi, int len, long seed, Digest out) {
+        seed ^= (long) Integer.reverseBytes((int) seed) << 32;
+        long in64 = inLo + (inHi << 32);
+        long bitflip = (getLong(SECRET, 16) ^ getLong(SECRET, 24)) + seed;
+        long keyed = in64 ^ bitflip;
+
+        long mul = PRIME64_1 + ((long) len << 2);
+        long mLo = keyed * mul;
+        long mHi = multiplyHigh(keyed, mul);
+
+        mHi += mLo << 1;
+        mLo ^= mHi >>> 3;
+
+        mLo ^= mLo >>> 35;
+        mLo *= PRIME_MX2;
+        mLo ^= mLo >>> 28;
+
+        return out.set(mLo, avalanche(mHi));
+    }
+
+    /**
+     * XXH3 a 128 bit di un input di 9..16 byte, dati i primi e gli ultimi 8 byte.
+     *
+     * @param inLo i primi 8 byte, little-endian
+     * @param inHi gli ultimi 8 byte, little-endian
+     * @param len il numero di byte
+     * @param seed il seme
+     * @param out il digest di destinazione
+     * @return out
+     */
+    static Digest hash128Len9to16(long inLo, long inHi, int len, long seed, Digest out) {
+        long bitflipl = (getLong(SECRET, 32) ^ getLong(SECRET, 40)) - seed;
+        long bitfliph = (getLong(SECRET, 48) ^ getLong(SECRET, 56)) + seed;
+
+        long m = inLo ^ inHi ^ bitflipl;
+        long mLo = m * PRIME64_1;
+        long mHi = multiplyHigh(m, PRIME64_1);
+
+        mLo += (long) (len - 1) << 54;
+        inHi ^= bitfliph;
+        mHi += inHi + (inHi & 0xffffffffL) * (PRIME32_2 - 1);
+        mLo ^= Long.reverseBytes(mHi);
+
+        long hLo = mLo * PRIME64_2;
+        long hHi = multiplyHigh(mLo, PRIME64_2) + mHi * PRIME64_2;
+
+        return out.set(avalanche(hLo), avalanche(hHi));
+    }
+
+    /* mix da 32 byte: metà bassa e alta dell'accumulatore a 128 bit */
+    private static long mix32BLo(long acc, byte[] in, int off1, int off2, int s, long seed) {
+        return (acc + mix16B(in, off1, SECRET, s, seed)) ^ (getLong(in, off2) + getLong(in, off2 + 8));
+    }
+
+    private static long mix32BHi(long acc, byte[] in, int off1, int off2, int s, long seed) {
+        return (acc + mix16B(in, off2, SECRET, s + 16, seed)) ^ (getLong(in, off1) + getLong(in, off1 + 8));
+    }
+
+    private static Digest finish128(long accLo, long accHi, int len, long seed, Digest out) {
+        long lo = accLo + accHi;
+        long hi = (accLo * PRIME64_1) + (accHi * PRIME64_4) + ((len - seed) * PRIME64_2);
+
+        return out.set(avalanche(lo), -avalanche(hi));
+    }
+
+    private static Digest hash128Upto128(byte[] in, int off, int len, long seed, Digest out) {
+        long lo = len * PRIME64_1;
+        long hi = 0;
+
+        if(len > 32) {
+            if(len > 64) {
+                if(len > 96) {
+                    long l = mix32BLo(lo, in, off + 48, off + len - 64, 96, seed);
+                    hi = mix32BHi(hi, in, off + 48, off + len - 64, 96, seed);
+                    lo = l;
+                }
+                long l = mix32BLo(lo, in, off + 32, off + len - 48, 64, seed);
+                hi = mix32BHi(hi, in, off + 32, off + len - 48, 64, seed);
+                lo = l;
+            }
+            long l = mix32BLo(lo, in, off + 16, off + len - 32, 32, seed);
+            hi = mix32BHi(hi, in, off + 16, off + len - 32, 32, seed);
+            lo = l;
+        }
+        long l = mix32BLo(lo, in, off, off + len - 16, 0, seed);
+        hi = mix32BHi(hi, in, off, off + len - 16, 0, seed);
+        lo = l;
+
+        return finish128(lo, hi, len, seed, out);
+    }
+
+    private static Digest hash128Upto240(byte[] in, int off, int len, long seed, Digest out) {
+        int rounds = len / 32;
+        long lo = len * PRIME64_1;
+        long hi = 0;
+
+        for(int i = 0; i < 4; i++) {
+            long l = mix32BLo(lo, in, off + 32 * i, off + 32 * i + 16, 32 * i, seed);
+            hi = mix32BHi(hi, in, off + 32 * i, off + 32 * i + 16, 32 * i, seed);
+            lo = l;
+        }
+        lo = avalanche(lo);
+        hi = avalanche(hi);
+
+        for(int i = 4; i < rounds; i++) {
+            int s = MIDSIZE_STARTOFFSET + 32 * (i - 4);
+            long l = mix32BLo(lo, in, off + 32 * i, off + 32 * i + 16, s, seed);
+            hi = mix32BHi(hi, in, off + 32 * i, off + 32 * i + 16, s, seed);
+            lo = l;
+        }
+
+        /* ultimi byte */
+        int s = SECRET_SIZE_MIN - MIDSIZE_LASTOFFSET - 16;
+        long l = mix32BLo(lo, in, off + len - 16, off + len - 32, s, -seed);
+        hi = mix32BHi(hi, in, off + len - 16, off + len - 32, s, -seed);
+        lo = l;
+
+        return finish128(lo, hi, len, seed, out);
+    }
+}
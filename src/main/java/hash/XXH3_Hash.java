@@ -0,0 +1,79 @@
+package hash;
+
+/**
+ * Funzione hash per Bloom Filter mediante XXH3 a 64 o 128 bit.
+ * I campi della chiave sono accumulati nel sink del thread corrente e il
+ *  digest è calcolato sui byte risultanti.
+ *
+ * @author Marco Costa
+ */
+public class XXH3_Hash extends AbstractBloomHash {
+    private final byte[] secret;
+
+    /* sink riutilizzato da ogni thread per la codifica delle chiavi */
+    private final ThreadLocal<BufferedSink> sinks = ThreadLocal.withInitial(BufferedSink::new);
+
+    /**
+     * @param family XXH3_64 oppure XXH3_128
+     * @param seed il seme
+     */
+    XXH3_Hash(HashFamily family, long seed) {
+        super(family, seed);
+        if((family != HashFamily.XXH3_64) && (family != HashFamily.XXH3_128))
+            throw new IllegalArgumentException("famiglia " + family + " non XXH3");
+
+        secret = XXH3.secret(seed);
+    }
+
+    /**
+     * Calcola il digest a 128 bit di un oggetto descritto dall'encoder.
+     *
+     * @param o l'oggetto
+     * @param encoder l'encoder dell'oggetto
+     * @param <T> il tipo dell'oggetto
+     * @return il digest, riutilizzato dal thread corrente
+     */
+    public <T> Digest digest(T o, KeyEncoder<? super T> encoder) {
+        BufferedSink sink = sinks.get().reset();
+        encoder.encode(o, sink);
+
+        if(family() == HashFamily.XXH3_128)
+            return XXH3.hash128(sink.buffer(), 0, sink.length(), seed(), secret, sink.digest);
+
+        long h1 = XXH3.hash64(sink.buffer(), 0, sink.length(), seed(), secret);
+        return sink.digest.set(h1, WyHash.rehash(h1, seed()));
+    }
+
+    public Digest hashLong(long key) {
+        long lo = key & 0xffffffffL;
+        long hi = key >>> 32;
+        Digest out = sinks.get().digest;
+
+        if(family() == HashFamily.XXH3_128)
+            return XXH3.hash128Len4to8(lo, hi, 8, seed(), out);
+
+        long h1 = XXH3.hash64Len4to8(lo, hi, 8, seed());
+        return out.set(h1, WyHash.rehash(h1, seed()));
+    }
+
+    public Digest hashInt(int key) {
+        long i = key & 0xffffffffL;
+        Digest out = sinks.get().digest;
+
+        if(family() == HashFamily.XXH3_128)
+            return XXH3.hash128Len4to8(i, i, 4, seed(), out);
+
+        long h1 = XXH3.hash64Len4to8(i, i, 4, seed());
+        return out.set(h1, WyHash.rehash(h1, seed()));
+    }
+
+    public Digest hash(long msb, long lsb) {
+        Digest out = sinks.get().digest;
+
+        if(family() == HashFamily.XXH3_128)
+            return XXH3.hash128Len9to16(msb, lsb, 16, seed(), out);
+
+        long h1 = XXH3.hash64Len9to16(msb, lsb, 16, seed());
+        return out.set(h1, WyHash.rehash(h1, seed()));
+    }
+}
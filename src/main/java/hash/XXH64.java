@@ -0,0 +1,139 @@
+package hash;
+
+import static hash.Primitives.getInt;
+import static hash.Primitives.getLong;
+
+/**
+ * Implementazione di XXH64 su array di byte. È la funzione utilizzata dai
+ *  Bloom Filter di Apache Parquet (seme 0).
+ *
+ * @author Marco Costa
+ */
+final class XXH64 {
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private XXH64() {}
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long v) {
+        acc ^= round(0, v);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+
+    private static long avalanche(long h) {
+        h ^= h >>> 33;
+        h *= PRIME64_2;
+        h ^= h >>> 29;
+        h *= PRIME64_3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    /* coda: 8 e 4 byte */
+    private static long tail8(long h, long v) {
+        h ^= round(0, v);
+        return Long.rotateLeft(h, 27) * PRIME64_1 + PRIME64_4;
+    }
+
+    private static long tail4(long h, long v) {
+        h ^= v * PRIME64_1;
+        return Long.rotateLeft(h, 23) * PRIME64_2 + PRIME64_3;
+    }
+
+    /**
+     * XXH64 di una regione di un array di byte.
+     *
+     * @param in l'array
+     * @param off l'indice del primo byte
+     * @param len il numero di byte
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hash(byte[] in, int off, int len, long seed) {
+        int end = off + len;
+        long h;
+
+        if(len >= 32) {
+            long v1 = seed + PRIME64_1 + PRIME64_2;
+            long v2 = seed + PRIME64_2;
+            long v3 = seed;
+            long v4 = seed - PRIME64_1;
+
+            do {
+                v1 = round(v1, getLong(in, off));
+                v2 = round(v2, getLong(in, off + 8));
+                v3 = round(v3, getLong(in, off + 16));
+                v4 = round(v4, getLong(in, off + 24));
+                off += 32;
+            } while(off + 32 <= end);
+
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        }
+        else
+            h = seed + PRIME64_5;
+
+        h += len;
+
+        for(; off + 8 <= end; off += 8)
+            h = tail8(h, getLong(in, off));
+
+        if(off + 4 <= end) {
+            h = tail4(h, getInt(in, off));
+            off += 4;
+        }
+
+        for(; off < end; off++) {
+            h ^= (in[off] & 0xffL) * PRIME64_5;
+            h = Long.rotateLeft(h, 11) * PRIME64_1;
+        }
+
+        return avalanche(h);
+    }
+
+    /**
+     * XXH64 degli 8 byte little-endian di v.
+     *
+     * @param v la chiave
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hashLong(long v, long seed) {
+        return avalanche(tail8(seed + PRIME64_5 + 8, v));
+    }
+
+    /**
+     * XXH64 dei 4 byte little-endian di v.
+     *
+     * @param v la chiave
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hashInt(int v, long seed) {
+        return avalanche(tail4(seed + PRIME64_5 + 4, v & 0xffffffffL));
+    }
+
+    /**
+     * XXH64 dei 16 byte little-endian di x seguiti da quelli di y.
+     *
+     * @param x i primi 8 byte
+     * @param y gli ultimi 8 byte
+     * @param seed il seme
+     * @return l'hash a 64 bit
+     */
+    static long hash(long x, long y, long seed) {
+        return avalanche(tail8(tail8(seed + PRIME64_5 + 16, x), y));
+    }
+}
@@ -0,0 +1,52 @@
+package hash;
+
+/**
+ * Funzione hash per Bloom Filter mediante XXH64, compatibile con i Bloom Filter
+ *  di Apache Parquet con seme 0 e chiavi codificate come in Parquet (plain encoding).
+ * I campi della chiave sono accumulati nel sink del thread corrente e il
+ *  digest è calcolato sui byte risultanti.
+ *
+ * @see bloom.SplitBlockBloomFilter
+ * @author Marco Costa
+ */
+public class XXH64_Hash extends AbstractBloomHash {
+
+    /* sink riutilizzato da ogni thread per la codifica delle chiavi */
+    private final ThreadLocal<BufferedSink> sinks = ThreadLocal.withInitial(BufferedSink::new);
+
+    XXH64_Hash(long seed) {
+        super(HashFamily.XXH64, seed);
+    }
+
+    /**
+     * Calcola il digest a 128 bit di un oggetto descritto dall'encoder.
+     * h1 è l'hash XXH64 della chiave.
+     *
+     * @param o l'oggetto
+     * @param encoder l'encoder dell'oggetto
+     * @param <T> il tipo dell'oggetto
+     * @return il digest, riutilizzato dal thread corrente
+     */
+    public <T> Digest digest(T o, KeyEncoder<? super T> encoder) {
+        BufferedSink sink = sinks.get().reset();
+        encoder.encode(o, sink);
+
+        return digest(XXH64.hash(sink.buffer(), 0, sink.length(), seed()));
+    }
+
+    public Digest hashLong(long key) {
+        return digest(XXH64.hashLong(key, seed()));
+    }
+
+    public Digest hashInt(int key) {
+        return digest(XXH64.hashInt(key, seed()));
+    }
+
+    public Digest hash(long msb, long lsb) {
+        return digest(XXH64.hash(msb, lsb, seed()));
+    }
+
+    private Digest digest(long h1) {
+        return sinks.get().digest.set(h1, WyHash.rehash(h1, seed()));
+    }
+}
@@ -0,0 +1,46 @@
+package bloom;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Parole da 64 bit aggiornabili concorrentemente senza lock, per ConcurrentBloomFilter,
+ *  su JDK 17+: getAndBitwiseOr atomico e letture opaque, senza barriere di
+ *  ordinamento sulle letture.
+ *
+ * @author Marco Costa
+ */
+final class AtomicWords {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] words;
+
+    AtomicWords(int length) {
+        words = new long[length];
+    }
+
+    int length() {
+        return words.length;
+    }
+
+    long get(int i) {
+        return (long) WORDS.getOpaque(words, i);
+    }
+
+    void set(int i, long value) {
+        WORDS.setVolatile(words, i, value);
+    }
+
+    /**
+     * Imposta a 1 i bit di mask nella parola i-esima. Se sono già tutti a 1 la
+     *  parola non viene scritta, evitando di contendere la linea di cache.
+     *
+     * @return tt sse almeno un bit è passato da 0 a 1
+     */
+    boolean or(int i, long mask) {
+        if(((long) WORDS.getOpaque(words, i) & mask) == mask)
+            return false;
+
+        return ((long) WORDS.getAndBitwiseOr(words, i, mask) & mask) != mask;
+    }
+}
@@ -0,0 +1,27 @@
+package hash;
+
+/**
+ * Kernel a corsie parallele di BatchHash per JDK 17+.
+ * La Vector API è utilizzata solo se il modulo jdk.incubator.vector è presente
+ *  (--add-modules jdk.incubator.vector) e non è disabilitata con -Dhash.vector=false;
+ *  altrimenti i kernel restano scalari.
+ *
+ * @author Marco Costa
+ */
+final class LaneKernels {
+    static final boolean VECTOR = Boolean.parseBoolean(System.getProperty("hash.vector", "true"))
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private LaneKernels() {}
+
+    static String name() {
+        return VECTOR ? "vector" : "scalar";
+    }
+
+    static void murmur3Longs(long seed, long[] keys, int off, int len, long[] h1, long[] h2) {
+        if(VECTOR)
+            VectorKernels.murmur3Longs(seed, keys, off, len, h1, h2);
+        else
+            BatchHash.murmur3Longs(seed, keys, off, 0, len, h1, h2);
+    }
+}
@@ -0,0 +1,52 @@
+package hash;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernel di BatchHash mediante la Vector API: ogni corsia del vettore elabora
+ *  una chiave. Caricata solo se il modulo jdk.incubator.vector è presente.
+ *
+ * @author Marco Costa
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private VectorKernels() {}
+
+    /**
+     * Murmur3 x64_128 di chiavi di 8 byte, equivalente a BatchHash.murmur3Longs().
+     */
+    static void murmur3Longs(long seed, long[] keys, int off, int len, long[] h1, long[] h2) {
+        int bound = SPECIES.loopBound(len);
+        long b0 = seed ^ 8;
+
+        int i = 0;
+        for(; i < bound; i += SPECIES.length()) {
+            LongVector k = LongVector.fromArray(SPECIES, keys, off + i).mul(C1);
+            k = k.lanewise(VectorOperators.ROL, 31).mul(C2);
+
+            LongVector a = k.lanewise(VectorOperators.XOR, seed ^ 8).add(b0);
+            LongVector b = a.add(b0);
+
+            a = fmix64(a);
+            b = fmix64(b);
+
+            a = a.add(b);
+            a.intoArray(h1, i);
+            b.add(a).intoArray(h2, i);
+        }
+
+        BatchHash.murmur3Longs(seed, keys, off, i, len, h1, h2);
+    }
+
+    private static LongVector fmix64(LongVector k) {
+        k = k.lanewise(VectorOperators.XOR, k.lanewise(VectorOperators.LSHR, 33)).mul(0xff51afd7ed558ccdL);
+        k = k.lanewise(VectorOperators.XOR, k.lanewise(VectorOperators.LSHR, 33)).mul(0xc4ceb9fe1a85ec53L);
+        return k.lanewise(VectorOperators.XOR, k.lanewise(VectorOperators.LSHR, 33));
+    }
+}
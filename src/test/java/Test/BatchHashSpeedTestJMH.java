@@ -0,0 +1,102 @@
+package Test;
+
+import hash.BatchHash;
+import hash.BloomHash;
+import hash.Digest;
+import hash.HashFactory;
+import hash.KeyEncoders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confronto tra il calcolo chiave per chiave e BatchHash su gruppi di chiavi long.
+ * Su JDK 17+ il benchmark è eseguito due volte, con il kernel vettoriale e con quello
+ *  scalare (-Dhash.vector=false), e il kernel in uso è verificato prima di ogni prova.
+ *  Il kernel vettoriale è caricato solo da META-INF/versions/17 del jar multi-release,
+ *  per cui il benchmark va eseguito con target/progetto-1.0-SNAPSHOT.jar nel classpath
+ *  al posto di target/classes.
+ *
+ * @author Marco Costa
+ */
+public class BatchHashSpeedTestJMH {
+    @State(Scope.Benchmark)
+    public static class MyState {
+        public long[] keys;
+        public long[] h1;
+        public long[] h2;
+        public BloomHash hash;
+
+        @Param({"8","16","64","256","1024","4096"})
+        public int batch;
+
+        @Param({"scalar"})
+        public String kernel;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            if(!BatchHash.kernel().equals(kernel))
+                throw new IllegalStateException("kernel richiesto " + kernel + ", in uso " + BatchHash.kernel()
+                        + ": il kernel vettoriale richiede il jar multi-release su JDK 17+");
+
+            Random r = new Random(0);
+            keys = new long[batch];
+            for(int i = 0; i < batch; i++)
+                keys[i] = r.nextLong();
+
+            h1 = new long[batch];
+            h2 = new long[batch];
+            hash = HashFactory.getHashFunction();
+        }
+
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long[] scalar(MyState s) {
+        for(int i = 0; i < s.batch; i++) {
+            Digest d = s.hash.digest(s.keys[i], KeyEncoders.LONG);
+            s.h1[i] = d.h1();
+            s.h2[i] = d.h2();
+        }
+
+        return s.h1; /* evita dead code */
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long[] batch(MyState s) {
+        BatchHash.digestLongs(s.hash, s.keys, 0, s.batch, s.h1, s.h2);
+
+        return s.h1; /* evita dead code */
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        boolean java17 = !System.getProperty("java.specification.version").startsWith("1.");
+        String[] kernels = java17 ? new String[] {"vector", "scalar"} : new String[] {"scalar"};
+
+        for(String kernel : kernels) {
+            ChainedOptionsBuilder opt = new OptionsBuilder()
+                    .include(BatchHashSpeedTestJMH.class.getSimpleName())
+                    .param("kernel", kernel)
+                    .shouldDoGC(true)
+                    .resultFormat(ResultFormatType.CSV)
+                    .result("speed_test_batch_hash_" + kernel + ".csv")
+                    .forks(1);
+
+            if(java17)
+                opt = opt.jvmArgsAppend("--add-modules", "jdk.incubator.vector",
+                        "-Dhash.vector=" + kernel.equals("vector"));
+
+            new Runner(opt.build()).run();
+        }
+    }
+}
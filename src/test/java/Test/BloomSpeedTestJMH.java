@@ -2,6 +2,7 @@ package Test;
 
 import bloom.BloomBlocker;
 import bloom.BloomSet;
+import bloom.IndexReduction;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
@@ -28,6 +29,9 @@ public class BloomSpeedTestJMH {
         @Param({"1","2001","4001","6001","8001","10001","12001","14001","16331"})
         public int n;
 
+        @Param({"MODULO","MULTIPLY_SHIFT","MASK"})
+        public IndexReduction reduction;
+
         @Setup(Level.Trial) /* setup effettuato una volta */
         public void doSetup() throws IOException {
             ArrayList<String> hosts = BloomBlocker.loadHostfile("hosts");
@@ -35,7 +39,7 @@ public class BloomSpeedTestJMH {
             domains = new String[domainsList.size()];
             domains = domainsList.toArray(domains);
 
-            set = new BloomSet<>(hosts.size(), pf);
+            set = new BloomSet<>(hosts.size(), pf, reduction);
             set.addAll(hosts);
         }
 
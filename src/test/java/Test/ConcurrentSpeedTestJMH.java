@@ -0,0 +1,116 @@
+package Test;
+
+import bloom.BloomFilterFactory;
+import bloom.BloomSet;
+import bloom.ConcurrentBloomFilter;
+import bloom.IndexReduction;
+import bloom.ProbeScheme;
+import bloom.ShardedBloomSet;
+import hash.HashFactory;
+import hash.HashFamily;
+import hash.KeyEncoders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH multi-thread di inserimento e ricerca: BloomSet protetto da un
+ *  lock globale contro BloomSet costruito su ConcurrentBloomFilter e ShardedBloomSet.
+ * Il numero di thread è quello dei processori disponibili.
+ *
+ * @author Marco Costa
+ */
+public class ConcurrentSpeedTestJMH {
+    private static final int N = 1 << 24;
+    private static final double pf = 0.001;
+    private static final int SHARDS = 64;
+
+    public enum Sync {
+        LOCKED, CONCURRENT, SHARDED
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        public Set<Long> set;
+
+        @Param({"LOCKED","CONCURRENT","SHARDED"})
+        public Sync sync;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            BloomFilterFactory factory = (sync == Sync.CONCURRENT)
+                    ? ConcurrentBloomFilter.factory(ProbeScheme.ENHANCED_DOUBLE_HASHING, IndexReduction.MULTIPLY_SHIFT)
+                    : BloomFilterFactory.longArray(ProbeScheme.ENHANCED_DOUBLE_HASHING, IndexReduction.MULTIPLY_SHIFT);
+
+            if(sync == Sync.SHARDED)
+                set = new ShardedBloomSet<>(N, pf, SHARDS, KeyEncoders.LONG,
+                        HashFactory.getHashFunction(HashFamily.XXH3_64, 0), factory);
+            else
+                set = new BloomSet<>(N, pf, KeyEncoders.LONG,
+                        HashFactory.getHashFunction(HashFamily.XXH3_64, 0), factory);
+
+            for(long i = 0; i < N / 2; i++)
+                set.add(i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        public SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean add(SharedState s, ThreadState t) {
+        long key = t.random.nextInt(N);
+
+        if(s.sync == Sync.LOCKED) {
+            synchronized(s.set) {
+                return s.set.add(key);
+            }
+        }
+
+        return s.set.add(key);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean contains(SharedState s, ThreadState t) {
+        long key = t.random.nextInt(N);
+
+        if(s.sync == Sync.LOCKED) {
+            synchronized(s.set) {
+                return s.set.contains(key);
+            }
+        }
+
+        return s.set.contains(key);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ConcurrentSpeedTestJMH.class.getSimpleName())
+                .threads(Runtime.getRuntime().availableProcessors())
+                .shouldDoGC(true)
+                .resultFormat(ResultFormatType.CSV)
+                .result("speed_test_concurrent.csv")
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -1,12 +1,23 @@
 package Test;
 
+import bloom.BlockedBloomFilter;
 import bloom.BloomBlocker;
+import bloom.BloomFilterFactory;
+import bloom.BloomSet;
+import bloom.IndexReduction;
+import bloom.ProbeScheme;
+import bloom.QuotientSet;
+import bloom.RibbonSet;
+import bloom.ScalableBloomSet;
+import hash.HashFactory;
+import hash.KeyEncoders;
 import jdk.nashorn.internal.ir.debug.ObjectSizeCalculator;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Test di falso positivo.
@@ -16,10 +27,12 @@ public class ErrorTest {
 
     private static final double bitToKB = (8 * 1024);
 
+    private static final int N_QUERIES = 10000000;
+
     /* funzione da iterare */
-    private static int[] testFunction(ArrayList<String> hosts, ArrayList<String> domains, float pf) throws IOException {
+    private static long[] testFunction(ArrayList<String> hosts, ArrayList<String> domains, float pf) throws IOException {
         BloomBlocker blocker = new BloomBlocker(hosts, pf);
-        int[] stats = new int[2];
+        long[] stats = new long[2];
         stats[0] = 0;
 
         for(String s : domains)
@@ -29,6 +42,154 @@ public class ErrorTest {
         return stats;
     }
 
+    /* probabilità di falso positivo empirica di uno schema su n chiavi sintetiche */
+    private static double schemeTest(int n, double pf, ProbeScheme scheme) {
+        BloomSet<Long> set = new BloomSet<>(n, pf, KeyEncoders.LONG, scheme, IndexReduction.MODULO);
+        int errors = 0;
+
+        for(long i = 0; i < n; i++)
+            set.add(i);
+
+        for(long i = n; i < n + N_QUERIES; i++)
+            if(set.contains(i)) errors++;
+
+        return errors / (double) N_QUERIES;
+    }
+
+    /* probabilità di falso positivo empirica di un filtro a blocchi di blockBits bit */
+    private static double blockedTest(int n, double pf, int blockBits, long[] dim) {
+        BloomSet<Long> set = new BloomSet<>(n, pf, KeyEncoders.LONG, HashFactory.getHashFunction(),
+                BlockedBloomFilter.factory(blockBits, IndexReduction.MODULO));
+        int errors = 0;
+
+        for(long i = 0; i < n; i++)
+            set.add(i);
+
+        for(long i = n; i < n + N_QUERIES; i++)
+            if(set.contains(i)) errors++;
+
+        dim[0] = set.dimension();
+        return errors / (double) N_QUERIES;
+    }
+
+    /* probabilità di falso positivo empirica di BloomSet e ScalableBloomSet
+     *  dimensionati per n chiavi dopo l'inserimento di n * load chiavi */
+    private static double[] overloadTest(int n, double pf, int load) {
+        BloomSet<Long> set = new BloomSet<>(n, pf);
+        ScalableBloomSet<Long> scalable = new ScalableBloomSet<>(n, pf);
+        double[] fpr = new double[2];
+
+        for(long i = 0; i < (long) n * load; i++) {
+            set.add(i);
+            scalable.add(i);
+        }
+
+        for(long i = -1; i >= -N_QUERIES; i--) {
+            if(set.contains(i)) fpr[0]++;
+            if(scalable.contains(i)) fpr[1]++;
+        }
+
+        fpr[0] /= N_QUERIES;
+        fpr[1] /= N_QUERIES;
+        return fpr;
+    }
+
+    /* probabilità di falso positivo empirica su queries chiavi assenti, dimensione e
+     *  probabilità prevista di BitSetBloomFilter e dei Ribbon Set standard e omogeneo
+     *  su n chiavi sintetiche */
+    private static double[] ribbonTest(int n, double pf, long queries, long[] dim, double[] expected) {
+        BloomSet<Long> set = new BloomSet<>(n, pf, KeyEncoders.LONG, HashFactory.getHashFunction(),
+                BloomFilterFactory.bitSet(ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO));
+        List<Long> keys = new ArrayList<>(n);
+
+        for(long i = 0; i < n; i++) {
+            set.add(i);
+            keys.add(i);
+        }
+
+        RibbonSet<Long> ribbon = RibbonSet.build(keys, pf, false, KeyEncoders.LONG, HashFactory.getHashFunction());
+        RibbonSet<Long> homogeneous = RibbonSet.build(keys, pf, true, KeyEncoders.LONG, HashFactory.getHashFunction());
+        double[] fpr = new double[3];
+
+        for(long i = n; i < n + queries; i++) {
+            if(set.contains(i)) fpr[0]++;
+            if(ribbon.contains(i)) fpr[1]++;
+            if(homogeneous.contains(i)) fpr[2]++;
+        }
+
+        for(int i = 0; i < fpr.length; i++)
+            fpr[i] /= queries;
+
+        dim[0] = set.dimension();
+        dim[1] = ribbon.dimension();
+        dim[2] = homogeneous.dimension();
+        expected[0] = set.expectedFalsePositiveRate();
+        expected[1] = ribbon.expectedFalsePositiveRate();
+        expected[2] = homogeneous.expectedFalsePositiveRate();
+        return fpr;
+    }
+
+    /* riga del test dei Ribbon Set */
+    private static void ribbonRow(StringBuilder data, int n, double pf, long queries) {
+        long[] dim = new long[3];
+        double[] expected = new double[3];
+        double[] fpr = ribbonTest(n, pf, queries, dim, expected);
+
+        System.out.println("N: " + n + " PF: " + pf + " bitset " + fpr[0] + " ribbon " + fpr[1]
+                + " (" + expected[1] + ") omogeneo " + fpr[2] + " (" + expected[2] + ")");
+        data.append(n + ", " + pf + ", " + queries);
+        for(int i = 0; i < fpr.length; i++)
+            data.append(", " + fpr[i] + ", " + expected[i] + ", " + (dim[i] / bitToKB));
+        data.append('\n');
+    }
+
+    /* probabilità di falso positivo empirica e prevista di QuotientSet su n chiavi sintetiche:
+     *  dimensionato per n chiavi, cresciuto da n / 16 chiavi con raddoppi automatici e unione
+     *  di due set di n / 2 chiavi, il secondo con fingerprint di due bit più lunghi; in misses
+     *  i falsi negativi, anche dopo la rimozione delle chiavi di uno dei due set dall'unione,
+     *  che devono essere 0 */
+    private static double[] quotientTest(int n, double pf, double[] expected, long[] misses) {
+        QuotientSet<Long> sized = new QuotientSet<>(n, pf);
+        QuotientSet<Long> grown = new QuotientSet<>(n / 16, pf);
+        QuotientSet<Long> even = new QuotientSet<>(n / 2, pf);
+        QuotientSet<Long> odd = new QuotientSet<>(n / 2, pf / 4);
+
+        for(long i = 0; i < n; i++) {
+            sized.addLong(i);
+            grown.addLong(i);
+            if((i & 1) == 0)
+                even.addLong(i);
+            else
+                odd.addLong(i);
+        }
+
+        QuotientSet<Long> merged = QuotientSet.merge(even, odd);
+        double[] fpr = new double[3];
+        misses[0] = 0;
+
+        for(long i = 0; i < n; i++)
+            if(!sized.containsLong(i) || !grown.containsLong(i) || !merged.containsLong(i)) misses[0]++;
+
+        for(long i = n; i < n + N_QUERIES; i++) {
+            if(sized.containsLong(i)) fpr[0]++;
+            if(grown.containsLong(i)) fpr[1]++;
+            if(merged.containsLong(i)) fpr[2]++;
+        }
+
+        for(int i = 0; i < fpr.length; i++)
+            fpr[i] /= N_QUERIES;
+
+        expected[0] = sized.expectedFalsePositiveRate();
+        expected[1] = grown.expectedFalsePositiveRate();
+        expected[2] = merged.expectedFalsePositiveRate();
+
+        for(long i = 1; i < n; i += 2)
+            if(!merged.removeLong(i)) misses[0]++;
+        for(long i = 0; i < n; i += 2)
+            if(!merged.containsLong(i)) misses[0]++;
+
+        return fpr;
+    }
 
     public static void main(String[] args) throws IOException {
         ArrayList<String> hosts = BloomBlocker.loadHostfile("hosts");
@@ -44,7 +205,7 @@ public class ErrorTest {
         for(int i = 6; i >= 2; i--)
         {
             float pf = new Double(Math.pow(10, -i)).floatValue();
-            int[] result = testFunction(hosts, safe_domains, pf);
+            long[] result = testFunction(hosts, safe_domains, pf);
             double KBdimension = result[1] / bitToKB;
 
             System.out.println("PF: " + pf);
@@ -59,7 +220,7 @@ public class ErrorTest {
 
         for(float pf = 0.1f; pf <= 0.9f; pf += 0.1f)
         {
-            int[] result = testFunction(hosts, safe_domains, pf);
+            long[] result = testFunction(hosts, safe_domains, pf);
             double KBdimension = result[1] / bitToKB;
 
             System.out.println("PF: " + pf);
@@ -72,6 +233,102 @@ public class ErrorTest {
 
         Utils.printCSV("error_test_1hash_full.csv", data);
 
+        StringBuilder schemeData = new StringBuilder();
+        schemeData.append("n, pf, scheme, fpr\n");
+
+        for(int n = 1000000; n <= 100000000; n *= 10)
+            for(int i = 2; i <= 4; i++)
+            {
+                double pf = Math.pow(10, -i);
+
+                for(ProbeScheme scheme : ProbeScheme.values())
+                {
+                    double fpr = schemeTest(n, pf, scheme);
+
+                    System.out.println("N: " + n + " PF: " + pf + " " + scheme + ": " + fpr);
+                    schemeData.append(n + ", " + pf + ", " + scheme + ", " + fpr + "\n");
+                }
+                System.out.println("************************************");
+            }
+
+        Utils.printCSV("error_test_scheme.csv", schemeData);
+
+        StringBuilder blockedData = new StringBuilder();
+        blockedData.append("n, pf, block, fpr, dim\n");
+        long[] dim = new long[1];
+
+        for(int n = 1000000; n <= 10000000; n *= 10)
+            for(int i = 2; i <= 6; i++)
+            {
+                double pf = Math.pow(10, -i);
+
+                for(int blockBits = 64; blockBits <= 512; blockBits <<= 1)
+                {
+                    double fpr = blockedTest(n, pf, blockBits, dim);
+
+                    System.out.println("N: " + n + " PF: " + pf + " blocco " + blockBits + ": " + fpr);
+                    blockedData.append(n + ", " + pf + ", " + blockBits + ", " + fpr + ", " + (dim[0] / bitToKB) + "\n");
+                }
+                System.out.println("************************************");
+            }
+
+        Utils.printCSV("error_test_blocked.csv", blockedData);
+
+        StringBuilder overloadData = new StringBuilder();
+        overloadData.append("n, pf, load, bloom, scalable\n");
+
+        for(int i = 2; i <= 4; i++)
+        {
+            double pf = Math.pow(10, -i);
+
+            for(int load = 1; load <= 64; load <<= 1)
+            {
+                double[] fpr = overloadTest(100000, pf, load);
+
+                System.out.println("PF: " + pf + " carico " + load + ": " + fpr[0] + " scalabile " + fpr[1]);
+                overloadData.append(100000 + ", " + pf + ", " + load + ", " + fpr[0] + ", " + fpr[1] + "\n");
+            }
+            System.out.println("************************************");
+        }
+
+        Utils.printCSV("error_test_scalable.csv", overloadData);
+
+        StringBuilder ribbonData = new StringBuilder();
+        ribbonData.append("n, pf, queries, bitset, bitset_expected, bitset_dim, ribbon, ribbon_expected, ribbon_dim,"
+                + " homogeneous, homogeneous_expected, homogeneous_dim\n");
+
+        for(int n = 1000000; n <= 10000000; n *= 10)
+            for(int i = 2; i <= 6; i++)
+                ribbonRow(ribbonData, n, Math.pow(10, -i), N_QUERIES);
+
+        /* pf piccole: l'eccesso della variante omogenea nelle regioni sature della banda
+         *  supererebbe 2^-r senza lo spazio aggiuntivo calcolato da r */
+        for(int i = 5; i <= 7; i++)
+            ribbonRow(ribbonData, 1000000, Math.pow(10, -i), 10L * N_QUERIES);
+
+        Utils.printCSV("error_test_ribbon.csv", ribbonData);
+
+        StringBuilder quotientData = new StringBuilder();
+        quotientData.append("n, pf, sized, sized_expected, grown, grown_expected, merged, merged_expected, misses\n");
+        double[] quotientExpected = new double[3];
+        long[] misses = new long[1];
+
+        for(int n = 1000000; n <= 10000000; n *= 10)
+            for(int i = 2; i <= 4; i++)
+            {
+                double pf = Math.pow(10, -i);
+                double[] fpr = quotientTest(n, pf, quotientExpected, misses);
+
+                System.out.println("N: " + n + " PF: " + pf + " dimensionato " + fpr[0] + " cresciuto " + fpr[1]
+                        + " unione " + fpr[2] + " falsi negativi " + misses[0]);
+                quotientData.append(n + ", " + pf);
+                for(int j = 0; j < fpr.length; j++)
+                    quotientData.append(", " + fpr[j] + ", " + quotientExpected[j]);
+                quotientData.append(", " + misses[0] + "\n");
+            }
+
+        Utils.printCSV("error_test_quotient.csv", quotientData);
+
     }
 
 }
@@ -0,0 +1,117 @@
+package Test;
+
+import bloom.BlockedBloomFilter;
+import bloom.BloomBlocker;
+import bloom.BloomFilterFactory;
+import bloom.BloomSet;
+import bloom.CuckooSet;
+import bloom.IndexReduction;
+import bloom.PartitionedBloomFilter;
+import bloom.ProbeScheme;
+import bloom.SplitBlockBloomFilter;
+import hash.HashFactory;
+import hash.HashFamily;
+import hash.KeyEncoders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH di inserimento e ricerca per le diverse strutture di BloomFilter.
+ * Tutte le strutture utilizzano XXH64 a seme 0, la funzione dei filtri Parquet.
+ * CUCKOO confronta un CuckooSet con la stessa pf, che accede a due soli bucket.
+ *
+ * @author Marco Costa
+ */
+public class FilterSpeedTestJMH {
+    private static final double pf = 0.0000001; // K = 24
+
+    public enum Layout {
+        BITSET(BloomFilterFactory.bitSet(ProbeScheme.ENHANCED_DOUBLE_HASHING, IndexReduction.MULTIPLY_SHIFT)),
+        LONG_ARRAY(BloomFilterFactory.longArray(ProbeScheme.ENHANCED_DOUBLE_HASHING, IndexReduction.MULTIPLY_SHIFT)),
+        BLOCKED_64(BlockedBloomFilter.factory(64, IndexReduction.MULTIPLY_SHIFT)),
+        BLOCKED_512(BlockedBloomFilter.factory(512, IndexReduction.MULTIPLY_SHIFT)),
+        SPLIT_BLOCK(SplitBlockBloomFilter.factory()),
+        PARTITIONED(PartitionedBloomFilter.factory(IndexReduction.MASK)),
+        CUCKOO(null);
+
+        final BloomFilterFactory factory;
+
+        Layout(BloomFilterFactory factory) {
+            this.factory = factory;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class MyState {
+        public String[] hosts;
+        public String[] domains;
+        public Set<CharSequence> set;
+
+        @Param({"BITSET","LONG_ARRAY","BLOCKED_64","BLOCKED_512","SPLIT_BLOCK","PARTITIONED","CUCKOO"})
+        public Layout layout;
+
+        @Setup(Level.Trial)
+        public void doSetup() throws IOException {
+            ArrayList<String> hostsList = BloomBlocker.loadHostfile("hosts");
+            hosts = hostsList.toArray(new String[hostsList.size()]);
+            ArrayList<String> domainsList = Utils.parseFile("google_host");
+            domains = domainsList.toArray(new String[domainsList.size()]);
+
+            if(layout == Layout.CUCKOO)
+                set = new CuckooSet<>(hosts.length, pf, KeyEncoders.CHAR_SEQUENCE,
+                        HashFactory.getHashFunction(HashFamily.XXH64, 0));
+            else
+                set = new BloomSet<>(hosts.length, pf, KeyEncoders.CHAR_SEQUENCE,
+                        HashFactory.getHashFunction(HashFamily.XXH64, 0), layout.factory);
+            for(String s : hosts)
+                set.add(s);
+        }
+
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<CharSequence> add(MyState s) {
+        s.set.clear();
+        for(String host : s.hosts)
+            s.set.add(host);
+
+        return s.set; /* evita dead code */
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean[] contains(MyState s) {
+
+        boolean[] res = new boolean[s.domains.length];
+
+        for(int i = 0; i < s.domains.length; i++) {
+            res[i] = s.set.contains(s.domains[i]);
+        }
+
+        return res; /* evita dead code */
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(FilterSpeedTestJMH.class.getSimpleName())
+                .shouldDoGC(true)
+                .resultFormat(ResultFormatType.CSV)
+                .result("speed_test_filter.csv")
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,75 @@
+package Test;
+
+import bloom.BloomBlocker;
+import bloom.BloomSet;
+import bloom.IndexReduction;
+import bloom.ProbeScheme;
+import hash.HashFactory;
+import hash.HashFamily;
+import hash.KeyEncoders;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confronto tra le famiglie di funzioni hash sulla ricerca di nomi di dominio.
+ *
+ * @author Marco Costa
+ */
+public class HashFamilySpeedTestJMH {
+    @State(Scope.Benchmark)
+    public static class MyState {
+        public String[] domains;
+        public BloomSet<CharSequence> set;
+
+        @Param({"MURMUR3_128","XXH3_64","XXH3_128","WYHASH"})
+        public HashFamily family;
+
+        @Setup(Level.Trial)
+        public void doSetup() throws IOException {
+            ArrayList<String> hosts = BloomBlocker.loadHostfile("hosts");
+            ArrayList<String> domainsList = Utils.parseFile("google_host");
+            domains = new String[domainsList.size()];
+            domains = domainsList.toArray(domains);
+
+            set = new BloomSet<>(hosts.size(), 0.0000001, KeyEncoders.CHAR_SEQUENCE,
+                    ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO,
+                    HashFactory.getHashFunction(family, 0));
+            set.addAll(hosts);
+        }
+
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean[] testFunction(MyState s) {
+
+        boolean[] res = new boolean[s.domains.length];
+
+        for(int i = 0; i < s.domains.length; i++) {
+            res[i] = s.set.contains(s.domains[i]);
+        }
+
+        return res; /* evita dead code */
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HashFamilySpeedTestJMH.class.getSimpleName())
+                .shouldDoGC(true)
+                .resultFormat(ResultFormatType.CSV)
+                .result("speed_test_hash_family.csv")
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
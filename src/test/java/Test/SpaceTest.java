@@ -1,6 +1,15 @@
 package Test;
 
 import bloom.BloomBlocker;
+import bloom.BloomFilterFactory;
+import bloom.BloomSet;
+import bloom.CountingBloomFilter;
+import bloom.CuckooSet;
+import bloom.IndexReduction;
+import bloom.ProbeScheme;
+import bloom.RibbonSet;
+import hash.HashFactory;
+import hash.KeyEncoders;
 import jdk.nashorn.internal.ir.debug.ObjectSizeCalculator;
 
 import javax.rmi.CORBA.Util;
@@ -8,12 +17,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Test di calcolo dimensioni in memoria.
  * @author Marco Costa
  */
 public class SpaceTest {
+    private static final double pf = 0.001;
 
     private static double[] testFunction(ArrayList<String> hosts, int n) throws IOException {
         HashSet<String> hashSet = new HashSet<>(n);
@@ -34,14 +45,49 @@ public class SpaceTest {
          return data;
     }
 
+    /* dimensione in KB del filtro a bit, dei filtri a contatori da 4 e 8 bit e del cuckoo filter per n elementi */
+    private static double[] bloomFunction(int n) {
+        BloomFilterFactory[] factories = {
+                BloomFilterFactory.longArray(ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO),
+                CountingBloomFilter.factory(4, ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO),
+                CountingBloomFilter.factory(8, ProbeScheme.DOUBLE_HASHING, IndexReduction.MODULO)
+        };
+        double[] data = new double[factories.length + 1];
+
+        for(int i = 0; i < factories.length; i++)
+            data[i] = new BloomSet<String>(n, pf, factories[i]).dimension() / 8192.; // bit -> KB
+        data[factories.length] = new CuckooSet<String>(n, pf).dimension() / 8192.;
+
+        return data;
+    }
+
+    /* dimensione in KB di BitSetBloomFilter e dei Ribbon Set standard e omogeneo sui primi n host */
+    private static double[] ribbonFunction(ArrayList<String> hosts, int n) {
+        List<String> keys = hosts.subList(0, n);
+        double[] data = new double[3];
+
+        data[0] = new BloomSet<String>(n, pf, BloomFilterFactory.bitSet(ProbeScheme.DOUBLE_HASHING,
+                IndexReduction.MODULO)).dimension() / 8192.;
+        data[1] = RibbonSet.build(keys, pf, false, KeyEncoders.CHAR_SEQUENCE,
+                HashFactory.getHashFunction()).dimension() / 8192.;
+        data[2] = RibbonSet.build(keys, pf, true, KeyEncoders.CHAR_SEQUENCE,
+                HashFactory.getHashFunction()).dimension() / 8192.;
+
+        return data;
+    }
+
     public static void main(String[] args) throws IOException {
         ArrayList<String> hosts = BloomBlocker.loadHostfile("hosts");
 
         StringBuilder hashData = new StringBuilder();
         StringBuilder arrayData = new StringBuilder();
+        StringBuilder bloomData = new StringBuilder();
+        StringBuilder ribbonData = new StringBuilder();
 
         hashData.append("n, dim\n");
         arrayData.append("n, dim\n");
+        bloomData.append("n, bloom, counting4, counting8, cuckoo\n");
+        ribbonData.append("n, bitset, ribbon, homogeneous\n");
 
         for(int i = 1; i < hosts.size(); i += 1000)
         {
@@ -49,6 +95,12 @@ public class SpaceTest {
 
             hashData.append(i + ", " + KBsize[0] + "\n");
             arrayData.append(i + "," + KBsize[1] + "\n");
+
+            double[] KBbloom = bloomFunction(i);
+            bloomData.append(i + ", " + KBbloom[0] + ", " + KBbloom[1] + ", " + KBbloom[2] + ", " + KBbloom[3] + "\n");
+
+            double[] KBribbon = ribbonFunction(hosts, i);
+            ribbonData.append(i + ", " + KBribbon[0] + ", " + KBribbon[1] + ", " + KBribbon[2] + "\n");
         }
 
         int size = hosts.size();
@@ -57,7 +109,15 @@ public class SpaceTest {
         hashData.append(size + ", " + KBsize[0] + "\n");
         arrayData.append(size + ", " + KBsize[1] + "\n");
 
+        double[] KBbloom = bloomFunction(size);
+        bloomData.append(size + ", " + KBbloom[0] + ", " + KBbloom[1] + ", " + KBbloom[2] + ", " + KBbloom[3] + "\n");
+
+        double[] KBribbon = ribbonFunction(hosts, size);
+        ribbonData.append(size + ", " + KBribbon[0] + ", " + KBribbon[1] + ", " + KBribbon[2] + "\n");
+
         Utils.printCSV("size_test_hash.csv", hashData);
         Utils.printCSV("size_test_array.csv", arrayData);
+        Utils.printCSV("size_test_bloom.csv", bloomData);
+        Utils.printCSV("size_test_ribbon.csv", ribbonData);
     }
 }
\ No newline at end of file